@@ -7,6 +7,8 @@ import com.jamonapi.MonitorFactory;
 import com.jamonapi.utils.Misc;
 import org.apache.commons.lang.StringUtils;
 import play.Play.Mode;
+import play.cache.Cache;
+import play.cache.NearCacheImpl;
 import play.classloading.ApplicationClasses.ApplicationClass;
 import play.classloading.enhancers.*;
 import play.exceptions.UnexpectedException;
@@ -14,6 +16,7 @@ import play.libs.Crypto;
 import play.mvc.Http.Header;
 import play.mvc.Http.Request;
 import play.mvc.Http.Response;
+import play.utils.WheelTimer;
 
 import java.io.PrintWriter;
 import java.io.StringWriter;
@@ -153,11 +156,29 @@ public class CorePlugin extends PlayPlugin {
         out.println();
         out.println("Requests execution pool:");
         out.println("~~~~~~~~~~~~~~~~~~~~~~~~");
-        out.println("Pool size: " + Invoker.executor.getPoolSize());
-        out.println("Active count: " + Invoker.executor.getActiveCount());
-        out.println("Scheduled task count: " + Invoker.executor.getTaskCount());
-        out.println("Queue size: " + Invoker.executor.getQueue().size());
+        out.println("Pool size: " + Invoker.requestExecutor.getPoolSize());
+        out.println("Active count: " + Invoker.requestExecutor.getActiveCount());
+        out.println("Scheduled task count: " + Invoker.requestExecutor.getTaskCount());
+        out.println("Queue size: " + Invoker.requestExecutor.getQueue().size());
+        out.println("Queue remaining capacity: " + Invoker.requestExecutor.getQueue().remainingCapacity());
+        out.println("Suspended for a task: " + Invoker.WaitForTasksCompletion.suspended.get());
+        out.println("Waiting for a delay: " + WheelTimer.pending());
         out.println();
+        if (Invoker.executor != Invoker.requestExecutor) {
+            out.println("Resumed invocations pool:");
+            out.println("~~~~~~~~~~~~~~~~~~~~~~~~~");
+            out.println("Pool size: " + Invoker.executor.getPoolSize());
+            out.println("Active count: " + Invoker.executor.getActiveCount());
+            out.println("Scheduled task count: " + Invoker.executor.getTaskCount());
+            out.println("Queue size: " + Invoker.executor.getQueue().size());
+            out.println();
+        }
+        if (Cache.cacheImpl instanceof NearCacheImpl) {
+            out.println("Near cache:");
+            out.println("~~~~~~~~~~~");
+            out.println(Cache.cacheImpl);
+            out.println();
+        }
         try {
             out.println("Monitors:");
             out.println("~~~~~~~~");
@@ -206,11 +227,22 @@ public class CorePlugin extends PlayPlugin {
 
         {
             JsonObject pool = new JsonObject();
-            pool.addProperty("size", Invoker.executor.getPoolSize());
-            pool.addProperty("active", Invoker.executor.getActiveCount());
-            pool.addProperty("scheduled", Invoker.executor.getTaskCount());
-            pool.addProperty("queue", Invoker.executor.getQueue().size());
+            pool.addProperty("size", Invoker.requestExecutor.getPoolSize());
+            pool.addProperty("active", Invoker.requestExecutor.getActiveCount());
+            pool.addProperty("scheduled", Invoker.requestExecutor.getTaskCount());
+            pool.addProperty("queue", Invoker.requestExecutor.getQueue().size());
+            pool.addProperty("remainingCapacity", Invoker.requestExecutor.getQueue().remainingCapacity());
+            pool.addProperty("suspended", Invoker.WaitForTasksCompletion.suspended.get());
+            pool.addProperty("delayed", WheelTimer.pending());
             status.add("pool", pool);
+            if (Invoker.executor != Invoker.requestExecutor) {
+                JsonObject resumed = new JsonObject();
+                resumed.addProperty("size", Invoker.executor.getPoolSize());
+                resumed.addProperty("active", Invoker.executor.getActiveCount());
+                resumed.addProperty("scheduled", Invoker.executor.getTaskCount());
+                resumed.addProperty("queue", Invoker.executor.getQueue().size());
+                status.add("resumedPool", resumed);
+            }
         }
 
         {
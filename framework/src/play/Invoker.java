@@ -10,10 +10,14 @@ import play.i18n.Lang;
 import play.libs.F;
 import play.libs.F.Promise;
 import play.utils.PThreadFactory;
+import play.utils.PromiseTask;
+import play.utils.WheelTimer;
 
 import java.lang.annotation.Annotation;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Run some code in a Play! context
@@ -21,20 +25,49 @@ import java.util.concurrent.*;
 public class Invoker {
 
     /**
-     * Main executor for requests invocations.
+     * Executor for the delayed invocations and the suspended invocations when they are resumed.
      */
     public static ScheduledThreadPoolExecutor executor = null;
+    /**
+     * Main executor for requests invocations. Its queue is bounded by <code>play.pool.queue</code>.
+     * In DEV mode it is the same executor as <code>executor</code>.
+     */
+    public static ThreadPoolExecutor requestExecutor = null;
+    /**
+     * Seconds sent in the Retry-After header when the requests queue is full
+     */
+    public static String retryAfter = "5";
 
     /**
      * Run the code in a new thread took from a thread pool.
      *
      * @param invocation The code to run
      * @return The future object, to know when the task is completed
+     * @throws RejectedExecutionException if the requests queue is full
      */
     public static Future<?> invoke(final Invocation invocation) {
         Monitor monitor = MonitorFactory.getMonitor("Invoker queue size", "elmts.");
-        monitor.add(executor.getQueue().size());
+        monitor.add(requestExecutor.getQueue().size());
         invocation.waitInQueue = MonitorFactory.start("Waiting for execution");
+        try {
+            return requestExecutor.submit(invocation);
+        } catch (RejectedExecutionException e) {
+            invocation.waitInQueue = null;
+            MonitorFactory.add("Invoker rejected invocations", "elmts.", 1);
+            throw e;
+        }
+    }
+
+    /**
+     * Run a suspended invocation again, as soon as possible
+     *
+     * @param invocation The code to run
+     * @return The future object, to know when the task is completed
+     */
+    public static Future<?> resume(final Invocation invocation) {
+        Monitor monitor = MonitorFactory.getMonitor("Resumed queue size", "elmts.");
+        monitor.add(executor.getQueue().size());
+        invocation.waitInQueue = MonitorFactory.start("Waiting for resumption");
         return executor.submit(invocation);
     }
 
@@ -46,9 +79,8 @@ public class Invoker {
      * @return The future object, to know when the task is completed
      */
     public static Future<?> invoke(final Invocation invocation, long millis) {
-        Monitor monitor = MonitorFactory.getMonitor("Invocation queue", "elmts.");
-        monitor.add(executor.getQueue().size());
-        return executor.schedule(invocation, millis, TimeUnit.MILLISECONDS);
+        // They wait in the timer, see WheelTimer.pending()
+        return WheelTimer.submit(executor, invocation, millis, TimeUnit.MILLISECONDS);
     }
 
     /**
@@ -166,6 +198,10 @@ public class Invoker {
          * If set, monitor the time the invocation waited in the queue
          */
         Monitor waitInQueue;
+        /**
+         * When the task a suspended invocation waits for was seen completed, for the resume latency
+         */
+        long completedAt;
 
         /**
          * Override this method
@@ -268,6 +304,10 @@ public class Invoker {
             if (waitInQueue != null) {
                 waitInQueue.stop();
             }
+            if (completedAt > 0) {
+                MonitorFactory.add("Resume latency", "ms.", System.currentTimeMillis() - completedAt);
+                completedAt = 0;
+            }
             try {
                 preInit();
                 if (init()) {
@@ -314,11 +354,34 @@ public class Invoker {
     }
 
     /**
-     * Init executor at load time.
+     * Init executors at load time.
      */
     static {
         int core = Integer.parseInt(Play.configuration.getProperty("play.pool", Play.mode == Mode.DEV ? "1" : ((Runtime.getRuntime().availableProcessors() + 1) + "")));
-        executor = new ScheduledThreadPoolExecutor(core, new PThreadFactory("play"), new ThreadPoolExecutor.AbortPolicy());
+        int queue = Integer.parseInt(Play.configuration.getProperty("play.pool.queue", "-1"));
+        retryAfter = Play.configuration.getProperty("play.pool.retryAfter", retryAfter);
+        if (Play.mode == Mode.DEV) {
+            // A single pool, so that only one invocation runs at a time by default
+            executor = new ScheduledThreadPoolExecutor(core, new PThreadFactory("play"), new ThreadPoolExecutor.AbortPolicy());
+            requestExecutor = executor;
+        } else {
+            int resumed = Integer.parseInt(Play.configuration.getProperty("play.pool.resumed", core + ""));
+            executor = new ScheduledThreadPoolExecutor(resumed, new PThreadFactory("play-resumed"), new ThreadPoolExecutor.AbortPolicy());
+            BlockingQueue<Runnable> requests = queue > 0 ? new ArrayBlockingQueue<Runnable>(queue) : new LinkedBlockingQueue<Runnable>();
+            requestExecutor = new ThreadPoolExecutor(core, core, 0L, TimeUnit.MILLISECONDS, requests, new PThreadFactory("play"), new ThreadPoolExecutor.AbortPolicy()) {
+
+                // So that a request awaiting another invocation is resumed when it completes
+                @Override
+                protected <T> RunnableFuture<T> newTaskFor(Runnable runnable, T value) {
+                    return new PromiseTask<T>(runnable, value);
+                }
+
+                @Override
+                protected <T> RunnableFuture<T> newTaskFor(Callable<T> callable) {
+                    return new PromiseTask<T>(callable);
+                }
+            };
+        }
     }
 
     /**
@@ -360,56 +423,116 @@ public class Invoker {
 
     /**
      * Utility that track tasks completion in order to resume suspended requests.
+     * <p/>
+     * Promises, and the tasks of the requests pool, jobs and delayed invocations, resume their invocation as
+     * soon as they complete. Other futures can only be checked: they are all checked together every 10ms, by a
+     * single thread, so this cost grows with the number of requests suspended on such futures.
+     * <p/>
+     * JAMon monitors: 'Suspended for a task' counts the suspended requests (active) and how long they wait,
+     * 'Resume latency' the time from the completion of the task to the invocation running again.
      */
-    static class WaitForTasksCompletion extends Thread {
+    static class WaitForTasksCompletion {
 
-        static WaitForTasksCompletion instance;
-        Map<Future<?>, Invocation> queue;
+        static final long CHECK_DELAY = 10;
+        static final AtomicInteger suspended = new AtomicInteger();
+        static final Queue<Watched<?>> watched = new ConcurrentLinkedQueue<Watched<?>>();
+        static final AtomicBoolean checkScheduled = new AtomicBoolean();
+        static ScheduledThreadPoolExecutor watcher;
 
-        public WaitForTasksCompletion() {
-            queue = new ConcurrentHashMap<Future<?>, Invocation>();
-            setName("WaitForTasksCompletion");
-            setDaemon(true);
+        public static <V> void waitFor(Future<V> task, final Invocation invocation) {
+            final Monitor suspendedTime = MonitorFactory.start("Suspended for a task");
+            suspended.incrementAndGet();
+            toPromise(task).onRedeem(new F.Action<F.Promise<V>>() {
+
+                public void invoke(Promise<V> result) {
+                    invocation.completedAt = System.currentTimeMillis();
+                    suspendedTime.stop();
+                    suspended.decrementAndGet();
+                    Invoker.resume(invocation);
+                }
+            });
         }
 
-        public static <V> void waitFor(Future<V> task, final Invocation invocation) {
+        /**
+         * @return a promise redeemed when the task completes
+         */
+        @SuppressWarnings("unchecked")
+        static <V> Promise<V> toPromise(Future<V> task) {
             if (task instanceof Promise) {
-                Promise<V> smartFuture = (Promise<V>) task;
-                smartFuture.onRedeem(new F.Action<F.Promise<V>>() {
-                    @Override
-                    public void invoke(Promise<V> result) {
-                        executor.submit(invocation);
-                    }
-                });
-            } else {
-                synchronized (WaitForTasksCompletion.class) {
-                    if (instance == null) {
-                        instance = new WaitForTasksCompletion();
-                        Logger.warn("Start WaitForTasksCompletion");
-                        instance.start();
-                    }
-                    instance.queue.put(task, invocation);
-                }
+                return (Promise<V>) task;
             }
+            if (task instanceof PromiseTask) {
+                return ((PromiseTask<V>) task).promise();
+            }
+            Watched<V> watch = new Watched<V>(task);
+            if (!watch.check()) {
+                watched.add(watch);
+                scheduleCheck();
+            }
+            return watch.promise;
         }
 
-        @Override
-        public void run() {
-            while (true) {
-                try {
-                    if (!queue.isEmpty()) {
-                        for (Future<?> task : new HashSet<Future<?>>(queue.keySet())) {
-                            if (task.isDone()) {
-                                executor.submit(queue.get(task));
-                                queue.remove(task);
+        static void scheduleCheck() {
+            if (checkScheduled.compareAndSet(false, true)) {
+                watcher().schedule(new Runnable() {
+
+                    public void run() {
+                        checkScheduled.set(false);
+                        for (Iterator<Watched<?>> it = watched.iterator(); it.hasNext(); ) {
+                            if (it.next().check()) {
+                                it.remove();
                             }
                         }
+                        if (!watched.isEmpty()) {
+                            scheduleCheck();
+                        }
                     }
-                    Thread.sleep(50);
-                } catch (InterruptedException ex) {
-                    Logger.warn(ex, "While waiting for task completions");
+                }, CHECK_DELAY, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        /**
+         * A future that can't tell when it completes, with the promise to redeem then
+         */
+        static class Watched<V> {
+
+            final Future<V> task;
+            final Promise<V> promise = new Promise<V>();
+
+            Watched(Future<V> task) {
+                this.task = task;
+            }
+
+            /**
+             * @return true if the task is done, and the promise redeemed
+             */
+            boolean check() {
+                if (!task.isDone()) {
+                    return false;
+                }
+                try {
+                    promise.invoke(task.get());
+                } catch (ExecutionException e) {
+                    promise.invokeWithException(e.getCause());
+                } catch (Throwable e) {
+                    promise.invokeWithException(e);
                 }
+                return true;
+            }
+        }
+
+        static synchronized ScheduledThreadPoolExecutor watcher() {
+            if (watcher == null) {
+                watcher = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+
+                    public Thread newThread(Runnable r) {
+                        Thread thread = new Thread(r, "WaitForTasksCompletion");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
             }
+            return watcher;
         }
     }
 }
@@ -0,0 +1,30 @@
+package play.cache;
+
+import play.libs.F.Promise;
+
+import java.util.Map;
+
+/**
+ * A cache implementation with non-blocking calls: the promises are redeemed when the cache answers, so that
+ * a controller can <code>await()</code> them without holding a thread.
+ * expiration is specified in seconds
+ *
+ * @see play.cache.Cache#getAsync(String)
+ */
+public interface AsyncCacheImpl {
+
+    /**
+     * @return The element value, or null if it is missing or the cache didn't answer in time
+     */
+    public Promise<Object> getAsync(String key);
+
+    /**
+     * @return The values of the elements found
+     */
+    public Promise<Map<String, Object>> getMultiAsync(String[] keys);
+
+    /**
+     * @return If the element has been cached
+     */
+    public Promise<Boolean> setAsync(String key, Object value, int expiration);
+}
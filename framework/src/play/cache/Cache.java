@@ -3,11 +3,19 @@ package play.cache;
 import play.Logger;
 import play.Play;
 import play.exceptions.CacheException;
+import play.exceptions.UnexpectedException;
+import play.libs.F.Promise;
 import play.libs.Time;
 
+import java.io.IOException;
 import java.io.NotSerializableException;
 import java.io.Serializable;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 /**
  * The Cache. Mainly an interface to memcached or EhCache.
@@ -26,6 +34,17 @@ public abstract class Cache {
      */
     public static CacheImpl forcedCacheImpl;
 
+    /**
+     * How long getOrCompute() holds the lease of a key on all the nodes, in seconds, or 0 to not take leases
+     */
+    static int leaseTimeout;
+
+    /**
+     * How long getOrCompute() waits for a value computed by another thread or node before computing it itself, in
+     * milliseconds: the waiting threads are held meanwhile
+     */
+    static long waitTimeout = 5000;
+
     /**
      * Add an element only if it doesn't exist.
      *
@@ -198,6 +217,263 @@ public abstract class Cache {
         return cacheImpl.get(key);
     }
 
+    /**
+     * Retrieve an object without blocking. Use it with <code>await()</code> in a controller:
+     * <pre>
+     * Product product = (Product) await(Cache.getAsync("product_" + id));
+     * </pre>
+     *
+     * @param key The element key
+     * @return The promise of the element value or null
+     */
+    public static Promise<Object> getAsync(String key) {
+        if (cacheImpl instanceof AsyncCacheImpl) {
+            return ((AsyncCacheImpl) cacheImpl).getAsync(key);
+        }
+        return redeemed(cacheImpl.get(key));
+    }
+
+    /**
+     * Bulk retrieve without blocking.
+     *
+     * @param keys List of keys
+     * @return The promise of a map of the keys found and their values
+     */
+    public static Promise<Map<String, Object>> getMultiAsync(String... keys) {
+        if (cacheImpl instanceof AsyncCacheImpl) {
+            return ((AsyncCacheImpl) cacheImpl).getMultiAsync(keys);
+        }
+        return redeemed(cacheImpl.get(keys));
+    }
+
+    /**
+     * Set an element without blocking.
+     *
+     * @param key        Element key
+     * @param value      Element value
+     * @param expiration Ex: 10s, 3mn, 8h
+     * @return The promise of whether the element has been cached
+     */
+    public static Promise<Boolean> setAsync(String key, Object value, String expiration) {
+        checkSerializable(value);
+        if (cacheImpl instanceof AsyncCacheImpl) {
+            return ((AsyncCacheImpl) cacheImpl).setAsync(key, value, Time.parseDuration(expiration));
+        }
+        return redeemed(cacheImpl.safeSet(key, value, Time.parseDuration(expiration)));
+    }
+
+    /**
+     * Set an element without blocking and store it indefinitely.
+     *
+     * @param key   Element key
+     * @param value Element value
+     * @return The promise of whether the element has been cached
+     */
+    public static Promise<Boolean> setAsync(String key, Object value) {
+        return setAsync(key, value, null);
+    }
+
+    /**
+     * @return A promise already redeemed with the value
+     */
+    static <T> Promise<T> redeemed(T value) {
+        Promise<T> promise = new Promise<T>();
+        promise.invoke(value);
+        return promise;
+    }
+
+    /**
+     * Retrieve an object, or compute it and cache it if it is missing. Concurrent calls for the same key wait for
+     * a single computation instead of computing the value each.
+     *
+     * @param key        Element key
+     * @param expiration Ex: 10s, 3mn, 8h
+     * @param compute    Computes the value: if it returns null, nothing is cached
+     * @return The element value
+     */
+    public static <T> T getOrCompute(String key, String expiration, Callable<T> compute) {
+        return getOrCompute(key, expiration, null, compute);
+    }
+
+    /**
+     * Retrieve an object, or compute it and cache it if it is missing or expired.
+     * <p/>
+     * Only one thread of this node computes the value of a key at a time; with memcached.lease, only one node.
+     * Once the value is expired, it is still served for <code>stale</code> to the other callers while it is
+     * computed again. Such values are kept in a wrapper: read them with getOrCompute() only.
+     * If the computation fails, returns null or takes longer than <code>cache.wait.timeout</code>, the waiting
+     * threads compute the value themselves.
+     *
+     * @param key        Element key
+     * @param expiration Ex: 10s, 3mn, 8h
+     * @param stale      How long the expired value may be served meanwhile, or null
+     * @param compute    Computes the value: if it returns null, nothing is cached
+     * @return The element value
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T getOrCompute(String key, String expiration, String stale, Callable<T> compute) {
+        Object cached = cacheImpl.get(key);
+        Object value = freshValue(cached);
+        if (value != null) {
+            return (T) value;
+        }
+        Object staleValue = cached instanceof StaleValue ? ((StaleValue) cached).value : null;
+
+        Flight flight = new Flight();
+        Flight running = flights.putIfAbsent(key, flight);
+        if (running != null) {
+            if (staleValue != null) {
+                return (T) staleValue;
+            }
+            value = running.await(waitTimeout);
+            if (value != null) {
+                return (T) value;
+            }
+            return call(compute);
+        }
+        try {
+            // The previous computation may have ended just before
+            value = freshValue(cacheImpl.get(key));
+            if (value == null) {
+                value = computeOnce(key, expiration, stale, staleValue, compute);
+            }
+            return (T) value;
+        } finally {
+            flights.remove(key, flight);
+            flight.done(value);
+        }
+    }
+
+    /**
+     * @return The cached value unless it is missing or expired
+     */
+    static Object freshValue(Object cached) {
+        if (cached instanceof StaleValue) {
+            StaleValue value = (StaleValue) cached;
+            return value.isFresh() ? value.value : null;
+        }
+        return cached;
+    }
+
+    /**
+     * The computations in progress on this node, by key
+     */
+    static final ConcurrentMap<String, Flight> flights = new ConcurrentHashMap<String, Flight>();
+
+    static class Flight {
+
+        final CountDownLatch latch = new CountDownLatch(1);
+        volatile Object value;
+
+        /**
+         * @return The computed value, or null if it isn't computed within the timeout
+         */
+        Object await(long timeout) {
+            try {
+                if (!latch.await(timeout, TimeUnit.MILLISECONDS)) {
+                    return null;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+            return value;
+        }
+
+        void done(Object value) {
+            this.value = value;
+            latch.countDown();
+        }
+    }
+
+    /**
+     * A value with its own expiration, kept in the cache a bit longer to be served while it is computed again
+     */
+    static class StaleValue implements Serializable {
+
+        final Object value;
+        final long freshUntil;
+
+        StaleValue(Object value, long freshUntil) {
+            this.value = value;
+            this.freshUntil = freshUntil;
+        }
+
+        boolean isFresh() {
+            return System.currentTimeMillis() < freshUntil;
+        }
+    }
+
+    /**
+     * Take the lease of the key on all the nodes if enabled, then compute and cache the value
+     */
+    static Object computeOnce(String key, String expiration, String stale, Object staleValue, Callable<?> compute) {
+        String leaseKey = null;
+        if (leaseTimeout > 0) {
+            leaseKey = key + "#lease";
+            if (!cacheImpl.safeAdd(leaseKey, Boolean.TRUE, leaseTimeout)) {
+                // Another node computes it
+                if (staleValue != null) {
+                    return staleValue;
+                }
+                // The lease may be held much longer than a request should wait
+                Object value = waitFor(key, Math.min(leaseTimeout * 1000L, waitTimeout));
+                if (value != null) {
+                    return value;
+                }
+                leaseKey = null;
+            }
+        }
+        try {
+            Object value = call(compute);
+            if (value != null) {
+                checkSerializable(value);
+                int duration = Time.parseDuration(expiration);
+                if (stale == null) {
+                    cacheImpl.set(key, value, duration);
+                } else {
+                    cacheImpl.set(key, new StaleValue(value, System.currentTimeMillis() + duration * 1000L), duration + Time.parseDuration(stale));
+                }
+            }
+            return value;
+        } finally {
+            if (leaseKey != null) {
+                cacheImpl.delete(leaseKey);
+            }
+        }
+    }
+
+    /**
+     * @param timeout In milliseconds
+     * @return The value computed by another node, or null if it isn't there within the timeout
+     */
+    static Object waitFor(String key, long timeout) {
+        long deadline = System.currentTimeMillis() + timeout;
+        while (System.currentTimeMillis() < deadline) {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+            Object cached = cacheImpl.get(key);
+            if (cached != null) {
+                return cached instanceof StaleValue ? ((StaleValue) cached).value : cached;
+            }
+        }
+        return null;
+    }
+
+    static <T> T call(Callable<T> compute) {
+        try {
+            return compute.call();
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new UnexpectedException(e);
+        }
+    }
+
     /**
      * Delete an element from the cache.
      *
@@ -242,6 +518,11 @@ public abstract class Cache {
      * Initialize the cache system.
      */
     public static void init() {
+        waitTimeout = Time.parseDuration(Play.configuration.getProperty("cache.wait.timeout", "5s")) * 1000L;
+        leaseTimeout = 0;
+        if (Play.configuration.getProperty("memcached.lease", "disabled").equals("enabled")) {
+            leaseTimeout = Time.parseDuration(Play.configuration.getProperty("memcached.lease.timeout", "30s"));
+        }
         if (forcedCacheImpl != null) {
             cacheImpl = forcedCacheImpl;
             return;
@@ -250,6 +531,9 @@ public abstract class Cache {
             try {
                 cacheImpl = MemcachedImpl.getInstance(true);
                 Logger.info("Connected to memcached");
+                if (Play.configuration.getProperty("memcached.near", "disabled").equals("enabled")) {
+                    cacheImpl = nearCache(cacheImpl);
+                }
             } catch (Exception e) {
                 Logger.error(e, "Error while connecting to memcached");
                 Logger.warn("Fallback to local cache");
@@ -260,6 +544,18 @@ public abstract class Cache {
         }
     }
 
+    /**
+     * The near cache configured by memcached.near.*, in front of the distributed cache
+     */
+    static NearCacheImpl nearCache(CacheImpl remote) throws IOException {
+        int maxSize = Integer.parseInt(Play.configuration.getProperty("memcached.near.maxSize", "10000"));
+        int ttl = Time.parseDuration(Play.configuration.getProperty("memcached.near.expiration", "5s"));
+        String address = Play.configuration.getProperty("memcached.near.invalidation");
+        NearCacheImpl.Invalidation invalidation = address == null ? null : new MulticastInvalidation(address);
+        Logger.info("Near cache of %s values for %ss%s", maxSize, ttl, address == null ? "" : ", invalidated with " + address);
+        return new NearCacheImpl(remote, maxSize, ttl, invalidation);
+    }
+
     /**
      * Stop the cache system.
      */
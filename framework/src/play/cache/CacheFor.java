@@ -11,6 +11,9 @@ import java.lang.annotation.Target;
  * <p>If a time is not specified, the results will be cached for 1 hour by default.
  * <p/>
  * <p>Example: <code>@CacheFor("1h")</code>
+ * <p/>
+ * <p>Concurrent requests wait for the one rendering the result. With <code>stale</code>, the expired result is
+ * still served for that time while one request renders the new one: <code>@CacheFor(value = "1h", stale = "10mn")</code>
  */
 @Retention(RetentionPolicy.RUNTIME)
 @Target(ElementType.METHOD)
@@ -18,4 +21,6 @@ public @interface CacheFor {
     String value() default "1h";
 
     String id() default "";
+
+    String stale() default "";
 }
@@ -0,0 +1,19 @@
+package play.cache;
+
+import java.io.IOException;
+
+/**
+ * Turns the values stored in a distributed cache (memcached) into bytes and back. EhCache keeps the values in
+ * memory and doesn't use it.
+ * <p/>
+ * Set the implementation with <code>memcached.serializer</code>: <code>compact</code>, <code>java</code> or
+ * the name of a class implementing this interface, with a public constructor without arguments.
+ *
+ * @see CompactSerializer
+ */
+public interface CacheSerializer {
+
+    public byte[] serialize(Object value) throws IOException;
+
+    public Object deserialize(byte[] data) throws IOException, ClassNotFoundException;
+}
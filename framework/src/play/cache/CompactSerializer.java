@@ -0,0 +1,260 @@
+package play.cache;
+
+import play.mvc.results.RenderJson;
+import play.mvc.results.RenderTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A compact binary format for the cache values: the registered types are written by their codec after a one
+ * byte id, the others with Java serialization.
+ * <p/>
+ * The cached results of @CacheFor actions, rendered templates and JSON, are written as their name and content
+ * only. The application registers its own types with an id of 32 or more, e.g. from a plugin onLoad(): the ids
+ * are stored with the values, so they must not change while the values are cached. Only the exact registered
+ * class is written by its codec, not its subclasses.
+ * <p/>
+ * Values stored with Java serialization, e.g. before the switch to this format, are still read.
+ */
+public class CompactSerializer implements CacheSerializer {
+
+    /**
+     * Writes and reads the values of one type
+     */
+    public interface Codec<T> {
+
+        void write(T value, DataOutputStream out) throws IOException;
+
+        T read(DataInputStream in) throws IOException, ClassNotFoundException;
+    }
+
+    static final int MAGIC = 0x50;
+    /**
+     * The first byte of a Java serialization stream
+     */
+    static final int JAVA_MAGIC = 0xAC;
+
+    static final int NULL = 0;
+    static final int JAVA = 1;
+    public static final int FIRST_APPLICATION_ID = 32;
+
+    static class Registration {
+
+        final int id;
+        final Class<?> type;
+        final Codec<Object> codec;
+
+        @SuppressWarnings("unchecked")
+        Registration(int id, Class<?> type, Codec<?> codec) {
+            this.id = id;
+            this.type = type;
+            this.codec = (Codec<Object>) codec;
+        }
+    }
+
+    static final Map<Class<?>, Registration> byType = new ConcurrentHashMap<Class<?>, Registration>();
+    static final Registration[] byId = new Registration[256];
+
+    /**
+     * Write the values of a type with a codec
+     *
+     * @param id    The id stored with the values, from 32 to 255
+     * @param type  The class of the values
+     * @param codec The codec
+     */
+    public static <T> void register(int id, Class<T> type, Codec<T> codec) {
+        if (id < FIRST_APPLICATION_ID || id > 255) {
+            throw new IllegalArgumentException("The id of " + type.getName() + " must be from " + FIRST_APPLICATION_ID + " to 255: " + id);
+        }
+        add(id, type, codec);
+    }
+
+    static synchronized void add(int id, Class<?> type, Codec<?> codec) {
+        Registration registered = byId[id];
+        // The class is registered again when the application is reloaded
+        if (registered != null && !registered.type.getName().equals(type.getName())) {
+            throw new IllegalArgumentException("The id " + id + " of " + type.getName() + " is already used by " + registered.type.getName());
+        }
+        if (registered != null) {
+            byType.remove(registered.type);
+        }
+        Registration registration = new Registration(id, type, codec);
+        byId[id] = registration;
+        byType.put(type, registration);
+    }
+
+    public byte[] serialize(Object value) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(MAGIC);
+        writeValue(value, out);
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    public Object deserialize(byte[] data) throws IOException, ClassNotFoundException {
+        if (data.length > 0 && (data[0] & 0xFF) == JAVA_MAGIC) {
+            return JavaSerializer.read(new ByteArrayInputStream(data));
+        }
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+        if (in.readUnsignedByte() != MAGIC) {
+            throw new IOException("Not a cache value");
+        }
+        return readValue(in);
+    }
+
+    /**
+     * Write a value with its type id, e.g. the fields of a registered type
+     */
+    public static void writeValue(Object value, DataOutputStream out) throws IOException {
+        if (value == null) {
+            out.writeByte(NULL);
+            return;
+        }
+        Registration registration = byType.get(value.getClass());
+        if (registration == null) {
+            out.writeByte(JAVA);
+            byte[] serialized = new JavaSerializer().serialize(value);
+            out.writeInt(serialized.length);
+            out.write(serialized);
+            return;
+        }
+        out.writeByte(registration.id);
+        registration.codec.write(value, out);
+    }
+
+    public static Object readValue(DataInputStream in) throws IOException, ClassNotFoundException {
+        int id = in.readUnsignedByte();
+        if (id == NULL) {
+            return null;
+        }
+        if (id == JAVA) {
+            byte[] serialized = new byte[in.readInt()];
+            in.readFully(serialized);
+            return new JavaSerializer().deserialize(serialized);
+        }
+        Registration registration = byId[id];
+        if (registration == null) {
+            throw new IOException("No codec registered with the id " + id);
+        }
+        return registration.codec.read(in);
+    }
+
+    /**
+     * Write a String of any length, or null, as UTF-8
+     */
+    public static void writeString(String value, DataOutputStream out) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes("utf-8");
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    public static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, "utf-8");
+    }
+
+    static {
+        add(2, String.class, new Codec<String>() {
+
+            public void write(String value, DataOutputStream out) throws IOException {
+                writeString(value, out);
+            }
+
+            public String read(DataInputStream in) throws IOException {
+                return readString(in);
+            }
+        });
+        add(3, Long.class, new Codec<Long>() {
+
+            public void write(Long value, DataOutputStream out) throws IOException {
+                out.writeLong(value);
+            }
+
+            public Long read(DataInputStream in) throws IOException {
+                return in.readLong();
+            }
+        });
+        add(4, Integer.class, new Codec<Integer>() {
+
+            public void write(Integer value, DataOutputStream out) throws IOException {
+                out.writeInt(value);
+            }
+
+            public Integer read(DataInputStream in) throws IOException {
+                return in.readInt();
+            }
+        });
+        add(5, Boolean.class, new Codec<Boolean>() {
+
+            public void write(Boolean value, DataOutputStream out) throws IOException {
+                out.writeBoolean(value);
+            }
+
+            public Boolean read(DataInputStream in) throws IOException {
+                return in.readBoolean();
+            }
+        });
+        add(6, byte[].class, new Codec<byte[]>() {
+
+            public void write(byte[] value, DataOutputStream out) throws IOException {
+                out.writeInt(value.length);
+                out.write(value);
+            }
+
+            public byte[] read(DataInputStream in) throws IOException {
+                byte[] value = new byte[in.readInt()];
+                in.readFully(value);
+                return value;
+            }
+        });
+        add(7, RenderTemplate.class, new Codec<RenderTemplate>() {
+
+            public void write(RenderTemplate value, DataOutputStream out) throws IOException {
+                writeString(value.getName(), out);
+                writeString(value.getContent(), out);
+            }
+
+            public RenderTemplate read(DataInputStream in) throws IOException {
+                return new RenderTemplate(readString(in), readString(in));
+            }
+        });
+        add(8, RenderJson.class, new Codec<RenderJson>() {
+
+            public void write(RenderJson value, DataOutputStream out) throws IOException {
+                writeString(value.getJson(), out);
+            }
+
+            public RenderJson read(DataInputStream in) throws IOException {
+                return new RenderJson(readString(in));
+            }
+        });
+        add(9, Cache.StaleValue.class, new Codec<Cache.StaleValue>() {
+
+            public void write(Cache.StaleValue value, DataOutputStream out) throws IOException {
+                out.writeLong(value.freshUntil);
+                writeValue(value.value, out);
+            }
+
+            public Cache.StaleValue read(DataInputStream in) throws IOException, ClassNotFoundException {
+                long freshUntil = in.readLong();
+                return new Cache.StaleValue(readValue(in), freshUntil);
+            }
+        });
+    }
+}
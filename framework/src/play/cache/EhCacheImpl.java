@@ -3,6 +3,7 @@ package play.cache;
 import net.sf.ehcache.CacheManager;
 import net.sf.ehcache.Element;
 import play.Logger;
+import play.libs.F.Promise;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -18,7 +19,7 @@ import java.util.Map;
  *      <p/>
  *      expiration is specified in seconds
  */
-public class EhCacheImpl implements CacheImpl {
+public class EhCacheImpl implements CacheImpl, AsyncCacheImpl {
 
     private static EhCacheImpl uniqueInstance;
 
@@ -28,10 +29,21 @@ public class EhCacheImpl implements CacheImpl {
 
     private static final String cacheName = "play";
 
+    /**
+     * The read-modify-write operations of a key (incr, decr, add) are atomic: they lock one of these, chosen from
+     * the key, instead of the whole cache, so that the counters of different keys change concurrently.
+     */
+    static final int LOCKS = 64;
+
+    final Object[] locks = new Object[LOCKS];
+
     private EhCacheImpl() {
         this.cacheManager = CacheManager.create();
         this.cacheManager.addCache(cacheName);
         this.cache = cacheManager.getCache(cacheName);
+        for (int i = 0; i < LOCKS; i++) {
+            locks[i] = new Object();
+        }
     }
 
     public static EhCacheImpl getInstance() {
@@ -44,28 +56,35 @@ public class EhCacheImpl implements CacheImpl {
     }
 
     public void add(String key, Object value, int expiration) {
-        if (cache.get(key) != null) {
-            return;
-        }
-        Element element = new Element(key, value);
-        element.setTimeToLive(expiration);
-        cache.put(element);
+        safeAdd(key, value, expiration);
     }
 
     public void clear() {
         cache.removeAll();
     }
 
-    public synchronized long decr(String key, int by) {
-        Element e = cache.get(key);
-        if (e == null) {
-            return -1;
+    Object lock(String key) {
+        int h = key.hashCode();
+        h ^= (h >>> 16);
+        return locks[h & (LOCKS - 1)];
+    }
+
+    long change(String key, long by) {
+        synchronized (lock(key)) {
+            Element e = cache.get(key);
+            if (e == null) {
+                return -1;
+            }
+            long newValue = ((Number) e.getValue()).longValue() + by;
+            Element newE = new Element(key, newValue);
+            newE.setTimeToLive(e.getTimeToLive());
+            cache.put(newE);
+            return newValue;
         }
-        long newValue = ((Number) e.getValue()).longValue() - by;
-        Element newE = new Element(key, newValue);
-        newE.setTimeToLive(e.getTimeToLive());
-        cache.put(newE);
-        return newValue;
+    }
+
+    public long decr(String key, int by) {
+        return change(key, -(long) by);
     }
 
     public void delete(String key) {
@@ -85,17 +104,30 @@ public class EhCacheImpl implements CacheImpl {
         return result;
     }
 
-    public synchronized long incr(String key, int by) {
-        Element e = cache.get(key);
-        if (e == null) {
-            return -1;
+    /**
+     * The cache is in memory: the promise is already redeemed
+     */
+    public Promise<Object> getAsync(String key) {
+        return Cache.redeemed(get(key));
+    }
+
+    public Promise<Map<String, Object>> getMultiAsync(String[] keys) {
+        Map<String, Object> result = new HashMap<String, Object>(keys.length);
+        for (String key : keys) {
+            Object value = get(key);
+            if (value != null) {
+                result.put(key, value);
+            }
         }
-        long newValue = ((Number) e.getValue()).longValue() + by;
-        Element newE = new Element(key, newValue);
-        newE.setTimeToLive(e.getTimeToLive());
-        cache.put(newE);
-        return newValue;
+        return Cache.redeemed(result);
+    }
+
+    public Promise<Boolean> setAsync(String key, Object value, int expiration) {
+        return Cache.redeemed(safeSet(key, value, expiration));
+    }
 
+    public long incr(String key, int by) {
+        return change(key, by);
     }
 
     public void replace(String key, Object value, int expiration) {
@@ -107,12 +139,18 @@ public class EhCacheImpl implements CacheImpl {
         cache.put(element);
     }
 
+    /**
+     * @return false if the element already exists, as with memcached
+     */
     public boolean safeAdd(String key, Object value, int expiration) {
-        try {
-            add(key, value, expiration);
+        synchronized (lock(key)) {
+            if (cache.get(key) != null) {
+                return false;
+            }
+            Element element = new Element(key, value);
+            element.setTimeToLive(expiration);
+            cache.put(element);
             return true;
-        } catch (Exception e) {
-            return false;
         }
     }
 
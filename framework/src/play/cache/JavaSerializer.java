@@ -0,0 +1,40 @@
+package play.cache;
+
+import play.Play;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+
+/**
+ * Java serialization, resolving the classes with the application classloader
+ */
+public class JavaSerializer implements CacheSerializer {
+
+    public byte[] serialize(Object value) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bos);
+        out.writeObject(value);
+        out.close();
+        return bos.toByteArray();
+    }
+
+    public Object deserialize(byte[] data) throws IOException, ClassNotFoundException {
+        return read(new ByteArrayInputStream(data));
+    }
+
+    static Object read(InputStream in) throws IOException, ClassNotFoundException {
+        return new ObjectInputStream(in) {
+
+            @Override
+            protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+                ClassLoader classloader = Play.classloader != null ? Play.classloader : JavaSerializer.class.getClassLoader();
+                return Class.forName(desc.getName(), false, classloader);
+            }
+        }.readObject();
+    }
+}
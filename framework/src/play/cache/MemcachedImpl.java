@@ -1,19 +1,35 @@
 package play.cache;
 
 import net.spy.memcached.AddrUtil;
+import net.spy.memcached.CachedData;
 import net.spy.memcached.ConnectionFactory;
 import net.spy.memcached.ConnectionFactoryBuilder;
 import net.spy.memcached.MemcachedClient;
+import net.spy.memcached.OperationFactory;
 import net.spy.memcached.auth.AuthDescriptor;
 import net.spy.memcached.auth.PlainCallbackHandler;
+import net.spy.memcached.ops.GetOperation;
+import net.spy.memcached.ops.Operation;
+import net.spy.memcached.ops.OperationCallback;
+import net.spy.memcached.ops.OperationStatus;
+import net.spy.memcached.ops.StoreType;
 import net.spy.memcached.transcoders.SerializingTranscoder;
+import org.jboss.netty.util.Timeout;
 import play.Logger;
 import play.Play;
 import play.exceptions.ConfigurationException;
+import play.libs.F;
+import play.libs.F.Promise;
+import play.utils.WheelTimer;
 
 import java.io.*;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
 import java.net.InetSocketAddress;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Future;
@@ -24,7 +40,7 @@ import java.util.concurrent.TimeUnit;
  * <p/>
  * expiration is specified in seconds
  */
-public class MemcachedImpl implements CacheImpl {
+public class MemcachedImpl implements CacheImpl, AsyncCacheImpl {
 
     private static MemcachedImpl uniqueInstance;
 
@@ -50,43 +66,16 @@ public class MemcachedImpl implements CacheImpl {
     }
 
     private MemcachedImpl() throws IOException {
-        tc = new SerializingTranscoder() {
-
-            @Override
-            protected Object deserialize(byte[] data) {
-                try {
-                    return new ObjectInputStream(new ByteArrayInputStream(data)) {
-
-                        @Override
-                        protected Class<?> resolveClass(ObjectStreamClass desc)
-                                throws IOException, ClassNotFoundException {
-                            return Class.forName(desc.getName(), false, Play.classloader);
-                        }
-                    }.readObject();
-                } catch (Exception e) {
-                    Logger.error(e, "Could not deserialize");
-                }
-                return null;
-            }
-
-            @Override
-            protected byte[] serialize(Object object) {
-                try {
-                    ByteArrayOutputStream bos = new ByteArrayOutputStream();
-                    new ObjectOutputStream(bos).writeObject(object);
-                    return bos.toByteArray();
-                } catch (IOException e) {
-                    Logger.error(e, "Could not serialize");
-                }
-                return null;
-            }
-        };
         initClient();
     }
 
     public void initClient() throws IOException {
         System.setProperty("net.spy.log.LoggerImpl", "net.spy.memcached.compat.log.Log4JLogger");
 
+        tc = new Transcoder(serializer(Play.configuration.getProperty("memcached.serializer", "compact")));
+        String compression = Play.configuration.getProperty("memcached.compression.threshold", "16384");
+        tc.setCompressionThreshold(compression.equals("disabled") ? Integer.MAX_VALUE : Integer.parseInt(compression));
+
         List<InetSocketAddress> addrs;
         if (Play.configuration.containsKey("memcached.host")) {
             addrs = AddrUtil.getAddresses(Play.configuration.getProperty("memcached.host"));
@@ -123,6 +112,53 @@ public class MemcachedImpl implements CacheImpl {
         }
     }
 
+    static CacheSerializer serializer(String name) {
+        if (name.equals("compact")) {
+            return new CompactSerializer();
+        }
+        if (name.equals("java")) {
+            return new JavaSerializer();
+        }
+        try {
+            return (CacheSerializer) Class.forName(name, true, Play.classloader != null ? Play.classloader : MemcachedImpl.class.getClassLoader()).newInstance();
+        } catch (Exception e) {
+            throw new ConfigurationException("Bad configuration for memcached.serializer: " + name + " (" + e + ")");
+        }
+    }
+
+    /**
+     * Writes the Strings, numbers and dates natively, as the other memcached clients do, and the other values
+     * with the serializer. The values larger than the compression threshold are compressed.
+     */
+    static class Transcoder extends SerializingTranscoder {
+
+        final CacheSerializer serializer;
+
+        Transcoder(CacheSerializer serializer) {
+            this.serializer = serializer;
+        }
+
+        @Override
+        protected Object deserialize(byte[] data) {
+            try {
+                return serializer.deserialize(data);
+            } catch (Exception e) {
+                Logger.error(e, "Could not deserialize");
+            }
+            return null;
+        }
+
+        @Override
+        protected byte[] serialize(Object object) {
+            try {
+                return serializer.serialize(object);
+            } catch (IOException e) {
+                Logger.error(e, "Could not serialize");
+            }
+            return null;
+        }
+    }
+
     public void add(String key, Object value, int expiration) {
         client.add(key, expiration, value, tc);
     }
@@ -214,4 +250,140 @@ public class MemcachedImpl implements CacheImpl {
     public void stop() {
         client.shutdown();
     }
+
+    // ~~~ Non-blocking calls
+
+    /**
+     * The client only exposes blocking futures: the operations are submitted with their own callbacks, through the
+     * package-private factory of the client. Null if this version of the client doesn't have it.
+     */
+    static final Field opFactField;
+    static final Method addOpMethod;
+
+    static {
+        Field field = null;
+        Method method = null;
+        try {
+            field = MemcachedClient.class.getDeclaredField("opFact");
+            field.setAccessible(true);
+            method = MemcachedClient.class.getDeclaredMethod("addOp", String.class, Operation.class);
+            method.setAccessible(true);
+        } catch (Exception e) {
+            Logger.warn("The memcached client doesn't support callbacks, Cache.getAsync() and setAsync() will block");
+            field = null;
+            method = null;
+        }
+        opFactField = field;
+        addOpMethod = method;
+    }
+
+    public Promise<Object> getAsync(final String key) {
+        if (addOpMethod == null) {
+            return Cache.redeemed(get(key));
+        }
+        final Promise<Object> promise = new Promise<Object>();
+        Operation op = operations().get(key, new GetOperation.Callback() {
+
+            Object value;
+
+            public void receivedStatus(OperationStatus status) {
+            }
+
+            public void gotData(String k, int flags, byte[] data) {
+                value = tc.decode(new CachedData(flags, data, tc.getMaxSize()));
+            }
+
+            public void complete() {
+                promise.invoke(value);
+            }
+        });
+        submit(key, op, promise, null);
+        return promise;
+    }
+
+    /**
+     * One get per key: the client sends the gets queued for a server as one request
+     */
+    public Promise<Map<String, Object>> getMultiAsync(final String[] keys) {
+        if (addOpMethod == null) {
+            return Cache.redeemed(get(keys));
+        }
+        final Promise<Map<String, Object>> promise = new Promise<Map<String, Object>>();
+        List<Promise<Object>> gets = new ArrayList<Promise<Object>>(keys.length);
+        for (String key : keys) {
+            gets.add(getAsync(key));
+        }
+        Promise.waitAll(gets).onRedeem(new F.Action<Promise<List<Object>>>() {
+
+            public void invoke(Promise<List<Object>> completed) {
+                Map<String, Object> result = new HashMap<String, Object>(keys.length);
+                List<Object> values = completed.getOrNull();
+                for (int i = 0; i < keys.length; i++) {
+                    if (values.get(i) != null) {
+                        result.put(keys[i], values.get(i));
+                    }
+                }
+                promise.invoke(result);
+            }
+        });
+        return promise;
+    }
+
+    public Promise<Boolean> setAsync(String key, Object value, int expiration) {
+        if (addOpMethod == null) {
+            return Cache.redeemed(safeSet(key, value, expiration));
+        }
+        final Promise<Boolean> promise = new Promise<Boolean>();
+        CachedData data = tc.encode(value);
+        Operation op = operations().store(StoreType.set, key, data.getFlags(), expiration, data.getData(), new OperationCallback() {
+
+            boolean success;
+
+            public void receivedStatus(OperationStatus status) {
+                success = status.isSuccess();
+            }
+
+            public void complete() {
+                promise.invoke(success);
+            }
+        });
+        submit(key, op, promise, false);
+        return promise;
+    }
+
+    OperationFactory operations() {
+        try {
+            return (OperationFactory) opFactField.get(client);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Queues the operation. As the blocking calls, the promise is redeemed with the default value if the server
+     * doesn't answer within one second.
+     */
+    <T> void submit(String key, final Operation op, final Promise<T> promise, final T defaultValue) {
+        final Timeout timeout = WheelTimer.schedule(new Runnable() {
+
+            public void run() {
+                op.cancel();
+                promise.invoke(defaultValue);
+            }
+        }, 1, TimeUnit.SECONDS);
+        promise.onRedeem(new F.Action<Promise<T>>() {
+
+            public void invoke(Promise<T> completed) {
+                timeout.cancel();
+            }
+        });
+        try {
+            addOpMethod.invoke(client, key, op);
+        } catch (InvocationTargetException e) {
+            Logger.error(e.getTargetException(), "Cannot send the %s operation to memcached", key);
+            promise.invoke(defaultValue);
+        } catch (IllegalAccessException e) {
+            promise.invoke(defaultValue);
+        }
+    }
 }
@@ -0,0 +1,107 @@
+package play.cache;
+
+import play.Logger;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.InetAddress;
+import java.net.MulticastSocket;
+import java.util.UUID;
+
+/**
+ * Sends the changed keys to the near caches of the other nodes with UDP multicast.
+ * <p/>
+ * A message is the id of the sending node, then the key, or nothing when the cache is cleared. A lost message
+ * only means that a node serves the previous value until it expires from its near cache.
+ */
+public class MulticastInvalidation implements NearCacheImpl.Invalidation, Runnable {
+
+    static final String CHARSET = "utf-8";
+
+    final InetAddress group;
+    final int port;
+    final String nodeId = UUID.randomUUID().toString();
+    MulticastSocket socket;
+    NearCacheImpl cache;
+    volatile boolean running;
+
+    /**
+     * @param address The multicast group and port, e.g. 230.0.0.1:4446
+     */
+    public MulticastInvalidation(String address) throws IOException {
+        int colon = address.lastIndexOf(':');
+        if (colon < 0) {
+            throw new IllegalArgumentException("Bad multicast address, expected group:port: " + address);
+        }
+        this.group = InetAddress.getByName(address.substring(0, colon));
+        this.port = Integer.parseInt(address.substring(colon + 1));
+    }
+
+    public void start(NearCacheImpl cache) {
+        this.cache = cache;
+        try {
+            socket = new MulticastSocket(port);
+            socket.joinGroup(group);
+        } catch (IOException e) {
+            Logger.error(e, "Cannot join the near cache invalidation group %s:%s", group.getHostAddress(), port);
+            return;
+        }
+        running = true;
+        Thread thread = new Thread(this, "play-near-cache-invalidation");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public void publish(String key) {
+        if (!running) {
+            return;
+        }
+        try {
+            byte[] message = (nodeId + "\n" + (key == null ? "" : key)).getBytes(CHARSET);
+            socket.send(new DatagramPacket(message, message.length, group, port));
+        } catch (IOException e) {
+            Logger.warn("Cannot publish the near cache invalidation of %s (%s)", key, e.getMessage());
+        }
+    }
+
+    public void run() {
+        byte[] buffer = new byte[1024];
+        while (running) {
+            try {
+                DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+                socket.receive(packet);
+                String message = new String(packet.getData(), packet.getOffset(), packet.getLength(), CHARSET);
+                received(message);
+            } catch (IOException e) {
+                if (running) {
+                    Logger.warn("Near cache invalidation: %s", e.getMessage());
+                }
+            }
+        }
+    }
+
+    void received(String message) {
+        int separator = message.indexOf('\n');
+        if (separator < 0 || message.substring(0, separator).equals(nodeId)) {
+            return;
+        }
+        String key = message.substring(separator + 1);
+        if (key.length() == 0) {
+            cache.evictAll();
+        } else {
+            cache.evict(key);
+        }
+    }
+
+    public void stop() {
+        running = false;
+        if (socket != null) {
+            try {
+                socket.leaveGroup(group);
+            } catch (IOException e) {
+                // Closed anyway
+            }
+            socket.close();
+        }
+    }
+}
@@ -0,0 +1,463 @@
+package play.cache;
+
+import play.libs.F;
+import play.libs.F.Promise;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A small in-process cache in front of a distributed one (memcached).
+ * <p/>
+ * The values read or set on this node are kept in memory for a short time, so that the hot keys are not fetched
+ * from the network on each request. The near cache is bounded: the least recently used values are evicted first.
+ * Changes made by this node are applied to its near cache; with an Invalidation channel they are also evicted
+ * from the near caches of the other nodes, otherwise these may serve the previous value until it expires.
+ * The other nodes are told once the distributed cache has stored the change: before, they could read the previous
+ * value again and keep it. So with an Invalidation channel, add, set, replace and delete wait for the distributed
+ * cache (set doesn't hold the thread when it is non-blocking).
+ * <p/>
+ * The values are shared by the threads of this node, as with EhCache: don't modify them.
+ */
+public class NearCacheImpl implements CacheImpl, AsyncCacheImpl {
+
+    /**
+     * Propagates the changes of the keys to the other nodes
+     */
+    public interface Invalidation {
+
+        /**
+         * Start receiving the changes made by the other nodes
+         *
+         * @param cache The near cache to evict the changed keys from
+         */
+        void start(NearCacheImpl cache);
+
+        /**
+         * @param key The changed key, or null when the cache is cleared
+         */
+        void publish(String key);
+
+        void stop();
+    }
+
+    static final int SEGMENTS = 16;
+
+    final CacheImpl remote;
+    final long ttl;
+    final Segment[] segments;
+    final Invalidation invalidation;
+
+    final AtomicLong hits = new AtomicLong();
+    final AtomicLong misses = new AtomicLong();
+    final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * @param remote       The distributed cache
+     * @param maxSize      The maximum number of values kept in memory
+     * @param ttl          How long a value is kept in memory, in seconds
+     * @param invalidation The channel to the other nodes, or null
+     */
+    public NearCacheImpl(CacheImpl remote, int maxSize, int ttl, Invalidation invalidation) {
+        this.remote = remote;
+        this.ttl = ttl * 1000L;
+        this.segments = new Segment[SEGMENTS];
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(Math.max(1, maxSize / SEGMENTS));
+        }
+        this.invalidation = invalidation;
+        if (invalidation != null) {
+            invalidation.start(this);
+        }
+    }
+
+    static class Item {
+
+        final Object value;
+        final long expiresAt;
+
+        Item(Object value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * A part of the near cache, locked as a whole. The version changes with each change of its keys, so that a
+     * value read from the distributed cache isn't kept if one of its keys changed meanwhile.
+     */
+    class Segment extends LinkedHashMap<String, Item> {
+
+        final int maxSize;
+        long version;
+
+        Segment(int maxSize) {
+            super(16, 0.75f, true);
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Item> eldest) {
+            if (size() > maxSize) {
+                evictions.incrementAndGet();
+                return true;
+            }
+            return false;
+        }
+    }
+
+    Segment segment(String key) {
+        int h = key.hashCode();
+        h ^= (h >>> 16);
+        return segments[h & (SEGMENTS - 1)];
+    }
+
+    /**
+     * @return The value kept in memory, or null
+     */
+    Item local(String key) {
+        Segment segment = segment(key);
+        synchronized (segment) {
+            Item item = segment.get(key);
+            if (item != null && item.expiresAt < System.currentTimeMillis()) {
+                segment.remove(key);
+                item = null;
+            }
+            return item;
+        }
+    }
+
+    long version(String key) {
+        Segment segment = segment(key);
+        synchronized (segment) {
+            return segment.version;
+        }
+    }
+
+    /**
+     * Keep a value read from the distributed cache, unless its key changed since <code>version</code>
+     */
+    void fill(String key, Object value, long version) {
+        if (value == null) {
+            return;
+        }
+        Segment segment = segment(key);
+        synchronized (segment) {
+            if (segment.version == version) {
+                segment.put(key, new Item(value, System.currentTimeMillis() + ttl));
+            }
+        }
+    }
+
+    /**
+     * Keep a value set by this node, for at most its expiration
+     */
+    void store(String key, Object value, int expiration) {
+        long duration = expiration > 0 ? Math.min(ttl, expiration * 1000L) : ttl;
+        Segment segment = segment(key);
+        synchronized (segment) {
+            segment.version++;
+            segment.put(key, new Item(value, System.currentTimeMillis() + duration));
+        }
+    }
+
+    /**
+     * Evict a key from the near cache of this node only
+     */
+    public void evict(String key) {
+        Segment segment = segment(key);
+        synchronized (segment) {
+            segment.version++;
+            segment.remove(key);
+        }
+    }
+
+    /**
+     * Evict all the keys from the near cache of this node only
+     */
+    public void evictAll() {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.version++;
+                segment.clear();
+            }
+        }
+    }
+
+    void changed(String key) {
+        evict(key);
+        if (invalidation != null) {
+            invalidation.publish(key);
+        }
+    }
+
+    public Object get(String key) {
+        Item item = local(key);
+        if (item != null) {
+            hits.incrementAndGet();
+            return item.value;
+        }
+        misses.incrementAndGet();
+        long version = version(key);
+        Object value = remote.get(key);
+        fill(key, value, version);
+        return value;
+    }
+
+    /**
+     * Only the keys missing from the near cache are fetched, with one request to the distributed cache
+     */
+    public Map<String, Object> get(String[] keys) {
+        Map<String, Object> result = new HashMap<String, Object>(keys.length);
+        List<String> missing = new ArrayList<String>();
+        List<Long> versions = new ArrayList<Long>();
+        for (String key : keys) {
+            Item item = local(key);
+            if (item != null) {
+                hits.incrementAndGet();
+                result.put(key, item.value);
+            } else {
+                misses.incrementAndGet();
+                missing.add(key);
+                versions.add(version(key));
+            }
+        }
+        if (!missing.isEmpty()) {
+            fillAll(result, missing, versions, remote.get(missing.toArray(new String[missing.size()])));
+        }
+        return result;
+    }
+
+    public Promise<Object> getAsync(final String key) {
+        Item item = local(key);
+        if (item != null) {
+            hits.incrementAndGet();
+            return Cache.redeemed(item.value);
+        }
+        misses.incrementAndGet();
+        if (!(remote instanceof AsyncCacheImpl)) {
+            return Cache.redeemed(get(key));
+        }
+        final long version = version(key);
+        Promise<Object> value = ((AsyncCacheImpl) remote).getAsync(key);
+        value.onRedeem(new F.Action<Promise<Object>>() {
+
+            public void invoke(Promise<Object> completed) {
+                fill(key, completed.getOrNull(), version);
+            }
+        });
+        return value;
+    }
+
+    /**
+     * Only the keys missing from the near cache are fetched
+     */
+    public Promise<Map<String, Object>> getMultiAsync(String[] keys) {
+        final Map<String, Object> result = new HashMap<String, Object>(keys.length);
+        final List<String> missing = new ArrayList<String>();
+        final List<Long> versions = new ArrayList<Long>();
+        for (String key : keys) {
+            Item item = local(key);
+            if (item != null) {
+                hits.incrementAndGet();
+                result.put(key, item.value);
+            } else {
+                misses.incrementAndGet();
+                missing.add(key);
+                versions.add(version(key));
+            }
+        }
+        if (missing.isEmpty()) {
+            return Cache.redeemed(result);
+        }
+        String[] missingKeys = missing.toArray(new String[missing.size()]);
+        if (!(remote instanceof AsyncCacheImpl)) {
+            fillAll(result, missing, versions, remote.get(missingKeys));
+            return Cache.redeemed(result);
+        }
+        final Promise<Map<String, Object>> promise = new Promise<Map<String, Object>>();
+        ((AsyncCacheImpl) remote).getMultiAsync(missingKeys).onRedeem(new F.Action<Promise<Map<String, Object>>>() {
+
+            public void invoke(Promise<Map<String, Object>> completed) {
+                Map<String, Object> values = completed.getOrNull();
+                fillAll(result, missing, versions, values == null ? Collections.<String, Object>emptyMap() : values);
+                promise.invoke(result);
+            }
+        });
+        return promise;
+    }
+
+    void fillAll(Map<String, Object> result, List<String> missing, List<Long> versions, Map<String, Object> values) {
+        for (int i = 0; i < missing.size(); i++) {
+            String key = missing.get(i);
+            Object value = values.get(key);
+            fill(key, value, versions.get(i));
+            if (values.containsKey(key)) {
+                result.put(key, value);
+            }
+        }
+    }
+
+    public Promise<Boolean> setAsync(final String key, final Object value, final int expiration) {
+        if (!(remote instanceof AsyncCacheImpl)) {
+            return Cache.redeemed(safeSet(key, value, expiration));
+        }
+        // The value is read by this node at once, as with set(). The other nodes are told once it is stored.
+        store(key, value, expiration);
+        Promise<Boolean> set = ((AsyncCacheImpl) remote).setAsync(key, value, expiration);
+        set.onRedeem(new F.Action<Promise<Boolean>>() {
+
+            public void invoke(Promise<Boolean> completed) {
+                if (!Boolean.TRUE.equals(completed.getOrNull())) {
+                    evict(key);
+                }
+                if (invalidation != null) {
+                    invalidation.publish(key);
+                }
+            }
+        });
+        return set;
+    }
+
+    public void add(String key, Object value, int expiration) {
+        if (invalidation != null) {
+            safeAdd(key, value, expiration);
+            return;
+        }
+        remote.add(key, value, expiration);
+        evict(key);
+    }
+
+    public boolean safeAdd(String key, Object value, int expiration) {
+        boolean added = remote.safeAdd(key, value, expiration);
+        if (added) {
+            store(key, value, expiration);
+            if (invalidation != null) {
+                invalidation.publish(key);
+            }
+        }
+        return added;
+    }
+
+    public void set(String key, Object value, int expiration) {
+        if (invalidation != null) {
+            setAsync(key, value, expiration);
+            return;
+        }
+        remote.set(key, value, expiration);
+        store(key, value, expiration);
+    }
+
+    public boolean safeSet(String key, Object value, int expiration) {
+        boolean set = remote.safeSet(key, value, expiration);
+        if (set) {
+            store(key, value, expiration);
+        } else {
+            evict(key);
+        }
+        if (invalidation != null) {
+            invalidation.publish(key);
+        }
+        return set;
+    }
+
+    public void replace(String key, Object value, int expiration) {
+        if (invalidation != null) {
+            safeReplace(key, value, expiration);
+            return;
+        }
+        remote.replace(key, value, expiration);
+        evict(key);
+    }
+
+    public boolean safeReplace(String key, Object value, int expiration) {
+        boolean replaced = remote.safeReplace(key, value, expiration);
+        changed(key);
+        return replaced;
+    }
+
+    /**
+     * The counters are not kept in the near cache. The distributed cache answers with the new value, so it is
+     * stored when the other nodes are told.
+     */
+    public long incr(String key, int by) {
+        long value = remote.incr(key, by);
+        changed(key);
+        return value;
+    }
+
+    public long decr(String key, int by) {
+        long value = remote.decr(key, by);
+        changed(key);
+        return value;
+    }
+
+    public void clear() {
+        remote.clear();
+        evictAll();
+        if (invalidation != null) {
+            invalidation.publish(null);
+        }
+    }
+
+    public void delete(String key) {
+        if (invalidation != null) {
+            safeDelete(key);
+            return;
+        }
+        remote.delete(key);
+        evict(key);
+    }
+
+    public boolean safeDelete(String key) {
+        boolean deleted = remote.safeDelete(key);
+        changed(key);
+        return deleted;
+    }
+
+    public void stop() {
+        if (invalidation != null) {
+            invalidation.stop();
+        }
+        evictAll();
+        remote.stop();
+    }
+
+    /**
+     * @return The number of values kept in memory
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    @Override
+    public String toString() {
+        long hits = getHits();
+        long total = hits + getMisses();
+        return String.format("Size: %d\nHits: %d (%.1f%%)\nMisses: %d\nEvictions: %d",
+                size(), hits, total == 0 ? 0.0 : hits * 100.0 / total, getMisses(), getEvictions());
+    }
+}
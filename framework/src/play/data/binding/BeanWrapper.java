@@ -1,6 +1,12 @@
 package play.data.binding;
 
+import javassist.ClassPool;
+import javassist.CtClass;
+import javassist.CtNewConstructor;
+import javassist.CtNewMethod;
+import javassist.LoaderClassPath;
 import play.Logger;
+import play.classloading.enhancers.Enhancer;
 import play.classloading.enhancers.PropertiesEnhancer.PlayPropertyAccessor;
 import play.exceptions.UnexpectedException;
 
@@ -45,6 +51,15 @@ public class BeanWrapper {
         } else {
             registerFields(forClass);
         }
+        if (forClass.getClassLoader() != null) {
+            // The setters of the bean share a class loader, dropped with the bean wrapper
+            ClassPool classPool = Enhancer.newClassPool();
+            classPool.insertClassPath(new LoaderClassPath(forClass.getClassLoader()));
+            SetterClassLoader classLoader = new SetterClassLoader(forClass.getClassLoader());
+            for (Property prop : wrappers.values()) {
+                prop.generatedSetter = generateSetter(classPool, classLoader, forClass, prop);
+            }
+        }
     }
 
     public Collection<Property> getWrappers() {
@@ -52,11 +67,10 @@ public class BeanWrapper {
     }
 
     public void set(String name, Object instance, Object value) {
-        for (Property prop : wrappers.values()) {
-            if (name.equals(prop.name)) {
-                prop.setValue(instance, value);
-                return;
-            }
+        Property prop = wrappers.get(name);
+        if (prop != null) {
+            prop.setValue(instance, value);
+            return;
         }
         String message = String.format("Can't find property with name '%s' on class %s", name, instance.getClass().getName());
         Logger.warn(message);
@@ -143,11 +157,20 @@ public class BeanWrapper {
         }
     }
 
+    /**
+     * Sets a property without reflection, generated for the public setters and fields of the public classes
+     */
+    public static interface Setter {
+
+        void set(Object instance, Object value);
+    }
+
     public static class Property {
 
         private Annotation[] annotations;
         private Method setter;
         private Field field;
+        Setter generatedSetter;
         private Class<?> type;
         private Type genericType;
         private String name;
@@ -185,6 +208,10 @@ public class BeanWrapper {
 
         public void setValue(Object instance, Object value) {
             try {
+                if (generatedSetter != null) {
+                    generatedSetter.set(instance, value);
+                    return;
+                }
                 if (setter != null) {
                     if (Logger.isTraceEnabled()) {
                         Logger.trace("invoke setter %s on %s with value %s", setter, instance, value);
@@ -230,6 +257,70 @@ public class BeanWrapper {
 
     }
 
+    static final Map<Class<?>, String> unboxing = new HashMap<Class<?>, String>();
+
+    static {
+        unboxing.put(boolean.class, "((java.lang.Boolean) $2).booleanValue()");
+        unboxing.put(char.class, "((java.lang.Character) $2).charValue()");
+        // Like Method.invoke(), accept the widening of the other numbers
+        unboxing.put(byte.class, "((java.lang.Number) $2).byteValue()");
+        unboxing.put(short.class, "((java.lang.Number) $2).shortValue()");
+        unboxing.put(int.class, "((java.lang.Number) $2).intValue()");
+        unboxing.put(long.class, "((java.lang.Number) $2).longValue()");
+        unboxing.put(float.class, "((java.lang.Number) $2).floatValue()");
+        unboxing.put(double.class, "((java.lang.Number) $2).doubleValue()");
+    }
+
+    /**
+     * Generates the Setter class of a public setter or field
+     *
+     * @return The setter, or null to use reflection
+     */
+    static Setter generateSetter(ClassPool classPool, SetterClassLoader classLoader, Class<?> beanClass, Property prop) {
+        Member member = prop.setter != null ? prop.setter : prop.field;
+        if (!Modifier.isPublic(member.getModifiers()) || !isPublic(member.getDeclaringClass()) || !isPublic(prop.type)) {
+            return null;
+        }
+        try {
+            String className = beanClass.getName() + "$PlaySetter$" + prop.name;
+            CtClass ctClass = classPool.makeClass(className);
+            ctClass.addInterface(classPool.get(Setter.class.getName()));
+            ctClass.addConstructor(CtNewConstructor.defaultConstructor(ctClass));
+            String value = prop.type.isPrimitive() ? unboxing.get(prop.type) : "(" + javaName(prop.type) + ") $2";
+            String target = "((" + javaName(member.getDeclaringClass()) + ") $1)";
+            String body = prop.setter != null ? target + "." + member.getName() + "(" + value + ");" : target + "." + member.getName() + " = " + value + ";";
+            ctClass.addMethod(CtNewMethod.make("public void set(java.lang.Object instance, java.lang.Object value) { " + body + " }", ctClass));
+            byte[] bytecode = ctClass.toBytecode();
+            ctClass.detach();
+            return (Setter) classLoader.define(className, bytecode).newInstance();
+        } catch (Throwable e) {
+            Logger.trace("Cannot generate the setter of %s.%s, using reflection (%s)", beanClass.getName(), prop.name, e);
+            return null;
+        }
+    }
+
+    static boolean isPublic(Class<?> clazz) {
+        while (clazz.isArray()) {
+            clazz = clazz.getComponentType();
+        }
+        return clazz.isPrimitive() || Modifier.isPublic(clazz.getModifiers());
+    }
+
+    static String javaName(Class<?> clazz) {
+        return clazz.isArray() ? javaName(clazz.getComponentType()) + "[]" : clazz.getName();
+    }
+
+    static class SetterClassLoader extends ClassLoader {
+
+        SetterClassLoader(ClassLoader parent) {
+            super(parent);
+        }
+
+        Class<?> define(String name, byte[] bytecode) {
+            return defineClass(name, bytecode, 0, bytecode.length);
+        }
+    }
+
     public Object bind(String name, Type type, Map<String, String[]> params, String prefix, Annotation[] annotations) throws Exception {
         Object instance = newBeanInstance();
         return bind(name, type, params, prefix, instance, annotations);
@@ -4,6 +4,7 @@ import org.apache.commons.lang.StringUtils;
 import org.joda.time.DateTime;
 import play.Logger;
 import play.Play;
+import play.classloading.ApplicationClassloaderState;
 import play.data.Upload;
 import play.data.binding.types.*;
 import play.data.validation.Validation;
@@ -18,6 +19,8 @@ import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.math.BigDecimal;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 
 /**
@@ -47,16 +50,89 @@ public abstract class Binder {
 
     public static <T> void register(Class<T> clazz, TypeBinder<T> typeBinder) {
         supportedTypes.put(clazz, typeBinder);
+        typeBinders.clear();
     }
 
-    static Map<Class<?>, BeanWrapper> beanwrappers = new HashMap<Class<?>, BeanWrapper>();
+    static final ConcurrentMap<Class<?>, BeanWrapper> beanwrappers = new ConcurrentHashMap<Class<?>, BeanWrapper>();
 
-    static BeanWrapper getBeanWrapper(Class<?> clazz) {
-        if (!beanwrappers.containsKey(clazz)) {
-            BeanWrapper beanwrapper = new BeanWrapper(clazz);
-            beanwrappers.put(clazz, beanwrapper);
+    /**
+     * The binders of each type, resolved on first use
+     */
+    static final ConcurrentMap<Class<?>, TypeBinders> typeBinders = new ConcurrentHashMap<Class<?>, TypeBinders>();
+
+    static volatile ApplicationClassloaderState cachesState;
+
+    /**
+     * Drops the bean wrappers, the binders and the binding plans when the ApplicationClassloader state changes.
+     */
+    static void checkCachesState() {
+        if (Play.classloader == null) {
+            return;
+        }
+        ApplicationClassloaderState currentState = Play.classloader.currentState;
+        if (!currentState.equals(cachesState)) {
+            synchronized (beanwrappers) {
+                if (!currentState.equals(cachesState)) {
+                    beanwrappers.clear();
+                    typeBinders.clear();
+                    BindingPlan.plans.clear();
+                    cachesState = currentState;
+                }
+            }
+        }
+    }
+
+    /**
+     * The bean wrapper of a class, created on first use: creating one generates the setters of the class
+     */
+    public static BeanWrapper getBeanWrapper(Class<?> clazz) {
+        checkCachesState();
+        BeanWrapper beanwrapper = beanwrappers.get(clazz);
+        if (beanwrapper == null) {
+            beanwrapper = new BeanWrapper(clazz);
+            BeanWrapper existing = beanwrappers.putIfAbsent(clazz, beanwrapper);
+            if (existing != null) {
+                beanwrapper = existing;
+            }
         }
-        return beanwrappers.get(clazz);
+        return beanwrapper;
+    }
+
+    /**
+     * The binders of a type: the @Global application binders, tried in turn until one of them binds the value,
+     * then the registered binder.
+     */
+    static class TypeBinders {
+
+        final List<TypeBinder<?>> global = new ArrayList<TypeBinder<?>>();
+        TypeBinder<?> registered;
+    }
+
+    @SuppressWarnings("unchecked")
+    static TypeBinders typeBinders(Class<?> clazz) throws Exception {
+        checkCachesState();
+        TypeBinders binders = typeBinders.get(clazz);
+        if (binders == null) {
+            binders = new TypeBinders();
+            if (Play.classloader != null) {
+                for (Class<TypeBinder<?>> c : Play.classloader.getAssignableClasses(TypeBinder.class)) {
+                    if (c.isAnnotationPresent(Global.class)) {
+                        Class<?> forType = (Class) ((ParameterizedType) c.getGenericInterfaces()[0]).getActualTypeArguments()[0];
+                        if (forType.isAssignableFrom(clazz)) {
+                            binders.global.add(c.newInstance());
+                        }
+                    }
+                }
+            }
+            for (Class<?> c : supportedTypes.keySet()) {
+                if (c.isAssignableFrom(clazz)) {
+                    binders.registered = supportedTypes.get(c);
+                    break;
+                }
+            }
+            typeBinders.putIfAbsent(clazz, binders);
+        }
+        return binders;
     }
 
     public static class MethodAndParamInfo {
@@ -130,34 +206,41 @@ public abstract class Binder {
                 }
             }
 
-            if (clazz.equals(boolean.class)) {
-                return false;
-            }
-            if (clazz.equals(int.class)) {
-                return 0;
-            }
-            if (clazz.equals(long.class)) {
-                return 0;
-            }
-            if (clazz.equals(double.class)) {
-                return 0;
-            }
-            if (clazz.equals(short.class)) {
-                return 0;
-            }
-            if (clazz.equals(byte.class)) {
-                return 0;
-            }
-            if (clazz.equals(char.class)) {
-                return ' ';
-            }
-            return null;
+            return missingValue(clazz);
         }
 
         return result;
 
     }
 
+    /**
+     * @return The value of a missing parameter: the default value of the primitive types, or null
+     */
+    static Object missingValue(Class<?> clazz) {
+        if (clazz.equals(boolean.class)) {
+            return false;
+        }
+        if (clazz.equals(int.class)) {
+            return 0;
+        }
+        if (clazz.equals(long.class)) {
+            return 0;
+        }
+        if (clazz.equals(double.class)) {
+            return 0;
+        }
+        if (clazz.equals(short.class)) {
+            return 0;
+        }
+        if (clazz.equals(byte.class)) {
+            return 0;
+        }
+        if (clazz.equals(char.class)) {
+            return ' ';
+        }
+        return null;
+    }
+
 
     protected static Object internalBind(ParamNode paramNode, Class<?> clazz, Type type, BindingAnnotations bindingAnnotations) {
 
@@ -521,31 +604,22 @@ public abstract class Binder {
             }
         }
 
+        TypeBinders binders = typeBinders(clazz);
+
         // application custom types have higher priority. If unable to bind proceed with the next one
-        for (Class<TypeBinder<?>> c : Play.classloader.getAssignableClasses(TypeBinder.class)) {
-            if (c.isAnnotationPresent(Global.class)) {
-                Class<?> forType = (Class) ((ParameterizedType) c.getGenericInterfaces()[0]).getActualTypeArguments()[0];
-                if (forType.isAssignableFrom(clazz)) {
-                    Object result = c.newInstance().bind(name, annotations, value, clazz, type);
-                    if (result != null) {
-                        return result;
-                    }
-                }
+        for (TypeBinder<?> binder : binders.global) {
+            Object result = binder.bind(name, annotations, value, clazz, type);
+            if (result != null) {
+                return result;
             }
         }
 
         // custom types
-        for (Class<?> c : supportedTypes.keySet()) {
+        if (binders.registered != null) {
             if (Logger.isTraceEnabled()) {
-                Logger.trace("directBind: value [" + value + "] c [" + c + "] Class [" + clazz + "]");
-            }
-
-            if (c.isAssignableFrom(clazz)) {
-                if (Logger.isTraceEnabled()) {
-                    Logger.trace("directBind: isAssignableFrom is true");
-                }
-                return supportedTypes.get(c).bind(name, annotations, value, clazz, type);
+                Logger.trace("directBind: value [" + value + "] binder [" + binders.registered + "] Class [" + clazz + "]");
             }
+            return binders.registered.bind(name, annotations, value, clazz, type);
         }
 
         // raw String
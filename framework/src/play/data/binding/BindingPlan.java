@@ -0,0 +1,115 @@
+package play.data.binding;
+
+import play.Play;
+import play.exceptions.UnexpectedException;
+import play.utils.Java;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.lang.reflect.Type;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * How to bind the parameters of a method, resolved once per method: their names, types, binding annotations and
+ * Scala default values. The plans are dropped when the ApplicationClassloader state changes.
+ */
+public class BindingPlan {
+
+    static final ConcurrentMap<Method, BindingPlan> plans = new ConcurrentHashMap<Method, BindingPlan>();
+
+    public static class Param {
+
+        public final String name;
+        public final Class<?> type;
+        public final Type genericType;
+        public final Annotation[] annotations;
+        /**
+         * A String, a number or a primitive: bound from its own values only
+         */
+        public final boolean simple;
+        final BindingAnnotations bindingAnnotations;
+        final boolean noBinding;
+        final Method scalaDefault;
+
+        Param(Method method, int index, String name) {
+            this.name = name;
+            this.type = method.getParameterTypes()[index];
+            this.genericType = method.getGenericParameterTypes()[index];
+            this.annotations = method.getParameterAnnotations()[index];
+            this.simple = type.equals(String.class) || Number.class.isAssignableFrom(type) || type.isPrimitive();
+            this.bindingAnnotations = new BindingAnnotations(annotations);
+            // Resolves the profiles now, the plan is then only read
+            this.noBinding = bindingAnnotations.checkNoBinding();
+            Method defaultMethod = null;
+            try {
+                defaultMethod = method.getDeclaringClass().getDeclaredMethod(method.getName() + "$default$" + (index + 1));
+            } catch (NoSuchMethodException e) {
+                // No Scala default
+            }
+            this.scalaDefault = defaultMethod;
+        }
+    }
+
+    public final Method method;
+    public final Param[] params;
+
+    BindingPlan(Method method) throws Exception {
+        this.method = method;
+        String[] paramsNames = Java.parameterNames(method);
+        if (paramsNames == null && method.getParameterTypes().length > 0) {
+            throw new UnexpectedException("Parameter names not found for method " + method);
+        }
+        this.params = new Param[method.getParameterTypes().length];
+        for (int i = 0; i < params.length; i++) {
+            params[i] = new Param(method, i, paramsNames[i]);
+        }
+    }
+
+    /**
+     * @return The binding plan of the method, computed on first use
+     */
+    public static BindingPlan forMethod(Method method) throws Exception {
+        Binder.checkCachesState();
+        BindingPlan plan = plans.get(method);
+        if (plan == null) {
+            plan = new BindingPlan(method);
+            plans.putIfAbsent(method, plan);
+        }
+        return plan;
+    }
+
+    /**
+     * Binds a parameter, as Binder.bind() does
+     *
+     * @param rootParamNode The parameters
+     * @param index         The index of the parameter
+     * @param instance      The object owning the method, for the Scala default values
+     * @return The value of the parameter, or Binder.NO_BINDING
+     */
+    public Object bind(RootParamNode rootParamNode, int index, Object instance) {
+        Param param = params[index];
+        if (param.noBinding) {
+            return Binder.NO_BINDING;
+        }
+
+        // Let a chance to plugins to bind this object
+        Object result = Play.pluginCollection.bind(rootParamNode, param.name, param.type, param.genericType, param.annotations);
+        if (result != null) {
+            return result;
+        }
+
+        result = Binder.internalBind(rootParamNode.getChild(param.name, true), param.type, param.genericType, param.bindingAnnotations);
+        if (result != Binder.MISSING) {
+            return result;
+        }
+        if (param.scalaDefault != null) {
+            try {
+                return param.scalaDefault.invoke(instance);
+            } catch (Exception e) {
+                throw new UnexpectedException(e);
+            }
+        }
+        return Binder.missingValue(param.type);
+    }
+}
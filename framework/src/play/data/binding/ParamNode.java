@@ -53,7 +53,7 @@ public class ParamNode {
     }
 
     public ParamNode getChild(String name, boolean returnEmptyChildIfNotFound) {
-        ParamNode child = getChild(name.split(keyPartDelimiterRegexpString));
+        ParamNode child = getChild(splitKey(name));
         if (child == null && returnEmptyChildIfNotFound) {
             child = new ParamNode(name);
         }
@@ -96,6 +96,45 @@ public class ParamNode {
         }
     }
 
+    /**
+     * Same as key.split(keyPartDelimiterRegexpString), without the regular expression
+     */
+    static String[] splitKey(String key) {
+        List<String> parts = null;
+        int start = 0;
+        int i = 0;
+        while (i < key.length()) {
+            if (isKeyPartDelimiter(key.charAt(i))) {
+                if (parts == null) {
+                    parts = new ArrayList<String>(4);
+                }
+                parts.add(key.substring(start, i));
+                while (i < key.length() && isKeyPartDelimiter(key.charAt(i))) {
+                    i++;
+                }
+                start = i;
+            } else {
+                i++;
+            }
+        }
+        if (parts == null) {
+            return new String[]{key};
+        }
+        if (start < key.length()) {
+            parts.add(key.substring(start));
+        }
+        // Like split(), without the trailing empty strings
+        int size = parts.size();
+        while (size > 0 && parts.get(size - 1).length() == 0) {
+            size--;
+        }
+        return parts.subList(0, size).toArray(new String[size]);
+    }
+
+    private static boolean isKeyPartDelimiter(char c) {
+        return c == '.' || c == '[' || c == ']';
+    }
+
     private ParamNode getChild(String[] nestedNames) {
         ParamNode currentChildNode = this;
         for (int i = 0; i < nestedNames.length; i++) {
@@ -139,7 +178,7 @@ public class ParamNode {
 
             ParamNode currentParent = root;
 
-            for (String name : key.split(keyPartDelimiterRegexpString)) {
+            for (String name : splitKey(key)) {
                 ParamNode paramNode = currentParent.getChild(name);
                 if (paramNode == null) {
                     // first time we see this node - create it and add it to parent
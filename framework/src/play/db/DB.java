@@ -20,6 +20,11 @@ public class DB {
      */
     public static DataSource datasource = null;
 
+    /**
+     * Routes the read-only invocations to the replicas, when <code>db.replicas</code> are configured
+     */
+    public static RoutingDataSource routingDatasource = null;
+
     /**
      * The method used to destroy the datasource
      */
@@ -56,7 +61,7 @@ public class DB {
             if (localConnection.get() != null) {
                 return localConnection.get();
             }
-            Connection connection = datasource.getConnection();
+            Connection connection = routingDatasource != null ? routingDatasource.getConnection() : datasource.getConnection();
             localConnection.set(connection);
             return connection;
         } catch (SQLException ex) {
@@ -101,6 +106,10 @@ public class DB {
      * Destroy the datasource
      */
     public static void destroy() {
+        if (routingDatasource != null) {
+            routingDatasource.close();
+            routingDatasource = null;
+        }
         try {
             if (DB.datasource != null && DB.destroyMethod != null && !DB.destroyMethod.equals("")) {
                 Method close = DB.datasource.getClass().getMethod(DB.destroyMethod, new Class[]{});
@@ -4,10 +4,13 @@ import com.mchange.v2.c3p0.ComboPooledDataSource;
 import com.mchange.v2.c3p0.ConnectionCustomizer;
 import jregex.Matcher;
 import org.apache.commons.lang.StringUtils;
+import play.Invoker.InvocationContext;
 import play.Logger;
 import play.Play;
 import play.PlayPlugin;
+import play.db.jpa.Transactional;
 import play.exceptions.DatabaseException;
+import play.libs.Time;
 import play.mvc.Http;
 import play.mvc.Http.Request;
 import play.mvc.Http.Response;
@@ -15,13 +18,17 @@ import play.mvc.Http.Response;
 import javax.naming.Context;
 import javax.naming.InitialContext;
 import javax.sql.DataSource;
+import java.beans.PropertyVetoException;
 import java.io.File;
 import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.sql.*;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.TreeMap;
 
 /**
  * The DB plugin
@@ -90,28 +97,7 @@ public class DBPlugin extends PlayPlugin {
                         }
                     }
 
-                    System.setProperty("com.mchange.v2.log.MLog", "com.mchange.v2.log.FallbackMLog");
-                    System.setProperty("com.mchange.v2.log.FallbackMLog.DEFAULT_CUTOFF_LEVEL", "OFF");
-                    ComboPooledDataSource ds = new ComboPooledDataSource();
-                    ds.setDriverClass(p.getProperty("db.driver"));
-                    ds.setJdbcUrl(p.getProperty("db.url"));
-                    ds.setUser(p.getProperty("db.user"));
-                    ds.setPassword(p.getProperty("db.pass"));
-                    ds.setAcquireRetryAttempts(10);
-                    ds.setCheckoutTimeout(Integer.parseInt(p.getProperty("db.pool.timeout", "5000")));
-                    ds.setBreakAfterAcquireFailure(false);
-                    ds.setMaxPoolSize(Integer.parseInt(p.getProperty("db.pool.maxSize", "30")));
-                    ds.setMinPoolSize(Integer.parseInt(p.getProperty("db.pool.minSize", "1")));
-                    ds.setMaxIdleTimeExcessConnections(Integer.parseInt(p.getProperty("db.pool.maxIdleTimeExcessConnections", "0")));
-                    ds.setIdleConnectionTestPeriod(10);
-                    ds.setTestConnectionOnCheckin(true);
-
-                    // This check is not required, but here to make it clear that nothing changes for people
-                    // that don't set this configuration property. It may be safely removed.
-                    if (p.getProperty("db.isolation") != null) {
-                        ds.setConnectionCustomizerClassName(play.db.DBPlugin.PlayConnectionCustomizer.class.getName());
-                    }
-
+                    ComboPooledDataSource ds = newPool(p, p.getProperty("db.driver"), p.getProperty("db.url"), p.getProperty("db.user"), p.getProperty("db.pass"));
                     DB.datasource = ds;
                     url = ds.getJdbcUrl();
                     Connection c = null;
@@ -128,8 +114,27 @@ public class DBPlugin extends PlayPlugin {
 
                 DB.destroyMethod = p.getProperty("db.destroyMethod", "");
 
+                Map<String, String> replicaUrls = replicaUrls(p);
+                if (!replicaUrls.isEmpty()) {
+                    List<RoutingDataSource.Replica> replicas = new ArrayList<RoutingDataSource.Replica>();
+                    for (Map.Entry<String, String> replica : replicaUrls.entrySet()) {
+                        String prefix = "db.replicas." + replica.getKey() + ".";
+                        ComboPooledDataSource ds = newPool(p,
+                                p.getProperty(prefix + "driver", p.getProperty("db.driver")),
+                                replica.getValue(),
+                                p.getProperty(prefix + "user", p.getProperty("db.user")),
+                                p.getProperty(prefix + "pass", p.getProperty("db.pass")));
+                        replicas.add(new RoutingDataSource.Replica(replica.getKey(), ds));
+                        Logger.info("Replica %s at %s", replica.getKey(), ds.getJdbcUrl());
+                    }
+                    DB.routingDatasource = new RoutingDataSource(DB.datasource, replicas,
+                            p.getProperty("db.replicas.selection", "roundRobin").equals("leastConnections"),
+                            Time.parseDuration(p.getProperty("db.replicas.retryDelay", "30s")) * 1000L);
+                }
+
             } catch (Exception e) {
                 DB.datasource = null;
+                DB.routingDatasource = null;
                 Logger.error(e, "Cannot connected to the database : %s", e.getMessage());
                 if (e.getCause() instanceof InterruptedException) {
                     throw new DatabaseException("Cannot connected to the database. Check the configuration.", e);
@@ -139,6 +144,58 @@ public class DBPlugin extends PlayPlugin {
         }
     }
 
+    /**
+     * Creates a c3p0 pool configured by the db.pool properties
+     */
+    static ComboPooledDataSource newPool(Properties p, String driver, String url, String user, String password) throws PropertyVetoException {
+        System.setProperty("com.mchange.v2.log.MLog", "com.mchange.v2.log.FallbackMLog");
+        System.setProperty("com.mchange.v2.log.FallbackMLog.DEFAULT_CUTOFF_LEVEL", "OFF");
+        ComboPooledDataSource ds = new ComboPooledDataSource();
+        ds.setDriverClass(driver);
+        ds.setJdbcUrl(url);
+        ds.setUser(user);
+        ds.setPassword(password);
+        ds.setAcquireRetryAttempts(10);
+        ds.setCheckoutTimeout(Integer.parseInt(p.getProperty("db.pool.timeout", "5000")));
+        ds.setBreakAfterAcquireFailure(false);
+        ds.setMaxPoolSize(Integer.parseInt(p.getProperty("db.pool.maxSize", "30")));
+        ds.setMinPoolSize(Integer.parseInt(p.getProperty("db.pool.minSize", "1")));
+        ds.setMaxIdleTimeExcessConnections(Integer.parseInt(p.getProperty("db.pool.maxIdleTimeExcessConnections", "0")));
+        ds.setIdleConnectionTestPeriod(10);
+        ds.setTestConnectionOnCheckin(true);
+
+        // This check is not required, but here to make it clear that nothing changes for people
+        // that don't set this configuration property. It may be safely removed.
+        if (p.getProperty("db.isolation") != null) {
+            ds.setConnectionCustomizerClassName(play.db.DBPlugin.PlayConnectionCustomizer.class.getName());
+        }
+        return ds;
+    }
+
+    /**
+     * @return the JDBC url of each replica, by name, from the <code>db.replicas.{name}.url</code> properties
+     */
+    static Map<String, String> replicaUrls(Properties p) {
+        Map<String, String> urls = new TreeMap<String, String>();
+        for (Object key : p.keySet()) {
+            String property = key.toString();
+            if (property.startsWith("db.replicas.") && property.endsWith(".url")) {
+                String name = property.substring("db.replicas.".length(), property.length() - ".url".length());
+                if (name.length() > 0 && name.indexOf('.') < 0) {
+                    urls.put(name, p.getProperty(property));
+                }
+            }
+        }
+        return urls;
+    }
+
+    @Override
+    public void beforeInvocation() {
+        InvocationContext context = InvocationContext.current();
+        Transactional tx = context == null ? null : context.getAnnotation(Transactional.class);
+        RoutingDataSource.setReadOnly(tx != null && tx.readOnly());
+    }
+
     @Override
     public void onApplicationStop() {
         if (Play.mode.isProd()) {
@@ -156,9 +213,23 @@ public class DBPlugin extends PlayPlugin {
             out.println("(not yet connected)");
             return sw.toString();
         }
-        ComboPooledDataSource datasource = (ComboPooledDataSource) DB.datasource;
         out.println("Datasource:");
         out.println("~~~~~~~~~~~");
+        printPool(out, (ComboPooledDataSource) DB.datasource);
+        if (DB.routingDatasource != null) {
+            for (RoutingDataSource.Replica replica : DB.routingDatasource.replicas) {
+                out.println();
+                out.println("Replica " + replica.name + (replica.isUp() ? ":" : " (down):"));
+                out.println("~~~~~~~~~~~");
+                if (replica.datasource instanceof ComboPooledDataSource) {
+                    printPool(out, (ComboPooledDataSource) replica.datasource);
+                }
+            }
+        }
+        return sw.toString();
+    }
+
+    private static void printPool(PrintWriter out, ComboPooledDataSource datasource) {
         out.println("Jdbc url: " + datasource.getJdbcUrl());
         out.println("Jdbc driver: " + datasource.getDriverClass());
         out.println("Jdbc user: " + datasource.getUser());
@@ -167,12 +238,18 @@ public class DBPlugin extends PlayPlugin {
         out.println("Max pool size: " + datasource.getMaxPoolSize());
         out.println("Initial pool size: " + datasource.getInitialPoolSize());
         out.println("Checkout timeout: " + datasource.getCheckoutTimeout());
-        return sw.toString();
+        try {
+            out.println("Busy connections: " + datasource.getNumBusyConnectionsDefaultUser());
+            out.println("Idle connections: " + datasource.getNumIdleConnectionsDefaultUser());
+        } catch (SQLException e) {
+            out.println("Busy connections: unknown (" + e.getMessage() + ")");
+        }
     }
 
     @Override
     public void invocationFinally() {
         DB.close();
+        RoutingDataSource.setReadOnly(false);
     }
 
     private static void check(Properties p, String mode, String property) {
@@ -273,6 +350,18 @@ public class DBPlugin extends PlayPlugin {
             return true;
         }
 
+        Map<String, String> replicas = new TreeMap<String, String>();
+        if (DB.routingDatasource != null) {
+            for (RoutingDataSource.Replica replica : DB.routingDatasource.replicas) {
+                if (replica.datasource instanceof ComboPooledDataSource) {
+                    replicas.put(replica.name, ((ComboPooledDataSource) replica.datasource).getJdbcUrl());
+                }
+            }
+        }
+        if (!replicas.equals(replicaUrls(p))) {
+            return true;
+        }
+
         return false;
     }
 
@@ -0,0 +1,185 @@
+package play.db;
+
+import com.mchange.v2.c3p0.PooledDataSource;
+import play.Logger;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Routes the connections of read-only invocations to the replicas, and the other ones to the primary datasource.
+ * <p/>
+ * An invocation is read-only when it is annotated with <code>@Transactional(readOnly=true)</code>. The replica is
+ * selected in turn (<code>roundRobin</code>) or by its number of busy connections (<code>leastConnections</code>).
+ * A replica that fails to give a connection is left aside for <code>db.replicas.retryDelay</code>, and the
+ * primary is used when no replica is available.
+ */
+public class RoutingDataSource implements DataSource {
+
+    static ThreadLocal<Boolean> readOnly = new ThreadLocal<Boolean>();
+
+    public static class Replica {
+
+        public final String name;
+        public final DataSource datasource;
+        volatile long downUntil = 0;
+
+        public Replica(String name, DataSource datasource) {
+            this.name = name;
+            this.datasource = datasource;
+        }
+
+        public boolean isUp() {
+            return downUntil <= System.currentTimeMillis();
+        }
+
+        int busyConnections() {
+            if (!(datasource instanceof PooledDataSource)) {
+                return 0;
+            }
+            try {
+                return ((PooledDataSource) datasource).getNumBusyConnectionsDefaultUser();
+            } catch (SQLException e) {
+                return Integer.MAX_VALUE;
+            }
+        }
+    }
+
+    public final DataSource primary;
+    public final List<Replica> replicas;
+    final boolean leastConnections;
+    final long retryDelay;
+    final AtomicInteger next = new AtomicInteger();
+
+    /**
+     * @param primary          The datasource for the read-write invocations
+     * @param replicas         The replicas
+     * @param leastConnections true to select the replica with the least busy connections, false to select them in turn
+     * @param retryDelay       The time a failing replica is left aside, in milliseconds
+     */
+    public RoutingDataSource(DataSource primary, List<Replica> replicas, boolean leastConnections, long retryDelay) {
+        this.primary = primary;
+        this.replicas = replicas;
+        this.leastConnections = leastConnections;
+        this.retryDelay = retryDelay;
+    }
+
+    /**
+     * Routes the next connections of the current thread
+     *
+     * @param readonly true to use a replica
+     */
+    public static void setReadOnly(boolean readonly) {
+        if (readonly) {
+            readOnly.set(Boolean.TRUE);
+        } else {
+            readOnly.remove();
+        }
+    }
+
+    public static boolean isReadOnly() {
+        return readOnly.get() != null;
+    }
+
+    public Connection getConnection() throws SQLException {
+        return getConnection(null, null);
+    }
+
+    public Connection getConnection(String username, String password) throws SQLException {
+        if (isReadOnly()) {
+            for (Replica replica : candidates()) {
+                try {
+                    return username == null ? replica.datasource.getConnection() : replica.datasource.getConnection(username, password);
+                } catch (SQLException e) {
+                    replica.downUntil = System.currentTimeMillis() + retryDelay;
+                    Logger.warn("Replica %s is not available, retrying in %s ms (%s)", replica.name, retryDelay, e.getMessage());
+                }
+            }
+        }
+        return username == null ? primary.getConnection() : primary.getConnection(username, password);
+    }
+
+    /**
+     * @return the available replicas, the selected one first
+     */
+    List<Replica> candidates() {
+        List<Replica> up = new ArrayList<Replica>(replicas.size());
+        for (Replica replica : replicas) {
+            if (replica.isUp()) {
+                up.add(replica);
+            }
+        }
+        if (up.size() < 2) {
+            return up;
+        }
+        int first = 0;
+        if (leastConnections) {
+            int least = Integer.MAX_VALUE;
+            for (int i = 0; i < up.size(); i++) {
+                int busy = up.get(i).busyConnections();
+                if (busy < least) {
+                    least = busy;
+                    first = i;
+                }
+            }
+        } else {
+            first = (next.getAndIncrement() & Integer.MAX_VALUE) % up.size();
+        }
+        List<Replica> result = new ArrayList<Replica>(up.size());
+        result.addAll(up.subList(first, up.size()));
+        result.addAll(up.subList(0, first));
+        return result;
+    }
+
+    /**
+     * Closes the replicas pools
+     */
+    public void close() {
+        for (Replica replica : replicas) {
+            if (replica.datasource instanceof PooledDataSource) {
+                try {
+                    ((PooledDataSource) replica.datasource).close();
+                } catch (SQLException e) {
+                    Logger.error(e, "Couldn't close the replica %s", replica.name);
+                }
+            }
+        }
+    }
+
+    public PrintWriter getLogWriter() throws SQLException {
+        return primary.getLogWriter();
+    }
+
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        primary.setLogWriter(out);
+    }
+
+    public void setLoginTimeout(int seconds) throws SQLException {
+        primary.setLoginTimeout(seconds);
+    }
+
+    public int getLoginTimeout() throws SQLException {
+        return primary.getLoginTimeout();
+    }
+
+    public java.util.logging.Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        return primary.unwrap(iface);
+    }
+
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || primary.isWrapperFor(iface);
+    }
+}
@@ -1,5 +1,10 @@
 package play.db.jpa;
 
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.ejb.EntityManagerImpl;
+import org.hibernate.ejb.HibernateQuery;
+import org.hibernate.proxy.HibernateProxy;
 import play.Play;
 import play.data.binding.BeanWrapper;
 import play.data.binding.Binder;
@@ -64,10 +69,12 @@ public class GenericModel extends JPABase {
         // returning from this method.
         List<ParamNode.RemovedNode> removedNodesList = new ArrayList<ParamNode.RemovedNode>();
         try {
-            BeanWrapper bw = new BeanWrapper(o.getClass());
+            // A proxy delegates to the loaded entity: its own fields are never read
+            Object bean = o instanceof HibernateProxy ? ((HibernateProxy) o).getHibernateLazyInitializer().getImplementation() : o;
+            BeanWrapper bw = Binder.getBeanWrapper(bean.getClass());
             // Start with relations
             Set<Field> fields = new HashSet<Field>();
-            Class clazz = o.getClass();
+            Class clazz = bean.getClass();
             while (!clazz.equals(Object.class)) {
                 Collections.addAll(fields, clazz.getDeclaredFields());
                 clazz = clazz.getSuperclass();
@@ -119,7 +126,7 @@ public class GenericModel extends JPABase {
                                         Validation.addError(name + "." + field.getName(), "validation.notFound", _id);
                                     }
                                 }
-                                bw.set(field.getName(), o, l);
+                                bw.set(field.getName(), bean, l);
                             }
                         } else {
                             String[] ids = fieldParamNode.getChild(keyName, true).getValues();
@@ -132,7 +139,7 @@ public class GenericModel extends JPABase {
                                     edit(paramNode, field.getName(), to, field.getAnnotations());
                                     // Remove it to prevent us from finding it again later
                                     paramNode.removeChild(field.getName(), removedNodesList);
-                                    bw.set(field.getName(), o, to);
+                                    bw.set(field.getName(), bean, to);
                                 } catch (NoResultException e) {
                                     Validation.addError(fieldParamNode.getOriginalKey(), "validation.notFound", ids[0]);
                                     // Remove only the key to prevent us from finding it again later
@@ -146,7 +153,7 @@ public class GenericModel extends JPABase {
                                 }
 
                             } else if (ids != null && ids.length > 0 && ids[0].equals("")) {
-                                bw.set(field.getName(), o, null);
+                                bw.set(field.getName(), bean, null);
                                 // Remove the key to prevent us from finding it again later
                                 fieldParamNode.removeChild(keyName, removedNodesList);
                             }
@@ -155,7 +162,7 @@ public class GenericModel extends JPABase {
                 }
             }
             ParamNode beanNode = rootParamNode.getChild(name, true);
-            Binder.bindBean(beanNode, o, annotations);
+            Binder.bindBean(beanNode, bean, annotations);
             return (T) o;
         } catch (Exception e) {
             throw new UnexpectedException(e);
@@ -204,6 +211,22 @@ public class GenericModel extends JPABase {
         return (T) this;
     }
 
+    /**
+     * Store (ie insert or update) many entities, in JDBC batches of <code>jpa.batchSize</code>.
+     * The entities of each batch are detached from the entity manager once saved.
+     *
+     * @param entities The entities to save
+     * @return The number of saved entities
+     */
+    public static int saveAll(Iterable<? extends JPABase> entities) {
+        JPABatchWriter writer = new JPABatchWriter();
+        for (JPABase entity : entities) {
+            writer.save(entity);
+        }
+        writer.flush();
+        return writer.count();
+    }
+
     /**
      * store (ie insert) the entity.
      */
@@ -394,6 +417,32 @@ public class GenericModel extends JPABase {
             }
         }
 
+        /**
+         * Read the results of the query one by one from a database cursor, instead of loading them all in memory
+         *
+         * @return The results, to iterate once
+         */
+        public <T> JPAStream<T> stream() {
+            return stream(100);
+        }
+
+        /**
+         * Read the results of the query one by one from a database cursor, instead of loading them all in memory
+         *
+         * @param fetchSize The number of rows fetched at once from the database, and of entities detached at once
+         * @return The results, to iterate once
+         */
+        public <T> JPAStream<T> stream(int fetchSize) {
+            try {
+                org.hibernate.Query hibernateQuery = ((HibernateQuery) query).getHibernateQuery();
+                // The entities aren't modified, Hibernate doesn't keep a copy of their state
+                ScrollableResults results = hibernateQuery.setFetchSize(fetchSize).setReadOnly(true).scroll(ScrollMode.FORWARD_ONLY);
+                return new JPAStream<T>(((EntityManagerImpl) JPA.em()).getSession(), results, fetchSize);
+            } catch (Exception e) {
+                throw new JPAQueryException("Error while executing query <strong>" + sq + "</strong>", JPAQueryException.findBestCause(e));
+            }
+        }
+
         /**
          * Set the position to start
          *
@@ -405,6 +454,17 @@ public class GenericModel extends JPABase {
             return this;
         }
 
+        /**
+         * Cache the results of the query in the Hibernate query cache (see <code>jpa.cache</code>).
+         * They are invalidated when one of the queried tables is modified.
+         *
+         * @return The query
+         */
+        public JPAQuery cacheable() {
+            query.setHint("org.hibernate.cacheable", true);
+            return this;
+        }
+
         /**
          * Retrieve a page of result
          *
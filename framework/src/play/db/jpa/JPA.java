@@ -16,6 +16,10 @@ public class JPA {
     public EntityManager entityManager;
     boolean readonly = true;
     boolean autoCommit = false;
+    /**
+     * Set before a lazy transaction is started
+     */
+    boolean rollbackOnly = false;
 
     static JPA get() {
         if (local.get() == null) {
@@ -29,7 +33,7 @@ public class JPA {
     }
 
     static void createContext(EntityManager entityManager, boolean readonly) {
-        if (local.get() != null) {
+        if (local.get() != null && local.get().entityManager != null) {
             try {
                 local.get().entityManager.close();
             } catch (Exception e) {
@@ -48,14 +52,28 @@ public class JPA {
      * Retrieve the current entityManager
      */
     public static EntityManager em() {
-        return get().entityManager;
+        JPA context = get();
+        if (context.entityManager == null) {
+            // Lazy transaction, started by its first use
+            context.entityManager = JPAPlugin.openTx(context.readonly);
+            if (context.rollbackOnly && JPAPlugin.autoTxs) {
+                context.entityManager.getTransaction().setRollbackOnly();
+            }
+        }
+        return context.entityManager;
     }
 
     /*
      * Tell to JPA do not commit the current transaction
      */
     public static void setRollbackOnly() {
-        em().getTransaction().setRollbackOnly();
+        JPA context = get();
+        if (context.entityManager == null) {
+            // Lazy transaction: applied if it is started
+            context.rollbackOnly = true;
+            return;
+        }
+        context.entityManager.getTransaction().setRollbackOnly();
     }
 
     /**
@@ -86,6 +104,10 @@ public class JPA {
     public static boolean isInsideTransaction() {
         try {
             EntityManager manager = JPA.get().entityManager;
+            if (manager == null) {
+                // Lazy transaction, started on demand
+                return true;
+            }
             EntityTransaction transaction = manager.getTransaction();
             return transaction != null;
         } catch (JPAException e) {
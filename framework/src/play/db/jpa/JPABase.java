@@ -21,6 +21,15 @@ import java.util.*;
 public class JPABase implements Serializable, play.db.Model {
 
     public void _save() {
+        _beforeFlush();
+        _flush(em());
+        _afterFlush();
+    }
+
+    /**
+     * Persists the entity if needed, and marks it and its cascaded relations to be saved by the next flush
+     */
+    void _beforeFlush() {
         if (!em().contains(this)) {
             em().persist(this);
             PlayPlugin.postEvent("JPASupport.objectPersisted", this);
@@ -31,8 +40,20 @@ public class JPABase implements Serializable, play.db.Model {
         } finally {
             avoidCascadeSaveLoops.get().clear();
         }
+    }
+
+    void _afterFlush() {
+        avoidCascadeSaveLoops.set(new HashSet<JPABase>());
+        try {
+            saveAndCascade(false);
+        } finally {
+            avoidCascadeSaveLoops.get().clear();
+        }
+    }
+
+    static void _flush(EntityManager em) {
         try {
-            em().flush();
+            em.flush();
         } catch (PersistenceException e) {
             if (e.getCause() instanceof GenericJDBCException) {
                 throw new PersistenceException(((GenericJDBCException) e.getCause()).getSQL(), e);
@@ -40,12 +61,6 @@ public class JPABase implements Serializable, play.db.Model {
                 throw e;
             }
         }
-        avoidCascadeSaveLoops.set(new HashSet<JPABase>());
-        try {
-            saveAndCascade(false);
-        } finally {
-            avoidCascadeSaveLoops.get().clear();
-        }
     }
 
     public void _delete() {
@@ -0,0 +1,76 @@
+package play.db.jpa;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Saves many entities in JDBC batches, with a bounded persistence context.
+ * <p/>
+ * The entities are flushed every <code>jpa.batchSize</code> saves, then detached from the entity manager. The other
+ * entities stay managed, e.g. loaded entities which are saved in a later batch. Example:
+ * <pre>
+ * JPABatchWriter writer = new JPABatchWriter();
+ * for (String line : lines) {
+ *     writer.save(new Product(line));
+ * }
+ * writer.flush();
+ * </pre>
+ */
+public class JPABatchWriter {
+
+    final EntityManager em;
+    final int batchSize;
+    final List<JPABase> pending;
+    int count = 0;
+
+    public JPABatchWriter() {
+        this(JPAPlugin.batchSize);
+    }
+
+    /**
+     * @param batchSize The number of entities saved between two flushes
+     */
+    public JPABatchWriter(int batchSize) {
+        this.em = JPA.em();
+        this.batchSize = Math.max(batchSize, 1);
+        this.pending = new ArrayList<JPABase>(this.batchSize);
+    }
+
+    /**
+     * Saves the entity, and flushes the current batch when it is full
+     */
+    public void save(JPABase entity) {
+        entity._beforeFlush();
+        pending.add(entity);
+        count++;
+        if (pending.size() >= batchSize) {
+            flush();
+        }
+    }
+
+    /**
+     * Writes the current batch to the database and detaches its entities
+     */
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        JPABase._flush(em);
+        for (JPABase entity : pending) {
+            entity._afterFlush();
+        }
+        // Not clear(): the entities of the next batches may have been loaded by this entity manager
+        for (JPABase entity : pending) {
+            em.detach(entity);
+        }
+        pending.clear();
+    }
+
+    /**
+     * @return The number of saved entities
+     */
+    public int count() {
+        return count;
+    }
+}
@@ -1,5 +1,6 @@
 package play.db.jpa;
 
+import com.jamonapi.MonitorFactory;
 import org.apache.commons.beanutils.PropertyUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.log4j.Level;
@@ -19,6 +20,7 @@ import play.data.binding.ParamNode;
 import play.data.binding.RootParamNode;
 import play.db.DB;
 import play.db.Model;
+import play.db.RoutingDataSource;
 import play.exceptions.JPAException;
 import play.exceptions.UnexpectedException;
 import play.utils.Utils;
@@ -38,6 +40,14 @@ import java.util.*;
 public class JPAPlugin extends PlayPlugin {
 
     public static boolean autoTxs = true;
+    /**
+     * Open the entity manager and its transaction on the first use of JPA.em() in an invocation
+     */
+    public static boolean lazyTxs = false;
+    /**
+     * The number of statements in a JDBC batch, and of entities saved between two flushes by saveAll()
+     */
+    public static int batchSize = 50;
 
     @Override
     public Object bind(RootParamNode rootParamNode, String name, Class clazz, java.lang.reflect.Type type, Annotation[] annotations) {
@@ -103,6 +113,8 @@ public class JPAPlugin extends PlayPlugin {
 
     @Override
     public void onApplicationStart() {
+        lazyTxs = Play.configuration.getProperty("jpa.lazyTransactions", "false").equals("true");
+        batchSize = Integer.parseInt(Play.configuration.getProperty("jpa.batchSize", "50"));
         if (JPA.entityManagerFactory == null) {
             List<Class> classes = Play.classloader.getAnnotatedClasses(Entity.class);
             if (classes.isEmpty() && Play.configuration.getProperty("jpa.entities", "").equals("")) {
@@ -116,7 +128,9 @@ public class JPAPlugin extends PlayPlugin {
 
             Ejb3Configuration cfg = new Ejb3Configuration();
 
-            if (DB.datasource != null) {
+            if (DB.routingDatasource != null) {
+                cfg.setDataSource(DB.routingDatasource);
+            } else if (DB.datasource != null) {
                 cfg.setDataSource(DB.datasource);
             }
 
@@ -191,6 +205,16 @@ public class JPAPlugin extends PlayPlugin {
             } else {
                 org.apache.log4j.Logger.getLogger("org.hibernate.SQL").setLevel(Level.OFF);
             }
+            // Group the inserts and updates of a flush in JDBC batches
+            cfg.setProperty("hibernate.jdbc.batch_size", String.valueOf(batchSize));
+            cfg.setProperty("hibernate.order_inserts", "true");
+            cfg.setProperty("hibernate.order_updates", "true");
+            if (Play.configuration.getProperty("jpa.cache", "false").equals("true")) {
+                // Second-level and query cache in the Play cache
+                cfg.setProperty("hibernate.cache.region.factory_class", PlayRegionFactory.class.getName());
+                cfg.setProperty("hibernate.cache.use_second_level_cache", "true");
+                cfg.setProperty("hibernate.cache.use_query_cache", "true");
+            }
             // inject additional  hibernate.* settings declared in Play! configuration
             cfg.addProperties((Properties) Utils.Maps.filterMap(Play.configuration, "^hibernate\\..*"));
 
@@ -314,7 +338,11 @@ public class JPAPlugin extends PlayPlugin {
         if (tx != null) {
             readOnly = tx.readOnly();
         }
-        startTx(readOnly);
+        if (lazyTxs) {
+            startLazyTx(readOnly);
+        } else {
+            startTx(readOnly);
+        }
     }
 
     @Override
@@ -342,13 +370,32 @@ public class JPAPlugin extends PlayPlugin {
         if (!JPA.isEnabled()) {
             return;
         }
+        JPA.createContext(openTx(readonly), readonly);
+    }
+
+    /**
+     * initialize the JPA context without an entity manager: it is created, and its transaction started,
+     * by the first call to JPA.em()
+     *
+     * @param readonly true for a readonly transaction
+     */
+    public static void startLazyTx(boolean readonly) {
+        if (!JPA.isEnabled()) {
+            return;
+        }
+        JPA.createContext(null, readonly);
+    }
+
+    static EntityManager openTx(boolean readonly) {
+        // The connection is taken when the transaction begins, from a replica if it is read-only
+        RoutingDataSource.setReadOnly(readonly);
         EntityManager manager = JPA.entityManagerFactory.createEntityManager();
         manager.setFlushMode(FlushModeType.COMMIT);
         manager.setProperty("org.hibernate.readOnly", readonly);
         if (autoTxs) {
             manager.getTransaction().begin();
         }
-        JPA.createContext(manager, readonly);
+        return manager;
     }
 
     /**
@@ -361,6 +408,12 @@ public class JPAPlugin extends PlayPlugin {
             return;
         }
         EntityManager manager = JPA.get().entityManager;
+        if (manager == null) {
+            // A lazy transaction that was never used
+            MonitorFactory.add("JPA transactions not needed", "elmts.", 1);
+            JPA.clearContext();
+            return;
+        }
         try {
             if (autoTxs) {
                 // Be sure to set the connection is non-autoCommit mode as some driver will complain about COMMIT statement
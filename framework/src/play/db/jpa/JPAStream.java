@@ -0,0 +1,100 @@
+package play.db.jpa;
+
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * The results of a query, read one by one from a forward-only database cursor.
+ * <p/>
+ * The results are detached every <code>fetchSize</code> rows, so that the persistence context stays small: once
+ * read, their lazy relations can't be loaded anymore. The cursor is closed at the end of the results, or by
+ * {@link #close()}. Example:
+ * <pre>
+ * for (Product product : Product.all().&lt;Product&gt;stream()) {
+ *     response.writeChunk(product.toCsv());
+ * }
+ * </pre>
+ */
+public class JPAStream<T> implements Iterable<T>, Iterator<T> {
+
+    final Session session;
+    final ScrollableResults results;
+    final int fetchSize;
+    final List<Object> read;
+    boolean fetched = false;
+    boolean hasNext = false;
+    boolean closed = false;
+
+    public JPAStream(Session session, ScrollableResults results, int fetchSize) {
+        this.session = session;
+        this.results = results;
+        this.fetchSize = fetchSize;
+        this.read = new ArrayList<Object>(fetchSize);
+    }
+
+    public Iterator<T> iterator() {
+        return this;
+    }
+
+    public boolean hasNext() {
+        if (!fetched) {
+            if (closed) {
+                return false;
+            }
+            if (read.size() >= fetchSize) {
+                detach();
+            }
+            hasNext = results.next();
+            fetched = true;
+            if (!hasNext) {
+                close();
+            }
+        }
+        return hasNext;
+    }
+
+    @SuppressWarnings("unchecked")
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        fetched = false;
+        Object[] row = results.get();
+        for (Object o : row) {
+            if (o != null) {
+                read.add(o);
+            }
+        }
+        // Same as Query.getResultList(): an object for a single column, an array otherwise
+        return (T) (row.length == 1 ? row[0] : row);
+    }
+
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Closes the cursor, and detaches the last results
+     */
+    public void close() {
+        if (!closed) {
+            closed = true;
+            results.close();
+            detach();
+        }
+    }
+
+    void detach() {
+        for (Object o : read) {
+            if (session.contains(o)) {
+                session.evict(o);
+            }
+        }
+        read.clear();
+    }
+}
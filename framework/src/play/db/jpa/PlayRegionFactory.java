@@ -0,0 +1,397 @@
+package play.db.jpa;
+
+import org.hibernate.cache.CacheDataDescription;
+import org.hibernate.cache.CacheException;
+import org.hibernate.cache.CollectionRegion;
+import org.hibernate.cache.EntityRegion;
+import org.hibernate.cache.QueryResultsRegion;
+import org.hibernate.cache.RegionFactory;
+import org.hibernate.cache.Timestamper;
+import org.hibernate.cache.TimestampsRegion;
+import org.hibernate.cache.TransactionalDataRegion;
+import org.hibernate.cache.access.AccessType;
+import org.hibernate.cache.access.CollectionRegionAccessStrategy;
+import org.hibernate.cache.access.EntityRegionAccessStrategy;
+import org.hibernate.cache.access.SoftLock;
+import org.hibernate.cfg.Settings;
+import play.Play;
+import play.cache.Cache;
+import play.libs.Codec;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Hibernate second-level cache stored in the Play cache: EhCache locally, or memcached when it is enabled.
+ * <p/>
+ * Enabled by <code>jpa.cache=true</code>. Entities annotated with <code>@org.hibernate.annotations.Cache</code>
+ * are cached, as well as the results of the queries marked with {@link GenericModel.JPAQuery#cacheable()}.
+ * Entries expire after <code>jpa.cache.expiration</code>, except the update timestamps of the tables, which
+ * tell whether the cached query results are still valid: they never expire.
+ * <p/>
+ * The read-only, nonstrict-read-write and read-write strategies are supported. With read-write, an entity
+ * being updated is locked in the cache, so that a concurrent load doesn't cache its previous state.
+ */
+public class PlayRegionFactory implements RegionFactory {
+
+    /**
+     * How long a node uses the generation of a region before reading it again: the other nodes may read the
+     * entries of a region cleared by a node for this time.
+     */
+    static final long GENERATION_TTL = 1000;
+    static final String NEVER = "0s";
+    static final String LOCK_TIMEOUT = "60s";
+
+    public PlayRegionFactory() {
+    }
+
+    public PlayRegionFactory(Properties properties) {
+    }
+
+    public void start(Settings settings, Properties properties) throws CacheException {
+    }
+
+    public void stop() {
+    }
+
+    public boolean isMinimalPutsEnabledByDefault() {
+        // Avoid useless writes to a remote cache
+        return true;
+    }
+
+    public AccessType getDefaultAccessType() {
+        return AccessType.READ_WRITE;
+    }
+
+    public long nextTimestamp() {
+        return Timestamper.next();
+    }
+
+    static String expiration() {
+        return Play.configuration == null ? "1h" : Play.configuration.getProperty("jpa.cache.expiration", "1h");
+    }
+
+    public EntityRegion buildEntityRegion(String regionName, Properties properties, CacheDataDescription metadata) throws CacheException {
+        return new EntitiesRegion(regionName, expiration(), metadata);
+    }
+
+    public CollectionRegion buildCollectionRegion(String regionName, Properties properties, CacheDataDescription metadata) throws CacheException {
+        return new CollectionsRegion(regionName, expiration(), metadata);
+    }
+
+    public QueryResultsRegion buildQueryResultsRegion(String regionName, Properties properties) throws CacheException {
+        return new QueryResults(regionName, expiration());
+    }
+
+    public TimestampsRegion buildTimestampsRegion(String regionName, Properties properties) throws CacheException {
+        return new Timestamps(regionName);
+    }
+
+    /**
+     * A cache region. Its keys are prefixed by its name and its generation, which changes when the region is
+     * cleared, since the Play cache can't remove entries by prefix.
+     */
+    public static class Region implements org.hibernate.cache.Region {
+
+        final String name;
+        final String expiration;
+        final String generationKey;
+        volatile String generation;
+        volatile long generationReadAt;
+
+        public Region(String name, String expiration) {
+            this.name = name;
+            this.expiration = expiration;
+            this.generationKey = "hibernate:" + name + ":generation";
+        }
+
+        String generation() {
+            String current = generation;
+            long now = System.currentTimeMillis();
+            if (current != null && now - generationReadAt < GENERATION_TTL) {
+                return current;
+            }
+            Object read = Cache.get(generationKey);
+            if (read == null) {
+                // Unknown (first use or evicted): the previous entries must not be read again
+                Cache.add(generationKey, Codec.UUID());
+                read = Cache.get(generationKey);
+            }
+            current = String.valueOf(read);
+            generation = current;
+            generationReadAt = now;
+            return current;
+        }
+
+        String key(Object key) {
+            String id = key.toString();
+            if (id.length() > 150 || id.indexOf(' ') > -1) {
+                // Memcached keys are short, without spaces
+                id = Codec.hexMD5(id);
+            }
+            return "hibernate:" + name + ":" + generation() + ":" + id;
+        }
+
+        public Object get(Object key) throws CacheException {
+            return Cache.get(key(key));
+        }
+
+        public void put(Object key, Object value) throws CacheException {
+            put(key, value, expiration);
+        }
+
+        void put(Object key, Object value, String expiration) {
+            Cache.set(key(key), value, expiration);
+        }
+
+        public void evict(Object key) throws CacheException {
+            Cache.delete(key(key));
+        }
+
+        public void evictAll() throws CacheException {
+            String current = Codec.UUID();
+            Cache.set(generationKey, current);
+            generation = current;
+            generationReadAt = System.currentTimeMillis();
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void destroy() throws CacheException {
+        }
+
+        public boolean contains(Object key) {
+            return get(key) != null;
+        }
+
+        public long nextTimestamp() {
+            return Timestamper.next();
+        }
+
+        public int getTimeout() {
+            // 60 seconds, in Timestamper units
+            return Timestamper.ONE_MS * 60000;
+        }
+
+        public long getSizeInMemory() {
+            return -1;
+        }
+
+        public long getElementCountInMemory() {
+            return -1;
+        }
+
+        public long getElementCountOnDisk() {
+            return -1;
+        }
+
+        public Map toMap() {
+            return Collections.emptyMap();
+        }
+
+        @Override
+        public String toString() {
+            return "PlayCache(" + name + ")";
+        }
+    }
+
+    public static class QueryResults extends Region implements QueryResultsRegion {
+
+        public QueryResults(String name, String expiration) {
+            super(name, expiration);
+        }
+    }
+
+    /**
+     * The last update of each table. A missing one, e.g. evicted by memcached, is taken as an update now: the
+     * query results cached before are not read again.
+     */
+    public static class Timestamps extends Region implements TimestampsRegion {
+
+        public Timestamps(String name) {
+            super(name, NEVER);
+        }
+
+        @Override
+        public Object get(Object key) throws CacheException {
+            Object timestamp = super.get(key);
+            if (timestamp == null) {
+                Cache.add(key(key), nextTimestamp(), NEVER);
+                timestamp = super.get(key);
+            }
+            return timestamp;
+        }
+    }
+
+    static abstract class TransactionalRegion extends Region implements TransactionalDataRegion {
+
+        final CacheDataDescription metadata;
+
+        TransactionalRegion(String name, String expiration, CacheDataDescription metadata) {
+            super(name, expiration);
+            this.metadata = metadata;
+        }
+
+        public boolean isTransactionAware() {
+            return false;
+        }
+
+        public CacheDataDescription getCacheDataDescription() {
+            return metadata;
+        }
+    }
+
+    public static class EntitiesRegion extends TransactionalRegion implements EntityRegion {
+
+        public EntitiesRegion(String name, String expiration, CacheDataDescription metadata) {
+            super(name, expiration, metadata);
+        }
+
+        public EntityRegionAccessStrategy buildAccessStrategy(AccessType accessType) throws CacheException {
+            return new EntityAccess(this, accessType);
+        }
+    }
+
+    public static class CollectionsRegion extends TransactionalRegion implements CollectionRegion {
+
+        public CollectionsRegion(String name, String expiration, CacheDataDescription metadata) {
+            super(name, expiration, metadata);
+        }
+
+        public CollectionRegionAccessStrategy buildAccessStrategy(AccessType accessType) throws CacheException {
+            return new CollectionAccess(this, accessType);
+        }
+    }
+
+    /**
+     * Kept in place of an entry while it is updated, with read-write access
+     */
+    static class Lock implements SoftLock, Serializable {
+    }
+
+    static abstract class Access {
+
+        final TransactionalRegion region;
+        final AccessType accessType;
+
+        Access(TransactionalRegion region, AccessType accessType) {
+            if (accessType == AccessType.TRANSACTIONAL) {
+                throw new CacheException("Transactional access is not supported by the Play cache: " + region.name);
+            }
+            this.region = region;
+            this.accessType = accessType;
+        }
+
+        public Object get(Object key, long txTimestamp) throws CacheException {
+            Object value = region.get(key);
+            return value instanceof Lock ? null : value;
+        }
+
+        public boolean putFromLoad(Object key, Object value, long txTimestamp, Object version) throws CacheException {
+            return putFromLoad(key, value, txTimestamp, version, true);
+        }
+
+        public boolean putFromLoad(Object key, Object value, long txTimestamp, Object version, boolean minimalPutOverride) throws CacheException {
+            Object current = region.get(key);
+            if (current instanceof Lock || (minimalPutOverride && current != null)) {
+                return false;
+            }
+            region.put(key, value);
+            return true;
+        }
+
+        public SoftLock lockItem(Object key, Object version) throws CacheException {
+            if (accessType != AccessType.READ_WRITE) {
+                return null;
+            }
+            Lock lock = new Lock();
+            region.put(key, lock, LOCK_TIMEOUT);
+            return lock;
+        }
+
+        public SoftLock lockRegion() throws CacheException {
+            return null;
+        }
+
+        public void unlockItem(Object key, SoftLock lock) throws CacheException {
+            // The next load caches the new state
+            region.evict(key);
+        }
+
+        public void unlockRegion(SoftLock lock) throws CacheException {
+            region.evictAll();
+        }
+
+        public void remove(Object key) throws CacheException {
+            region.evict(key);
+        }
+
+        public void removeAll() throws CacheException {
+            region.evictAll();
+        }
+
+        public void evict(Object key) throws CacheException {
+            region.evict(key);
+        }
+
+        public void evictAll() throws CacheException {
+            region.evictAll();
+        }
+    }
+
+    static class EntityAccess extends Access implements EntityRegionAccessStrategy {
+
+        EntityAccess(EntitiesRegion region, AccessType accessType) {
+            super(region, accessType);
+        }
+
+        public EntityRegion getRegion() {
+            return (EntityRegion) region;
+        }
+
+        public boolean insert(Object key, Object value, Object version) throws CacheException {
+            return false;
+        }
+
+        public boolean afterInsert(Object key, Object value, Object version) throws CacheException {
+            if (accessType == AccessType.NONSTRICT_READ_WRITE) {
+                return false;
+            }
+            region.put(key, value);
+            return true;
+        }
+
+        public boolean update(Object key, Object value, Object currentVersion, Object previousVersion) throws CacheException {
+            if (accessType == AccessType.READ_ONLY) {
+                throw new UnsupportedOperationException("Can't write to a readonly object");
+            }
+            if (accessType == AccessType.NONSTRICT_READ_WRITE) {
+                region.evict(key);
+            }
+            return false;
+        }
+
+        public boolean afterUpdate(Object key, Object value, Object currentVersion, Object previousVersion, SoftLock lock) throws CacheException {
+            if (accessType == AccessType.READ_ONLY) {
+                throw new UnsupportedOperationException("Can't write to a readonly object");
+            }
+            unlockItem(key, lock);
+            return false;
+        }
+    }
+
+    static class CollectionAccess extends Access implements CollectionRegionAccessStrategy {
+
+        CollectionAccess(CollectionsRegion region, AccessType accessType) {
+            super(region, accessType);
+        }
+
+        public CollectionRegion getRegion() {
+            return (CollectionRegion) region;
+        }
+    }
+}
@@ -10,6 +10,7 @@ import play.exceptions.JavaExecutionException;
 import play.exceptions.PlayException;
 import play.libs.F.Promise;
 import play.libs.Time;
+import play.utils.WheelTimer;
 
 import java.util.Date;
 import java.util.concurrent.Callable;
@@ -91,7 +92,7 @@ public class Job<V> extends Invoker.Invocation implements Callable<V> {
     public Promise<V> in(int seconds) {
         final Promise<V> smartFuture = new Promise<V>();
 
-        JobsPlugin.executor.schedule(new Callable<V>() {
+        WheelTimer.submit(JobsPlugin.executor, new Callable<V>() {
 
             public V call() throws Exception {
                 V result = Job.this.call();
@@ -1,10 +1,13 @@
 package play.libs;
 
 import play.exceptions.UnexpectedException;
+import play.utils.WheelTimer;
 
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 public class F {
 
@@ -359,9 +362,9 @@ public class F {
 
     public static class Timeout extends Promise<Timeout> {
 
-        static Timer timer = new Timer("F.Timeout", true);
         final public String token;
         final public long delay;
+        final org.jboss.netty.util.Timeout scheduled;
 
         public Timeout(String delay) {
             this(Time.parseDuration(delay) * 1000);
@@ -379,13 +382,26 @@ public class F {
             this.delay = delay;
             this.token = token;
             final Timeout timeout = this;
-            timer.schedule(new TimerTask() {
+            this.scheduled = WheelTimer.schedule(new Runnable() {
 
-                @Override
                 public void run() {
                     timeout.invoke(timeout);
                 }
-            }, delay);
+            }, delay, TimeUnit.MILLISECONDS);
+        }
+
+        /**
+         * Removes the timeout from the timer, it will never be redeemed.
+         */
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            scheduled.cancel();
+            return scheduled.isCancelled();
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return scheduled.isCancelled();
         }
 
         @Override
@@ -411,52 +427,140 @@ public class F {
         return new Timeout(token, delay);
     }
 
+    /**
+     * A bounded buffer of sequence numbered values. Publishing never waits for the readers: the oldest values
+     * are overwritten, and a reader that is too late skips to the oldest value still available.
+     * Each reader keeps the sequence number of the next value it reads.
+     */
+    static class RingBuffer<T> {
+
+        static class Slot<T> {
+
+            final long sequence;
+            final T value;
+
+            Slot(long sequence, T value) {
+                this.sequence = sequence;
+                this.value = value;
+            }
+        }
+
+        final int capacity;
+        final AtomicReferenceArray<Slot<T>> slots;
+        final AtomicLong next = new AtomicLong();
+
+        RingBuffer(int capacity) {
+            this.capacity = Math.max(capacity, 1);
+            this.slots = new AtomicReferenceArray<Slot<T>>(this.capacity);
+        }
+
+        /**
+         * @return the sequence number of the next published value
+         */
+        long next() {
+            return next.get();
+        }
+
+        /**
+         * @return the sequence number of the oldest value that can still be read
+         */
+        long oldest() {
+            return Math.max(next.get() - capacity, 0);
+        }
+
+        /**
+         * Publishes the value, unless another value was published with this sequence number
+         */
+        boolean tryPublish(long sequence, T value) {
+            if (!next.compareAndSet(sequence, sequence + 1)) {
+                return false;
+            }
+            slots.set((int) (sequence % capacity), new Slot<T>(sequence, value));
+            return true;
+        }
+
+        long publish(T value) {
+            while (true) {
+                long sequence = next.get();
+                if (tryPublish(sequence, value)) {
+                    return sequence;
+                }
+            }
+        }
+
+        /**
+         * @return the value published with this sequence number, or null if it is not written yet or was overwritten
+         */
+        T get(long sequence) {
+            Slot<T> slot = slots.get((int) (sequence % capacity));
+            return slot != null && slot.sequence == sequence ? slot.value : null;
+        }
+    }
+
     public static class EventStream<T> {
 
         final int bufferSize;
-        final ConcurrentLinkedQueue<T> events = new ConcurrentLinkedQueue<T>();
-        final List<Promise<T>> waiting = Collections.synchronizedList(new ArrayList<Promise<T>>());
+        final RingBuffer<T> events;
+        /**
+         * Sequence number of the next event to read
+         */
+        final AtomicLong cursor = new AtomicLong();
+        final Queue<LazyTask> waiting = new ConcurrentLinkedQueue<LazyTask>();
 
         public EventStream() {
-            this.bufferSize = 100;
+            this(100);
         }
 
         public EventStream(int maxBufferSize) {
             this.bufferSize = maxBufferSize;
+            this.events = new RingBuffer<T>(maxBufferSize);
         }
 
-        public synchronized Promise<T> nextEvent() {
-            if (events.isEmpty()) {
-                LazyTask task = new LazyTask();
-                waiting.add(task);
-                return task;
+        public Promise<T> nextEvent() {
+            LazyTask task = new LazyTask();
+            if (!redeem(task)) {
+                waiting.offer(task);
+                // An event may have been published before the task was queued
+                if (redeem(task)) {
+                    waiting.remove(task);
+                }
             }
-            return new LazyTask(events.peek());
+            return task;
         }
 
-        public synchronized void publish(T event) {
-            if (events.size() > bufferSize) {
-                events.poll();
+        public void publish(T event) {
+            events.publish(event);
+            for (Iterator<LazyTask> it = waiting.iterator(); it.hasNext(); ) {
+                LazyTask task = it.next();
+                if (!task.redeemed.get() && !redeem(task)) {
+                    // Not written yet, its publisher redeems the remaining tasks
+                    break;
+                }
+                it.remove();
             }
-            events.offer(event);
-            notifyNewEvent();
         }
 
-        void notifyNewEvent() {
-            T value = events.peek();
-            for (Promise<T> task : waiting) {
-                task.invoke(value);
-            }
-            waiting.clear();
+        /**
+         * Redeems the task with the next unread event, if any
+         */
+        boolean redeem(LazyTask task) {
+            long sequence = Math.max(cursor.get(), events.oldest());
+            T event = events.get(sequence);
+            return event != null && task.redeem(sequence, event);
         }
 
         class LazyTask extends Promise<T> {
 
-            public LazyTask() {
-            }
+            final AtomicBoolean redeemed = new AtomicBoolean();
+            long sequence;
 
-            public LazyTask(T value) {
+            boolean redeem(long sequence, T value) {
+                if (!redeemed.compareAndSet(false, true)) {
+                    return false;
+                }
+                this.sequence = sequence;
                 invoke(value);
+                return true;
             }
 
             @Override
@@ -475,7 +579,10 @@ public class F {
 
             private void markAsRead(T value) {
                 if (value != null) {
-                    events.remove(value);
+                    long read = cursor.get();
+                    while (read <= sequence && !cursor.compareAndSet(read, sequence + 1)) {
+                        read = cursor.get();
+                    }
                 }
             }
         }
@@ -502,97 +609,182 @@ public class F {
         }
     }
 
+    /**
+     * The last events are archived in a ring buffer. A publication only reads the new event for each
+     * waiting subscriber: it never takes a lock, nor goes through the archive.
+     */
     public static class ArchivedEventStream<T> {
 
         final int archiveSize;
-        final ConcurrentLinkedQueue<IndexedEvent<T>> events = new ConcurrentLinkedQueue<IndexedEvent<T>>();
-        final List<FilterTask<T>> waiting = Collections.synchronizedList(new ArrayList<FilterTask<T>>());
-        final List<EventStream<T>> pipedStreams = new ArrayList<EventStream<T>>();
+        final RingBuffer<IndexedEvent<T>> events;
+        final Queue<FilterTask<T>> waiting = new ConcurrentLinkedQueue<FilterTask<T>>();
+        final List<PipedStream<T>> pipedStreams = new CopyOnWriteArrayList<PipedStream<T>>();
 
         public ArchivedEventStream(int archiveSize) {
             this.archiveSize = archiveSize;
+            this.events = new RingBuffer<IndexedEvent<T>>(archiveSize);
         }
 
-        public synchronized EventStream<T> eventStream() {
-            final EventStream<T> stream = new EventStream<T>(archiveSize);
-            for (IndexedEvent<T> event : events) {
-                stream.publish(event.data);
-            }
-            pipedStreams.add(stream);
-            return stream;
+        public EventStream<T> eventStream() {
+            PipedStream<T> piped = new PipedStream<T>(new EventStream<T>(archiveSize), events.oldest());
+            pipedStreams.add(piped);
+            piped.forward(events);
+            return piped.stream;
         }
 
-        public synchronized Promise<List<IndexedEvent<T>>> nextEvents(long lastEventSeen) {
+        public Promise<List<IndexedEvent<T>>> nextEvents(long lastEventSeen) {
             FilterTask<T> filter = new FilterTask<T>(lastEventSeen);
-            waiting.add(filter);
-            notifyNewEvent();
+            List<IndexedEvent<T>> newEvents = new ArrayList<IndexedEvent<T>>();
+            filter.next = read(firstAfter(lastEventSeen), lastEventSeen, newEvents);
+            if (!filter.trigger(newEvents)) {
+                waiting.offer(filter);
+                // Events may have been published before the filter was queued
+                if (wake(filter)) {
+                    waiting.remove(filter);
+                }
+            }
             return filter;
         }
 
-        public synchronized List<IndexedEvent> availableEvents(long lastEventSeen) {
+        public List<IndexedEvent> availableEvents(long lastEventSeen) {
             List<IndexedEvent> result = new ArrayList<IndexedEvent>();
-            for (IndexedEvent event : events) {
-                if (event.id > lastEventSeen) {
-                    result.add(event);
-                }
-            }
+            read(firstAfter(lastEventSeen), lastEventSeen, result);
             return result;
         }
 
         public List<T> archive() {
-            List<T> result = new ArrayList<T>();
-            for (IndexedEvent<T> event : events) {
+            List<IndexedEvent<T>> archived = new ArrayList<IndexedEvent<T>>();
+            read(events.oldest(), Long.MIN_VALUE, archived);
+            List<T> result = new ArrayList<T>(archived.size());
+            for (IndexedEvent<T> event : archived) {
                 result.add(event.data);
             }
             return result;
         }
 
-        public synchronized void publish(T event) {
-            if (events.size() >= archiveSize) {
-                events.poll();
+        public void publish(T event) {
+            IndexedEvent<T> indexed;
+            long sequence;
+            do {
+                // The id is generated once the sequence number is known, so that the ids of the archive are ordered
+                sequence = events.next();
+                indexed = new IndexedEvent<T>(event);
+            } while (!events.tryPublish(sequence, indexed));
+
+            for (Iterator<FilterTask<T>> it = waiting.iterator(); it.hasNext(); ) {
+                FilterTask<T> filter = it.next();
+                if (filter.redeemed.get() || wake(filter)) {
+                    it.remove();
+                }
             }
-            events.offer(new IndexedEvent(event));
-            notifyNewEvent();
-            for (EventStream<T> eventStream : pipedStreams) {
-                eventStream.publish(event);
+            for (PipedStream<T> piped : pipedStreams) {
+                piped.forward(events);
             }
         }
 
-        void notifyNewEvent() {
-            for (ListIterator<FilterTask<T>> it = waiting.listIterator(); it.hasNext(); ) {
-                FilterTask<T> filter = it.next();
-                for (IndexedEvent<T> event : events) {
-                    filter.propose(event);
+        /**
+         * Redeems a waiting filter with the events published since it started to wait
+         */
+        boolean wake(FilterTask<T> filter) {
+            if (events.get(Math.max(filter.next, events.oldest())) == null) {
+                return false;
+            }
+            List<IndexedEvent<T>> newEvents = new ArrayList<IndexedEvent<T>>();
+            read(filter.next, filter.lastEventSeen, newEvents);
+            return filter.trigger(newEvents);
+        }
+
+        /**
+         * Looks for the first event more recent than lastEventSeen from the newest one, as the subscribers are
+         * usually up to date.
+         */
+        long firstAfter(long lastEventSeen) {
+            long oldest = events.oldest();
+            long sequence = events.next();
+            while (sequence > oldest) {
+                IndexedEvent<T> event = events.get(sequence - 1);
+                // An event that is not written yet may be more recent
+                if (event != null && event.id <= lastEventSeen) {
+                    break;
                 }
-                if (filter.trigger()) {
-                    it.remove();
+                sequence--;
+            }
+            return sequence;
+        }
+
+        /**
+         * Reads the events more recent than lastEventSeen, from this sequence number
+         *
+         * @return the sequence number of the first event that is not published yet
+         */
+        long read(long sequence, long lastEventSeen, List<? super IndexedEvent<T>> result) {
+            sequence = Math.max(sequence, events.oldest());
+            IndexedEvent<T> event;
+            while ((event = events.get(sequence)) != null) {
+                if (event.id > lastEventSeen) {
+                    result.add(event);
                 }
+                sequence++;
             }
+            return sequence;
         }
 
         static class FilterTask<K> extends Promise<List<IndexedEvent<K>>> {
 
             final Long lastEventSeen;
-            final List<IndexedEvent<K>> newEvents = new ArrayList<IndexedEvent<K>>();
+            /**
+             * Sequence number of the first event published after the filter started to wait
+             */
+            volatile long next;
+            final AtomicBoolean redeemed = new AtomicBoolean();
 
             public FilterTask(Long lastEventSeen) {
                 this.lastEventSeen = lastEventSeen;
             }
 
-            public void propose(IndexedEvent<K> event) {
-                if (event.id > lastEventSeen) {
-                    newEvents.add(event);
-                }
-            }
-
-            public boolean trigger() {
-                if (newEvents.isEmpty()) {
+            public boolean trigger(List<IndexedEvent<K>> newEvents) {
+                if (newEvents.isEmpty() || !redeemed.compareAndSet(false, true)) {
                     return false;
                 }
                 invoke(newEvents);
                 return true;
             }
         }
+
+        /**
+         * An event stream fed with the archived events, in order
+         */
+        static class PipedStream<K> {
+
+            final EventStream<K> stream;
+            final AtomicBoolean forwarding = new AtomicBoolean();
+            volatile long next;
+
+            PipedStream(EventStream<K> stream, long next) {
+                this.stream = stream;
+                this.next = next;
+            }
+
+            void forward(RingBuffer<IndexedEvent<K>> events) {
+                while (forwarding.compareAndSet(false, true)) {
+                    try {
+                        long sequence = Math.max(next, events.oldest());
+                        IndexedEvent<K> event;
+                        while ((event = events.get(sequence)) != null) {
+                            stream.publish(event.data);
+                            sequence++;
+                        }
+                        next = sequence;
+                    } finally {
+                        forwarding.set(false);
+                    }
+                    // Another thread may have published while this one was forwarding
+                    if (events.get(Math.max(next, events.oldest())) == null) {
+                        return;
+                    }
+                }
+            }
+        }
     }
 
     public static interface Action0 {
@@ -0,0 +1,112 @@
+package play.libs;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import play.Play;
+import play.classloading.ApplicationClassloaderState;
+
+import java.lang.reflect.Type;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The JSON engine of the application: a Gson instance shared by all the requests, built on first use from the
+ * configuration (<code>json.serializeNulls</code>, <code>json.dateFormat</code>) and the registered type adapters.
+ * It is built again when the ApplicationClassloader state changes, or when an adapter is registered.
+ */
+public class Json {
+
+    static final Map<Type, Object> typeAdapters = new LinkedHashMap<Type, Object>();
+    static final Map<Class<?>, Object> typeHierarchyAdapters = new LinkedHashMap<Class<?>, Object>();
+    static volatile Gson gson;
+    static volatile ApplicationClassloaderState gsonState;
+
+    /**
+     * Add a serializer, deserializer or instance creator for a type, e.g. from a plugin onLoad()
+     *
+     * @param type    The type
+     * @param adapter A JsonSerializer, JsonDeserializer or InstanceCreator
+     */
+    public static synchronized void registerTypeAdapter(Type type, Object adapter) {
+        typeAdapters.put(type, adapter);
+        gson = null;
+    }
+
+    /**
+     * Add a serializer or deserializer for a class and all its subclasses
+     *
+     * @param baseType The class
+     * @param adapter  A JsonSerializer or JsonDeserializer
+     */
+    public static synchronized void registerTypeHierarchyAdapter(Class<?> baseType, Object adapter) {
+        typeHierarchyAdapters.put(baseType, adapter);
+        gson = null;
+    }
+
+    /**
+     * @return A builder with the configuration and the registered adapters of the application
+     */
+    public static synchronized GsonBuilder builder() {
+        GsonBuilder builder = new GsonBuilder();
+        if (Play.configuration != null) {
+            if (Boolean.parseBoolean(Play.configuration.getProperty("json.serializeNulls", "false"))) {
+                builder.serializeNulls();
+            }
+            String dateFormat = Play.configuration.getProperty("json.dateFormat");
+            if (dateFormat != null) {
+                builder.setDateFormat(dateFormat);
+            }
+        }
+        for (Map.Entry<Type, Object> adapter : typeAdapters.entrySet()) {
+            builder.registerTypeAdapter(adapter.getKey(), adapter.getValue());
+        }
+        for (Map.Entry<Class<?>, Object> adapter : typeHierarchyAdapters.entrySet()) {
+            builder.registerTypeHierarchyAdapter(adapter.getKey(), adapter.getValue());
+        }
+        return builder;
+    }
+
+    /**
+     * @return The shared Gson instance
+     */
+    public static Gson gson() {
+        ApplicationClassloaderState currentState = Play.classloader == null ? null : Play.classloader.currentState;
+        Gson current = gson;
+        if (current == null || (currentState != null && !currentState.equals(gsonState))) {
+            synchronized (Json.class) {
+                current = gson;
+                if (current == null || (currentState != null && !currentState.equals(gsonState))) {
+                    current = builder().create();
+                    gson = current;
+                    gsonState = currentState;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Serialize an object
+     *
+     * @param o The object
+     * @return The JSON String
+     */
+    public static String toJson(Object o) {
+        return gson().toJson(o);
+    }
+
+    /**
+     * Serialize an object to a writer, without building the JSON String
+     *
+     * @param o    The object
+     * @param type The type of the object, for generic types, or null to use its class
+     * @param out  The writer
+     */
+    public static void toJson(Object o, Type type, Appendable out) {
+        if (o == null) {
+            gson().toJson(o, out);
+        } else {
+            gson().toJson(o, type == null ? o.getClass() : type, out);
+        }
+    }
+}
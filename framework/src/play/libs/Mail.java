@@ -173,20 +173,23 @@ public class Mail {
      */
     public static Future<Boolean> sendMessage(final Email msg) {
         if (asynchronousSend) {
-            return executor.submit(new Callable<Boolean>() {
+            // A promise, so that a request awaiting it is resumed as soon as the email is sent
+            final F.Promise<Boolean> result = new F.Promise<Boolean>();
+            executor.submit(new Runnable() {
 
-                public Boolean call() {
+                public void run() {
                     try {
                         msg.setSentDate(new Date());
                         msg.send();
-                        return true;
+                        result.invoke(true);
                     } catch (Throwable e) {
                         MailException me = new MailException("Error while sending email", e);
                         Logger.error(me, "The email has not been sent");
-                        return false;
+                        result.invoke(false);
                     }
                 }
             });
+            return result;
         } else {
             final StringBuffer result = new StringBuffer();
             try {
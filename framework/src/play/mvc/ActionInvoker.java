@@ -9,10 +9,11 @@ import play.Invoker.Suspend;
 import play.Logger;
 import play.Play;
 import play.cache.CacheFor;
+import play.classloading.ApplicationClassloaderState;
 import play.classloading.enhancers.ControllersEnhancer;
 import play.classloading.enhancers.ControllersEnhancer.ControllerInstrumentation;
 import play.classloading.enhancers.ControllersEnhancer.ControllerSupport;
-import play.data.binding.Binder;
+import play.data.binding.BindingPlan;
 import play.data.binding.CachedBoundActionMethodArgs;
 import play.data.binding.ParamNode;
 import play.data.binding.RootParamNode;
@@ -26,6 +27,7 @@ import play.mvc.Http.Request;
 import play.mvc.Router.Route;
 import play.mvc.results.NoResult;
 import play.mvc.results.NotFound;
+import play.mvc.results.RenderJson;
 import play.mvc.results.Result;
 import play.utils.Java;
 import play.utils.Utils;
@@ -38,6 +40,9 @@ import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Future;
 
 /**
@@ -144,56 +149,47 @@ public class ActionInvoker {
                 String cacheKey = null;
 
                 // Check the cache (only for GET or HEAD)
-                if ((request.method.equals("GET") || request.method.equals("HEAD")) && actionMethod.isAnnotationPresent(CacheFor.class)) {
-                    cacheKey = actionMethod.getAnnotation(CacheFor.class).id();
+                CacheFor cacheFor = getInterceptors(request).cacheFor;
+                if ((request.method.equals("GET") || request.method.equals("HEAD")) && cacheFor != null) {
+                    cacheKey = cacheFor.id();
                     if ("".equals(cacheKey)) {
                         cacheKey = "urlcache:" + request.url + request.querystring;
                     }
-                    actionResult = (Result) play.cache.Cache.get(cacheKey);
                 }
 
-                if (actionResult == null) {
-                    ControllerInstrumentation.initActionCall();
-                    try {
+                ControllerInstrumentation.initActionCall();
+                try {
+                    if (cacheKey != null) {
+                        // Only one request renders it, the concurrent ones wait for its result
+                        CachedAction cachedAction = new CachedAction(actionMethod);
+                        String stale = "".equals(cacheFor.stale()) ? null : cacheFor.stale();
+                        actionResult = play.cache.Cache.getOrCompute(cacheKey, cacheFor.value(), stale, cachedAction);
+                        if (cachedAction.failure != null) {
+                            throw cachedAction.failure;
+                        }
+                    } else {
                         inferResult(invokeControllerMethod(actionMethod));
-                    } catch (InvocationTargetException ex) {
-                        // It's a Result ? (expected)
-                        if (ex.getTargetException() instanceof Result) {
-                            actionResult = (Result) ex.getTargetException();
-                            // Cache it if needed
-                            if (cacheKey != null) {
-                                play.cache.Cache.set(cacheKey, actionResult, actionMethod.getAnnotation(CacheFor.class).value());
-                            }
-
-                        } else {
-                            // @Catch
-                            Object[] args = new Object[]{ex.getTargetException()};
-                            List<Method> catches = Java.findAllAnnotatedMethods(Controller.getControllerClass(), Catch.class);
-                            Collections.sort(catches, new Comparator<Method>() {
-
-                                public int compare(Method m1, Method m2) {
-                                    Catch catch1 = m1.getAnnotation(Catch.class);
-                                    Catch catch2 = m2.getAnnotation(Catch.class);
-                                    return catch1.priority() - catch2.priority();
-                                }
-                            });
-                            ControllerInstrumentation.stopActionCall();
-                            for (Method mCatch : catches) {
-                                Class[] exceptions = mCatch.getAnnotation(Catch.class).value();
-                                if (exceptions.length == 0) {
-                                    exceptions = new Class[]{Exception.class};
-                                }
-                                for (Class exception : exceptions) {
-                                    if (exception.isInstance(args[0])) {
-                                        mCatch.setAccessible(true);
-                                        inferResult(invokeControllerMethod(mCatch, args));
-                                        break;
-                                    }
+                    }
+                } catch (InvocationTargetException ex) {
+                    // It's a Result ? (expected)
+                    if (ex.getTargetException() instanceof Result) {
+                        actionResult = (Result) ex.getTargetException();
+                    } else {
+                        // @Catch
+                        Object[] args = new Object[]{ex.getTargetException()};
+                        ActionInterceptors interceptors = getInterceptors(request);
+                        ControllerInstrumentation.stopActionCall();
+                        for (int i = 0; i < interceptors.catches.size(); i++) {
+                            Method mCatch = interceptors.catches.get(i);
+                            for (Class exception : interceptors.catchTypes.get(i)) {
+                                if (exception.isInstance(args[0])) {
+                                    inferResult(invokeControllerMethod(mCatch, args));
+                                    break;
                                 }
                             }
-
-                            throw ex;
                         }
+
+                        throw ex;
                     }
                 }
 
@@ -240,12 +236,7 @@ public class ActionInvoker {
             Scope.Session.current().save();
             Scope.Flash.current().save();
 
-            result.apply(request, response);
-
-            Play.pluginCollection.afterActionInvocation();
-
-            // @Finally
-            handleFinallies(request, null);
+            applyResult(result, request, response);
 
         } catch (PlayException e) {
             handleFinallies(request, e);
@@ -260,6 +251,24 @@ public class ActionInvoker {
         }
     }
 
+    /**
+     * Applies the result of the action, then calls the @Finally methods. They are also called when applying the
+     * result fails, e.g. when a streamed template is rendered.
+     */
+    static void applyResult(Result result, Http.Request request, Http.Response response) {
+        try {
+            result.apply(request, response);
+        } catch (RuntimeException e) {
+            handleFinallies(request, e);
+            throw e;
+        }
+
+        Play.pluginCollection.afterActionInvocation();
+
+        // @Finally
+        handleFinallies(request, null);
+    }
+
     private static boolean isActionMethod(Method method) {
         if (method.isAnnotationPresent(Before.class)) {
             return false;
@@ -280,86 +289,18 @@ public class ActionInvoker {
     }
 
     private static void handleBefores(Http.Request request) throws Exception {
-        List<Method> befores = Java.findAllAnnotatedMethods(Controller.getControllerClass(), Before.class);
-        Collections.sort(befores, new Comparator<Method>() {
-
-            public int compare(Method m1, Method m2) {
-                Before before1 = m1.getAnnotation(Before.class);
-                Before before2 = m2.getAnnotation(Before.class);
-                return before1.priority() - before2.priority();
-            }
-        });
+        List<Method> befores = getInterceptors(request).befores;
         ControllerInstrumentation.stopActionCall();
         for (Method before : befores) {
-            String[] unless = before.getAnnotation(Before.class).unless();
-            String[] only = before.getAnnotation(Before.class).only();
-            boolean skip = false;
-            for (String un : only) {
-                if (!un.contains(".")) {
-                    un = before.getDeclaringClass().getName().substring(12).replace("$", "") + "." + un;
-                }
-                if (un.equals(request.action)) {
-                    skip = false;
-                    break;
-                } else {
-                    skip = true;
-                }
-            }
-            for (String un : unless) {
-                if (!un.contains(".")) {
-                    un = before.getDeclaringClass().getName().substring(12).replace("$", "") + "." + un;
-                }
-                if (un.equals(request.action)) {
-                    skip = true;
-                    break;
-                }
-            }
-            if (!skip) {
-                before.setAccessible(true);
-                inferResult(invokeControllerMethod(before));
-            }
+            inferResult(invokeControllerMethod(before));
         }
     }
 
     private static void handleAfters(Http.Request request) throws Exception {
-        List<Method> afters = Java.findAllAnnotatedMethods(Controller.getControllerClass(), After.class);
-        Collections.sort(afters, new Comparator<Method>() {
-
-            public int compare(Method m1, Method m2) {
-                After after1 = m1.getAnnotation(After.class);
-                After after2 = m2.getAnnotation(After.class);
-                return after1.priority() - after2.priority();
-            }
-        });
+        List<Method> afters = getInterceptors(request).afters;
         ControllerInstrumentation.stopActionCall();
         for (Method after : afters) {
-            String[] unless = after.getAnnotation(After.class).unless();
-            String[] only = after.getAnnotation(After.class).only();
-            boolean skip = false;
-            for (String un : only) {
-                if (!un.contains(".")) {
-                    un = after.getDeclaringClass().getName().substring(12) + "." + un;
-                }
-                if (un.equals(request.action)) {
-                    skip = false;
-                    break;
-                } else {
-                    skip = true;
-                }
-            }
-            for (String un : unless) {
-                if (!un.contains(".")) {
-                    un = after.getDeclaringClass().getName().substring(12) + "." + un;
-                }
-                if (un.equals(request.action)) {
-                    skip = true;
-                    break;
-                }
-            }
-            if (!skip) {
-                after.setAccessible(true);
-                inferResult(invokeControllerMethod(after));
-            }
+            inferResult(invokeControllerMethod(after));
         }
     }
 
@@ -379,52 +320,17 @@ public class ActionInvoker {
         }
 
         try {
-            List<Method> allFinally = Java.findAllAnnotatedMethods(Controller.getControllerClass(), Finally.class);
-            Collections.sort(allFinally, new Comparator<Method>() {
-
-                public int compare(Method m1, Method m2) {
-                    Finally finally1 = m1.getAnnotation(Finally.class);
-                    Finally finally2 = m2.getAnnotation(Finally.class);
-                    return finally1.priority() - finally2.priority();
-                }
-            });
+            List<Method> allFinally = getInterceptors(request).finallies;
             ControllerInstrumentation.stopActionCall();
             for (Method aFinally : allFinally) {
-                String[] unless = aFinally.getAnnotation(Finally.class).unless();
-                String[] only = aFinally.getAnnotation(Finally.class).only();
-                boolean skip = false;
-                for (String un : only) {
-                    if (!un.contains(".")) {
-                        un = aFinally.getDeclaringClass().getName().substring(12) + "." + un;
-                    }
-                    if (un.equals(request.action)) {
-                        skip = false;
-                        break;
-                    } else {
-                        skip = true;
-                    }
-                }
-                for (String un : unless) {
-                    if (!un.contains(".")) {
-                        un = aFinally.getDeclaringClass().getName().substring(12) + "." + un;
-                    }
-                    if (un.equals(request.action)) {
-                        skip = true;
-                        break;
-                    }
-                }
-                if (!skip) {
-                    aFinally.setAccessible(true);
-
-                    //check if method accepts Throwable as only parameter
-                    Class[] parameterTypes = aFinally.getParameterTypes();
-                    if (parameterTypes.length == 1 && parameterTypes[0] == Throwable.class) {
-                        //invoking @Finally method with caughtException as parameter
-                        invokeControllerMethod(aFinally, new Object[]{caughtException});
-                    } else {
-                        //invoce @Finally-method the regular way without caughtException
-                        invokeControllerMethod(aFinally, null);
-                    }
+                //check if method accepts Throwable as only parameter
+                Class[] parameterTypes = aFinally.getParameterTypes();
+                if (parameterTypes.length == 1 && parameterTypes[0] == Throwable.class) {
+                    //invoking @Finally method with caughtException as parameter
+                    invokeControllerMethod(aFinally, new Object[]{caughtException});
+                } else {
+                    //invoce @Finally-method the regular way without caughtException
+                    invokeControllerMethod(aFinally, null);
                 }
             }
         } catch (InvocationTargetException ex) {
@@ -438,6 +344,187 @@ public class ActionInvoker {
         }
     }
 
+    /**
+     * Invokes a @CacheFor action for Cache.getOrCompute(): its result, ready to be cached, or null with the
+     * failure of the action kept for the @Catch methods.
+     */
+    static class CachedAction implements Callable<Result> {
+
+        final Method actionMethod;
+        InvocationTargetException failure;
+
+        CachedAction(Method actionMethod) {
+            this.actionMethod = actionMethod;
+        }
+
+        public Result call() throws Exception {
+            ControllerInstrumentation.initActionCall();
+            Result result;
+            try {
+                inferResult(invokeControllerMethod(actionMethod));
+                return null;
+            } catch (InvocationTargetException ex) {
+                if (!(ex.getTargetException() instanceof Result)) {
+                    failure = ex;
+                    return null;
+                }
+                result = (Result) ex.getTargetException();
+            } catch (Result r) {
+                result = r;
+            }
+            if (result instanceof RenderJson) {
+                result = ((RenderJson) result).rendered();
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Interceptors and @CacheFor of the actions, by controller class then action name.
+     */
+    static final ConcurrentMap<Class<?>, ConcurrentMap<String, ActionInterceptors>> interceptors = new ConcurrentHashMap<Class<?>, ConcurrentMap<String, ActionInterceptors>>();
+    static volatile ApplicationClassloaderState interceptorsState;
+
+    /**
+     * Get the interceptors of the resolved action, computing them on first use.
+     * They are dropped when the ApplicationClassloader state changes.
+     */
+    static ActionInterceptors getInterceptors(Http.Request request) {
+        ApplicationClassloaderState currentState = Play.classloader.currentState;
+        if (!currentState.equals(interceptorsState)) {
+            synchronized (interceptors) {
+                if (!currentState.equals(interceptorsState)) {
+                    interceptors.clear();
+                    interceptorsState = currentState;
+                }
+            }
+        }
+        ConcurrentMap<String, ActionInterceptors> byAction = interceptors.get(request.controllerClass);
+        if (byAction == null) {
+            interceptors.putIfAbsent(request.controllerClass, new ConcurrentHashMap<String, ActionInterceptors>());
+            byAction = interceptors.get(request.controllerClass);
+        }
+        ActionInterceptors actionInterceptors = byAction.get(request.action);
+        if (actionInterceptors == null) {
+            actionInterceptors = new ActionInterceptors(request.controllerClass, request.invokedMethod, request.action);
+            byAction.putIfAbsent(request.action, actionInterceptors);
+        }
+        return actionInterceptors;
+    }
+
+    /**
+     * The @Before, @After, @Finally and @Catch methods applying to an action, sorted by priority,
+     * and its @CacheFor annotation.
+     */
+    static class ActionInterceptors {
+
+        final List<Method> befores;
+        final List<Method> afters;
+        final List<Method> finallies;
+        final List<Method> catches;
+        /**
+         * Exceptions handled by each @Catch method.
+         */
+        final List<Class[]> catchTypes;
+        final CacheFor cacheFor;
+
+        ActionInterceptors(Class<?> controllerClass, Method actionMethod, String action) {
+            List<Method> befores = new ArrayList<Method>();
+            for (Method before : sorted(controllerClass, Before.class)) {
+                Before annotation = before.getAnnotation(Before.class);
+                if (!isSkipped(before, annotation.only(), annotation.unless(), action, true)) {
+                    befores.add(before);
+                }
+            }
+            List<Method> afters = new ArrayList<Method>();
+            for (Method after : sorted(controllerClass, After.class)) {
+                After annotation = after.getAnnotation(After.class);
+                if (!isSkipped(after, annotation.only(), annotation.unless(), action, false)) {
+                    afters.add(after);
+                }
+            }
+            List<Method> finallies = new ArrayList<Method>();
+            for (Method aFinally : sorted(controllerClass, Finally.class)) {
+                Finally annotation = aFinally.getAnnotation(Finally.class);
+                if (!isSkipped(aFinally, annotation.only(), annotation.unless(), action, false)) {
+                    finallies.add(aFinally);
+                }
+            }
+            List<Method> catches = sorted(controllerClass, Catch.class);
+            List<Class[]> catchTypes = new ArrayList<Class[]>(catches.size());
+            for (Method mCatch : catches) {
+                Class[] exceptions = mCatch.getAnnotation(Catch.class).value();
+                if (exceptions.length == 0) {
+                    exceptions = new Class[]{Exception.class};
+                }
+                catchTypes.add(exceptions);
+            }
+            this.befores = Collections.unmodifiableList(befores);
+            this.afters = Collections.unmodifiableList(afters);
+            this.finallies = Collections.unmodifiableList(finallies);
+            this.catches = Collections.unmodifiableList(catches);
+            this.catchTypes = Collections.unmodifiableList(catchTypes);
+            this.cacheFor = actionMethod == null ? null : actionMethod.getAnnotation(CacheFor.class);
+        }
+
+        static List<Method> sorted(Class<?> controllerClass, final Class<? extends Annotation> annotationType) {
+            // Copy, the list returned by Java is shared
+            List<Method> methods = new ArrayList<Method>(Java.findAllAnnotatedMethods(controllerClass, annotationType));
+            Collections.sort(methods, new Comparator<Method>() {
+
+                public int compare(Method m1, Method m2) {
+                    return priority(m1.getAnnotation(annotationType)) - priority(m2.getAnnotation(annotationType));
+                }
+            });
+            for (Method method : methods) {
+                method.setAccessible(true);
+            }
+            return methods;
+        }
+
+        static int priority(Annotation annotation) {
+            if (annotation instanceof Before) {
+                return ((Before) annotation).priority();
+            }
+            if (annotation instanceof After) {
+                return ((After) annotation).priority();
+            }
+            if (annotation instanceof Finally) {
+                return ((Finally) annotation).priority();
+            }
+            return ((Catch) annotation).priority();
+        }
+
+        static boolean isSkipped(Method interceptor, String[] only, String[] unless, String action, boolean removeDollar) {
+            String controller = interceptor.getDeclaringClass().getName().substring(12);
+            if (removeDollar) {
+                controller = controller.replace("$", "");
+            }
+            boolean skip = false;
+            for (String un : only) {
+                if (!un.contains(".")) {
+                    un = controller + "." + un;
+                }
+                if (un.equals(action)) {
+                    skip = false;
+                    break;
+                } else {
+                    skip = true;
+                }
+            }
+            for (String un : unless) {
+                if (!un.contains(".")) {
+                    un = controller + "." + un;
+                }
+                if (un.equals(action)) {
+                    skip = true;
+                    break;
+                }
+            }
+            return skip;
+        }
+    }
+
     @SuppressWarnings("unchecked")
     public static void inferResult(Object o) {
         // Return type inference
@@ -609,11 +696,7 @@ public class ActionInvoker {
 
 
     public static Object[] getActionMethodArgs(Method method, Object o) throws Exception {
-        String[] paramsNames = Java.parameterNames(method);
-        if (paramsNames == null && method.getParameterTypes().length > 0) {
-            throw new UnexpectedException("Parameter names not found for method " + method);
-        }
-
+        BindingPlan plan = BindingPlan.forMethod(method);
 
         // Check if we have already performed the bind operation
         Object[] rArgs = CachedBoundActionMethodArgs.current().retrieveActionMethodArgs(method);
@@ -623,28 +706,30 @@ public class ActionInvoker {
             return rArgs;
         }
 
-        rArgs = new Object[method.getParameterTypes().length];
-        for (int i = 0; i < method.getParameterTypes().length; i++) {
+        rArgs = new Object[plan.params.length];
+        RootParamNode allParams = null;
+        for (int i = 0; i < plan.params.length; i++) {
 
-            Class<?> type = method.getParameterTypes()[i];
-            Map<String, String[]> params = new HashMap<String, String[]>();
+            BindingPlan.Param param = plan.params[i];
+            RootParamNode root;
 
             // In case of simple params, we don't want to parse the body.
-            if (type.equals(String.class) || Number.class.isAssignableFrom(type) || type.isPrimitive()) {
-                params.put(paramsNames[i], Scope.Params.current().getAll(paramsNames[i]));
+            if (param.simple) {
+                Map<String, String[]> params = new HashMap<String, String[]>();
+                params.put(param.name, Scope.Params.current().getAll(param.name));
+                root = ParamNode.convert(params);
             } else {
-                params.putAll(Scope.Params.current().all());
-            }
-            Logger.trace("getActionMethodArgs name [" + paramsNames[i] + "] annotation [" + Utils.join(method.getParameterAnnotations()[i], " ") + "]");
-
-            RootParamNode root = ParamNode.convert(params);
-            rArgs[i] = Binder.bind(
-                    root,
-                    paramsNames[i],
-                    method.getParameterTypes()[i],
-                    method.getGenericParameterTypes()[i],
-                    method.getParameterAnnotations()[i],
-                    new Binder.MethodAndParamInfo(o, method, i + 1));
+                // Shared by the other params, the binders restore the nodes they remove
+                if (allParams == null) {
+                    allParams = ParamNode.convert(new HashMap<String, String[]>(Scope.Params.current().all()));
+                }
+                root = allParams;
+            }
+            if (Logger.isTraceEnabled()) {
+                Logger.trace("getActionMethodArgs name [" + param.name + "] annotation [" + Utils.join(param.annotations, " ") + "]");
+            }
+
+            rArgs[i] = plan.bind(root, i, o);
         }
 
         CachedBoundActionMethodArgs.current().storeActionMethodArgs(method, rArgs);
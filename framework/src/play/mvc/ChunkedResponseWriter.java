@@ -0,0 +1,84 @@
+package play.mvc;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+/**
+ * Writer encoding its content with the response encoding.
+ * <p/>
+ * The content is buffered until the flush threshold is reached, then sent as chunks with
+ * <code>Response.writeChunk</code>. If the threshold is never reached, closing the writer
+ * copies the content to <code>response.out</code> and the response is sent as usual.
+ */
+public class ChunkedResponseWriter extends Writer {
+
+    final Http.Response response;
+    final int threshold;
+    final ByteArrayOutputStream buffer;
+    final Writer encoder;
+    /**
+     * Characters written since the last chunk.
+     */
+    int pending;
+    boolean streaming;
+
+    public ChunkedResponseWriter(Http.Response response, int threshold) throws IOException {
+        this.response = response;
+        this.threshold = threshold;
+        this.buffer = new ByteArrayOutputStream(Math.min(threshold, 65536) + 1024);
+        this.encoder = new OutputStreamWriter(buffer, response.encoding);
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+        encoder.write(cbuf, off, len);
+        written(len);
+    }
+
+    @Override
+    public void write(String str, int off, int len) throws IOException {
+        encoder.write(str, off, len);
+        written(len);
+    }
+
+    void written(int len) throws IOException {
+        pending += len;
+        if (pending >= threshold) {
+            sendChunk();
+        }
+    }
+
+    void sendChunk() throws IOException {
+        encoder.flush();
+        if (buffer.size() > 0) {
+            response.writeChunk(buffer.toByteArray());
+            buffer.reset();
+        }
+        streaming = true;
+        pending = 0;
+    }
+
+    /**
+     * @return true if the content is sent with chunked transfer
+     */
+    public boolean isStreaming() {
+        return streaming;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        encoder.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (streaming) {
+            sendChunk();
+        } else {
+            encoder.flush();
+            buffer.writeTo(response.out);
+        }
+    }
+}
@@ -1,6 +1,5 @@
 package play.mvc;
 
-import com.google.gson.Gson;
 import play.Logger;
 import play.Play;
 import play.exceptions.UnexpectedException;
@@ -9,6 +8,7 @@ import play.libs.F;
 import play.libs.F.EventStream;
 import play.libs.F.Option;
 import play.libs.F.Promise;
+import play.libs.Json;
 import play.libs.Time;
 import play.utils.HTTP;
 import play.utils.Utils;
@@ -822,6 +822,13 @@ public class Http {
         public void onWriteChunk(F.Action<Object> handler) {
             writeChunkHandlers.add(handler);
         }
+
+        /**
+         * @return true if the HTTP server supports chunked response stream
+         */
+        public boolean canWriteChunks() {
+            return !writeChunkHandlers.isEmpty();
+        }
     }
 
     /**
@@ -883,7 +890,7 @@ public class Http {
         }
 
         public void sendJson(Object o) {
-            send(new Gson().toJson(o));
+            send(Json.toJson(o));
         }
     }
 
@@ -0,0 +1,272 @@
+package play.mvc;
+
+import play.Play;
+import play.mvc.Router.Route;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Compiled view of the routes list used to avoid matching every route against each request.
+ * <p/>
+ * Routes are split by HTTP method, then indexed in a trie over the static segments at the start
+ * of their path. Looking up a request only returns the routes whose static prefix is compatible with
+ * the request path, in their original order, so <code>Route.matches</code> still has the final word
+ * and the first matching route wins as before.
+ * <p/>
+ * It also indexes routes by action name for reverse routing: routes with a literal action are found by
+ * a map lookup, and only the routes with a dynamic action (such as <code>{controller}.{action}</code>) are
+ * matched against the action pattern.
+ */
+public class RouteDispatcher {
+
+    static final String[] METHODS = {"GET", "POST", "PUT", "DELETE", "OPTIONS", "HEAD", "WS"};
+    static final String REGEX_CHARS = "{}[]()?*+.\\^$|";
+    static final int MAX_CACHED_ACTIONS = 10000;
+
+    final Route[] routes;
+    /**
+     * Modification count of the routes list this dispatcher was compiled from.
+     */
+    final int version;
+    final Map<String, Node> roots = new HashMap<String, Node>(16);
+    /**
+     * Lower cased literal action -> routes indexes.
+     */
+    final Map<String, int[]> actions = new HashMap<String, int[]>();
+    /**
+     * Indexes of the routes whose action has to be matched against their action pattern.
+     */
+    final int[] dynamicActions;
+    final ConcurrentMap<String, List<Route>> reverseCache = new ConcurrentHashMap<String, List<Route>>();
+
+    RouteDispatcher(List<Route> routes, int version) {
+        this.version = version;
+        this.routes = routes.toArray(new Route[routes.size()]);
+        for (String method : METHODS) {
+            roots.put(method, new Node());
+        }
+        for (int i = 0; i < this.routes.length; i++) {
+            Route route = this.routes[i];
+            List<String> segments = staticSegments(route.path);
+            for (String method : METHODS) {
+                if (accepts(route, method)) {
+                    roots.get(method).insert(segments, i);
+                }
+            }
+        }
+        for (Node root : roots.values()) {
+            root.freeze();
+        }
+        Map<String, List<Integer>> literal = new HashMap<String, List<Integer>>();
+        List<Integer> dynamic = new ArrayList<Integer>();
+        for (int i = 0; i < this.routes.length; i++) {
+            Route route = this.routes[i];
+            if (route.actionPattern == null) {
+                continue;
+            }
+            if (route.literalAction) {
+                String key = route.action.toLowerCase();
+                if (!literal.containsKey(key)) {
+                    literal.put(key, new ArrayList<Integer>(2));
+                }
+                literal.get(key).add(i);
+            } else {
+                dynamic.add(i);
+            }
+        }
+        for (Map.Entry<String, List<Integer>> entry : literal.entrySet()) {
+            actions.put(entry.getKey(), toArray(entry.getValue()));
+        }
+        dynamicActions = toArray(dynamic);
+    }
+
+    /**
+     * Compile the given routes.
+     *
+     * @param version The modification count of the routes list, used to detect a stale dispatcher.
+     */
+    public static RouteDispatcher compile(List<Route> routes, int version) {
+        return new RouteDispatcher(routes, version);
+    }
+
+    /**
+     * Return the routes that may match this method and path, in routes file order.
+     *
+     * @param method GET/POST/etc. If null or not a known method, all the routes are returned.
+     * @param path   Part after domain and before query-string.
+     */
+    public List<Route> candidates(String method, String path) {
+        Node root = method == null ? null : roots.get(method.toUpperCase());
+        if (root == null || path == null) {
+            return Arrays.asList(routes);
+        }
+        // Same normalization as Route.matches
+        if (path.equals(Play.ctxPath)) {
+            path = path + "/";
+        }
+        List<int[]> found = new ArrayList<int[]>(8);
+        Node node = root;
+        found.add(node.routes);
+        int start = path.startsWith("/") ? 1 : 0;
+        while (start <= path.length()) {
+            int end = path.indexOf('/', start);
+            if (end < 0) {
+                end = path.length();
+            }
+            node = node.child(path.substring(start, end));
+            if (node == null) {
+                break;
+            }
+            found.add(node.routes);
+            start = end + 1;
+        }
+        return merge(found);
+    }
+
+    /**
+     * Return the routes that may reverse this action, in routes file order.
+     *
+     * @param action The action, without the "controllers." prefix.
+     */
+    public List<Route> reverseCandidates(String action) {
+        String key = action.toLowerCase();
+        List<Route> candidates = reverseCache.get(key);
+        if (candidates == null) {
+            List<int[]> found = new ArrayList<int[]>(2);
+            found.add(dynamicActions);
+            if (actions.containsKey(key)) {
+                found.add(actions.get(key));
+            }
+            candidates = Collections.unmodifiableList(merge(found));
+            if (reverseCache.size() < MAX_CACHED_ACTIONS) {
+                reverseCache.put(key, candidates);
+            }
+        }
+        return candidates;
+    }
+
+    List<Route> merge(List<int[]> found) {
+        int total = 0;
+        for (int[] indexes : found) {
+            total += indexes.length;
+        }
+        if (total == 0) {
+            return Collections.emptyList();
+        }
+        int[] all = new int[total];
+        int pos = 0;
+        for (int[] indexes : found) {
+            System.arraycopy(indexes, 0, all, pos, indexes.length);
+            pos += indexes.length;
+        }
+        if (found.size() > 1) {
+            Arrays.sort(all);
+        }
+        List<Route> result = new ArrayList<Route>(total);
+        for (int index : all) {
+            result.add(routes[index]);
+        }
+        return result;
+    }
+
+    static int[] toArray(List<Integer> indexes) {
+        int[] result = new int[indexes.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = indexes.get(i);
+        }
+        return result;
+    }
+
+    static boolean accepts(Route route, String method) {
+        return route.method == null || route.method.equals("*") || method.equalsIgnoreCase(route.method)
+                || (method.equals("HEAD") && "GET".equalsIgnoreCase(route.method));
+    }
+
+    /**
+     * The path segments every request path matched by this route path starts with.
+     * Stops at the first argument or regular expression construct.
+     */
+    static List<String> staticSegments(String path) {
+        List<String> segments = new ArrayList<String>(4);
+        if (path == null || !path.startsWith("/") || path.indexOf('|') > -1) {
+            return segments;
+        }
+        // Optional trailing slash: the last segment is still complete
+        if (path.endsWith("/?")) {
+            path = path.substring(0, path.length() - 2);
+        }
+        int end = path.length();
+        boolean literal = true;
+        for (int i = 1; i < path.length(); i++) {
+            char c = path.charAt(i);
+            if (REGEX_CHARS.indexOf(c) > -1) {
+                end = i;
+                // The previous character is optional or repeated
+                if (c == '?' || c == '*' || c == '+') {
+                    end--;
+                }
+                literal = false;
+                break;
+            }
+        }
+        if (end <= 1) {
+            return segments;
+        }
+        String[] parts = path.substring(1, end).split("/", -1);
+        for (int i = 0; i < parts.length; i++) {
+            boolean last = i == parts.length - 1;
+            if (last && (!literal || parts[i].length() == 0)) {
+                break;
+            }
+            segments.add(parts[i]);
+        }
+        return segments;
+    }
+
+    static class Node {
+
+        static final int[] NONE = new int[0];
+        Map<String, Node> children;
+        List<Integer> building = new ArrayList<Integer>(2);
+        int[] routes = NONE;
+
+        void insert(List<String> segments, int index) {
+            Node node = this;
+            for (String segment : segments) {
+                if (node.children == null) {
+                    node.children = new HashMap<String, Node>(4);
+                }
+                Node child = node.children.get(segment);
+                if (child == null) {
+                    child = new Node();
+                    node.children.put(segment, child);
+                }
+                node = child;
+            }
+            node.building.add(index);
+        }
+
+        Node child(String segment) {
+            return children == null ? null : children.get(segment);
+        }
+
+        void freeze() {
+            if (!building.isEmpty()) {
+                routes = toArray(building);
+            }
+            building = null;
+            if (children != null) {
+                for (Node child : children.values()) {
+                    child.freeze();
+                }
+            }
+        }
+    }
+}
@@ -21,6 +21,7 @@ import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
 import java.util.*;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * The router matches HTTP requests to action invocations
@@ -229,10 +230,52 @@ public class Router {
     /**
      * All the loaded routes.
      */
-    public static List<Route> routes = new CopyOnWriteArrayList<Route>();
+    public static List<Route> routes = new RoutesList();
+    /**
+     * Compiled view of the routes, rebuilt on first use after the routes list changed.
+     */
+    static volatile RouteDispatcher dispatcher;
+
+    /**
+     * The routes that may match this method and path, in routes file order.
+     */
+    static List<Route> candidates(String method, String path) {
+        RouteDispatcher current = dispatcher();
+        return current == null ? routes : current.candidates(method, path);
+    }
+
+    /**
+     * The routes that may reverse this action, in routes file order.
+     */
+    static List<Route> reverseCandidates(String action) {
+        RouteDispatcher current = dispatcher();
+        return current == null ? routes : current.reverseCandidates(action);
+    }
+
+    /**
+     * @return the dispatcher compiled from the current routes, or null if the routes list has been replaced.
+     */
+    static RouteDispatcher dispatcher() {
+        if (!(routes instanceof RoutesList)) {
+            return null;
+        }
+        RoutesList list = (RoutesList) routes;
+        RouteDispatcher current = dispatcher;
+        int version = list.version.get();
+        if (current == null || current.version != version) {
+            synchronized (Router.class) {
+                current = dispatcher;
+                if (current == null || current.version != version) {
+                    current = RouteDispatcher.compile(list, version);
+                    dispatcher = current;
+                }
+            }
+        }
+        return current;
+    }
 
     public static void routeOnlyStatic(Http.Request request) {
-        for (Route route : routes) {
+        for (Route route : candidates(request.method, request.path)) {
             try {
                 if (route.matches(request.method, request.path, request.format, request.domain) != null) {
                     break;
@@ -262,7 +305,7 @@ public class Router {
                 request.method = matcher.group("method");
             }
         }
-        for (Route route : routes) {
+        for (Route route : candidates(request.method, request.path)) {
             Map<String, String> args = route.matches(request.method, request.path, request.format, request.domain);
             if (args != null) {
                 request.routeArgs = args;
@@ -302,7 +345,7 @@ public class Router {
     }
 
     public static Map<String, String> route(String method, String path, String headers, String host) {
-        for (Route route : routes) {
+        for (Route route : candidates(method, path)) {
             Map<String, String> args = route.matches(method, path, headers, host);
             if (args != null) {
                 args.put("action", route.action);
@@ -413,10 +456,11 @@ public class Router {
                 }
             }
         }
-        for (Route route : routes) {
+        for (Route route : reverseCandidates(action)) {
             if (route.actionPattern != null) {
-                Matcher matcher = route.actionPattern.matcher(action);
-                if (matcher.matches()) {
+                // Literal actions are already matched by the reverse index
+                Matcher matcher = route.literalAction ? null : route.actionPattern.matcher(action);
+                if (matcher == null || matcher.matches()) {
                     for (String group : route.actionArgs) {
                         String v = matcher.group(group);
                         if (v == null) {
@@ -472,23 +516,13 @@ public class Router {
                     }
                     if (allRequiredArgsAreHere) {
                         StringBuilder queryString = new StringBuilder();
-                        String path = route.path;
-                        String host = route.host;
-                        if (path.endsWith("/?")) {
-                            path = path.substring(0, path.length() - 2);
-                        }
+                        String path = route.pathTemplate.render(args, inPathArgs, true);
+                        String host = route.hostTemplate().render(args, inPathArgs, false);
                         for (Map.Entry<String, Object> entry : args.entrySet()) {
                             String key = entry.getKey();
                             Object value = entry.getValue();
                             if (inPathArgs.contains(key) && value != null) {
-                                if (List.class.isAssignableFrom(value.getClass())) {
-                                    @SuppressWarnings("unchecked")
-                                    List<Object> vals = (List<Object>) value;
-                                    path = path.replaceAll("\\{(<[^>]+>)?" + key + "\\}", vals.get(0).toString()).replace("$", "\\$");
-                                } else {
-                                    path = path.replaceAll("\\{(<[^>]+>)?" + key + "\\}", value.toString().replace("$", "\\$").replace("%3A", ":").replace("%40", "@"));
-                                    host = host.replaceAll("\\{(<[^>]+>)?" + key + "\\}", value.toString().replace("$", "\\$").replace("%3A", ":").replace("%40", "@"));
-                                }
+                                // Already in the path
                             } else if (route.staticArgs.containsKey(key)) {
                                 // Do nothing -> The key is static
                             } else if (Scope.RouteArgs.current() != null && Scope.RouteArgs.current().data.containsKey(key)) {
@@ -546,6 +580,122 @@ public class Router {
         throw new NoRouteFoundException(action, args);
     }
 
+    /**
+     * Routes list counting its modifications, so the compiled dispatcher is refreshed when routes are added or removed.
+     */
+    static class RoutesList extends CopyOnWriteArrayList<Route> {
+
+        final AtomicInteger version = new AtomicInteger();
+
+        @Override
+        public boolean add(Route route) {
+            try {
+                return super.add(route);
+            } finally {
+                version.incrementAndGet();
+            }
+        }
+
+        @Override
+        public void add(int index, Route route) {
+            try {
+                super.add(index, route);
+            } finally {
+                version.incrementAndGet();
+            }
+        }
+
+        @Override
+        public Route set(int index, Route route) {
+            try {
+                return super.set(index, route);
+            } finally {
+                version.incrementAndGet();
+            }
+        }
+
+        @Override
+        public Route remove(int index) {
+            try {
+                return super.remove(index);
+            } finally {
+                version.incrementAndGet();
+            }
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            try {
+                return super.remove(o);
+            } finally {
+                version.incrementAndGet();
+            }
+        }
+
+        @Override
+        public boolean addIfAbsent(Route route) {
+            try {
+                return super.addIfAbsent(route);
+            } finally {
+                version.incrementAndGet();
+            }
+        }
+
+        @Override
+        public boolean addAll(Collection<? extends Route> c) {
+            try {
+                return super.addAll(c);
+            } finally {
+                version.incrementAndGet();
+            }
+        }
+
+        @Override
+        public boolean addAll(int index, Collection<? extends Route> c) {
+            try {
+                return super.addAll(index, c);
+            } finally {
+                version.incrementAndGet();
+            }
+        }
+
+        @Override
+        public int addAllAbsent(Collection<? extends Route> c) {
+            try {
+                return super.addAllAbsent(c);
+            } finally {
+                version.incrementAndGet();
+            }
+        }
+
+        @Override
+        public boolean removeAll(Collection<?> c) {
+            try {
+                return super.removeAll(c);
+            } finally {
+                version.incrementAndGet();
+            }
+        }
+
+        @Override
+        public boolean retainAll(Collection<?> c) {
+            try {
+                return super.retainAll(c);
+            } finally {
+                version.incrementAndGet();
+            }
+        }
+
+        @Override
+        public void clear() {
+            try {
+                super.clear();
+            } finally {
+                version.incrementAndGet();
+            }
+        }
+    }
+
     public static class ActionDefinition {
 
         /**
@@ -643,6 +793,12 @@ public class Router {
          */
         public String action;
         Pattern actionPattern;
+        /**
+         * The action has no argument: it can be reversed without matching actionPattern.
+         */
+        boolean literalAction;
+        UrlTemplate pathTemplate;
+        UrlTemplate hostTemplate;
         List<String> actionArgs = new ArrayList<String>(3);
         String staticDir;
         boolean staticFile;
@@ -755,9 +911,23 @@ public class Router {
                     }
                 }
                 actionPattern = new Pattern(patternString, REFlags.IGNORE_CASE);
+                literalAction = actionArgs.isEmpty() && !action.contains("{") && action.replace(".", "").matches("[a-zA-Z_0-9$]*");
+                pathTemplate = new UrlTemplate(path.endsWith("/?") ? path.substring(0, path.length() - 2) : path);
             }
         }
 
+        /**
+         * The host may be changed when reversing routes with a dynamic host, so its template is checked against it.
+         */
+        UrlTemplate hostTemplate() {
+            UrlTemplate template = hostTemplate;
+            if (template == null || !template.source.equals(host)) {
+                template = new UrlTemplate(host);
+                hostTemplate = template;
+            }
+            return template;
+        }
+
         public void addParams(String params) {
             if (params == null || params.length() < 1) {
                 return;
@@ -877,6 +1047,69 @@ public class Router {
             return null;
         }
 
+        /**
+         * A route path or host split into literal parts and {arg} placeholders, used to build URLs by concatenation.
+         */
+        static class UrlTemplate {
+
+            static java.util.regex.Pattern placeholder = java.util.regex.Pattern.compile("\\{(<[^>]+>)?([a-zA-Z_0-9]+)\\}");
+            final String source;
+            /**
+             * Literal parts, one more than placeholders.
+             */
+            final String[] literals;
+            final String[] names;
+            final String[] placeholders;
+
+            UrlTemplate(String source) {
+                this.source = source;
+                List<String> literalParts = new ArrayList<String>(4);
+                List<String> nameParts = new ArrayList<String>(4);
+                List<String> placeholderParts = new ArrayList<String>(4);
+                java.util.regex.Matcher matcher = placeholder.matcher(source);
+                int last = 0;
+                while (matcher.find()) {
+                    literalParts.add(source.substring(last, matcher.start()));
+                    nameParts.add(matcher.group(2));
+                    placeholderParts.add(matcher.group());
+                    last = matcher.end();
+                }
+                literalParts.add(source.substring(last));
+                this.literals = literalParts.toArray(new String[literalParts.size()]);
+                this.names = nameParts.toArray(new String[nameParts.size()]);
+                this.placeholders = placeholderParts.toArray(new String[placeholderParts.size()]);
+            }
+
+            /**
+             * Replace the placeholders of the in-path arguments having a value.
+             *
+             * @param firstOfList Whether list values are replaced by their first element, or left as is.
+             */
+            String render(Map<String, Object> args, List<String> inPathArgs, boolean firstOfList) {
+                if (names.length == 0) {
+                    return source;
+                }
+                StringBuilder url = new StringBuilder(source.length() + 16);
+                for (int i = 0; i < names.length; i++) {
+                    url.append(literals[i]);
+                    Object value = inPathArgs.contains(names[i]) ? args.get(names[i]) : null;
+                    if (value == null) {
+                        url.append(placeholders[i]);
+                    } else if (value instanceof List<?>) {
+                        if (firstOfList) {
+                            url.append(((List<?>) value).get(0));
+                        } else {
+                            url.append(placeholders[i]);
+                        }
+                    } else {
+                        url.append(value.toString().replace("%3A", ":").replace("%40", "@"));
+                    }
+                }
+                url.append(literals[names.length]);
+                return url.toString();
+            }
+        }
+
         static class Arg {
 
             String name;
@@ -0,0 +1,23 @@
+package play.mvc;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Stream the templates rendered by this action (or by all the actions of this controller) to the client.
+ * <p/>
+ * The template is rendered when the result is applied, and sent using chunked transfer once
+ * <code>play.templates.streaming.threshold</code> characters have been rendered. Smaller pages are sent as usual.
+ * Pages with a layout are sent once complete, unless the layout is set after the first chunk: this fails.
+ * Use <code>@StreamTemplate(false)</code> to disable it when <code>play.templates.streaming=true</code>.
+ * <p/>
+ * Actions annotated with @CacheFor are never streamed.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD, ElementType.TYPE})
+public @interface StreamTemplate {
+
+    boolean value() default true;
+}
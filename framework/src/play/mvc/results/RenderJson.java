@@ -4,50 +4,188 @@ import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.JsonSerializer;
 import play.exceptions.UnexpectedException;
+import play.libs.Json;
+import play.mvc.Http;
 import play.mvc.Http.Request;
 import play.mvc.Http.Response;
+import play.utils.PooledByteArrayOutputStream;
 
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
 import java.lang.reflect.Method;
 import java.lang.reflect.Type;
 
 /**
- * 200 OK with application/json
+ * 200 OK with application/json.
+ * The object is serialized when the result is created, as part of the action, by the shared Gson of
+ * play.libs.Json into a pooled buffer, which becomes the response body without being copied.
  */
 public class RenderJson extends Result {
 
     String json;
+    transient String encoding;
+    transient PooledByteArrayOutputStream bytes;
 
     public RenderJson(Object o) {
-        json = new Gson().toJson(o);
+        this(o, (Type) null);
     }
 
     public RenderJson(Object o, Type type) {
-        json = new Gson().toJson(o, type);
+        serialize(Json.gson(), o, type);
     }
 
     public RenderJson(Object o, JsonSerializer<?>... adapters) {
-        GsonBuilder gson = new GsonBuilder();
+        GsonBuilder builder = Json.builder();
         for (Object adapter : adapters) {
             Type t = getMethod(adapter.getClass(), "serialize").getParameterTypes()[0];
-            gson.registerTypeAdapter(t, adapter);
+            builder.registerTypeAdapter(t, adapter);
         }
-        json = gson.create().toJson(o);
+        serialize(builder.create(), o, null);
     }
 
     public RenderJson(String jsonString) {
         json = jsonString;
     }
 
+    void serialize(Gson gson, Object o, Type type) {
+        Http.Response response = Http.Response.current();
+        encoding = response == null ? "utf-8" : response.encoding;
+        bytes = new PooledByteArrayOutputStream();
+        try {
+            Writer out = new CharsBuffer(new OutputStreamWriter(bytes, encoding), 8192);
+            if (o == null) {
+                gson.toJson(o, out);
+            } else {
+                gson.toJson(o, type == null ? o.getClass() : type, out);
+            }
+            out.flush();
+        } catch (IOException e) {
+            bytes.release();
+            throw new UnexpectedException(e);
+        } catch (RuntimeException e) {
+            bytes.release();
+            throw e;
+        }
+    }
+
     public void apply(Request request, Response response) {
         try {
-            String encoding = getEncoding();
+            if (json != null) {
+                String encoding = getEncoding();
+                setContentTypeIfNotSet(response, "application/json; charset=" + encoding);
+                response.out.write(json.getBytes(encoding));
+                return;
+            }
             setContentTypeIfNotSet(response, "application/json; charset=" + encoding);
-            response.out.write(json.getBytes(encoding));
+            PooledByteArrayOutputStream body = bytes;
+            bytes = null;
+            if (response.out instanceof PooledByteArrayOutputStream && response.out.size() == 0) {
+                // The buffer becomes the response body, released once it is sent
+                ((PooledByteArrayOutputStream) response.out).release();
+                response.out = body;
+            } else {
+                response.out.write(body.buffer(), 0, body.size());
+                body.release();
+            }
         } catch (Exception e) {
             throw new UnexpectedException(e);
         }
     }
 
+    /**
+     * @return The same result, with its JSON as a String: for a result kept in the cache
+     */
+    public RenderJson rendered() {
+        if (json == null) {
+            try {
+                json = new String(bytes.buffer(), 0, bytes.size(), encoding);
+            } catch (UnsupportedEncodingException e) {
+                throw new UnexpectedException(e);
+            }
+            bytes.release();
+            bytes = null;
+        }
+        return this;
+    }
+
+    /**
+     * @return The JSON
+     */
+    public String getJson() {
+        return rendered().json;
+    }
+
+    /**
+     * Buffers the characters without locking: Gson writes most of them one by one.
+     */
+    static class CharsBuffer extends Writer {
+
+        final Writer out;
+        final char[] buffer;
+        int count;
+
+        CharsBuffer(Writer out, int size) {
+            this.out = out;
+            this.buffer = new char[size];
+        }
+
+        @Override
+        public void write(int c) throws IOException {
+            if (count == buffer.length) {
+                flushBuffer();
+            }
+            buffer[count++] = (char) c;
+        }
+
+        @Override
+        public void write(char[] chars, int offset, int length) throws IOException {
+            if (length >= buffer.length) {
+                flushBuffer();
+                out.write(chars, offset, length);
+                return;
+            }
+            if (count + length > buffer.length) {
+                flushBuffer();
+            }
+            System.arraycopy(chars, offset, buffer, count, length);
+            count += length;
+        }
+
+        @Override
+        public void write(String s, int offset, int length) throws IOException {
+            if (length >= buffer.length) {
+                flushBuffer();
+                out.write(s, offset, length);
+                return;
+            }
+            if (count + length > buffer.length) {
+                flushBuffer();
+            }
+            s.getChars(offset, offset + length, buffer, count);
+            count += length;
+        }
+
+        void flushBuffer() throws IOException {
+            if (count > 0) {
+                out.write(buffer, 0, count);
+                count = 0;
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            flushBuffer();
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+
     //
     static Method getMethod(Class<?> clazz, String name) {
         for (Method m : clazz.getDeclaredMethods()) {
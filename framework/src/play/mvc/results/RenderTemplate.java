@@ -1,11 +1,18 @@
 package play.mvc.results;
 
+import play.Play;
+import play.cache.CacheFor;
+import play.exceptions.PlayException;
 import play.exceptions.UnexpectedException;
 import play.libs.MimeTypes;
+import play.mvc.ChunkedResponseWriter;
 import play.mvc.Http.Request;
 import play.mvc.Http.Response;
+import play.mvc.StreamTemplate;
 import play.templates.Template;
 
+import java.lang.reflect.Method;
+import java.util.HashMap;
 import java.util.Map;
 
 /**
@@ -15,27 +22,87 @@ public class RenderTemplate extends Result {
 
     private String name;
     private String content;
+    /**
+     * Set when the template is streamed: it is rendered by apply().
+     */
+    private Template template;
+    private Map<String, Object> args;
 
     public RenderTemplate(Template template, Map<String, Object> args) {
         this.name = template.name;
         if (args.containsKey("out")) {
             throw new RuntimeException("Assertion failed! args shouldn't contain out");
         }
-        this.content = template.render(args);
+        if (isStreamed()) {
+            this.template = template;
+            this.args = new HashMap<String, Object>(args);
+        } else {
+            this.content = template.render(args);
+        }
+    }
+
+    /**
+     * A template already rendered, e.g. read from the cache
+     */
+    public RenderTemplate(String name, String content) {
+        this.name = name;
+        this.content = content;
     }
 
     public void apply(Request request, Response response) {
         try {
             final String contentType = MimeTypes.getContentType(name, "text/plain");
+            if (template != null) {
+                // Must be set before the first chunk is sent
+                setContentTypeIfNotSet(response, contentType);
+                int threshold = Integer.parseInt(Play.configuration.getProperty("play.templates.streaming.threshold", "8192"));
+                ChunkedResponseWriter writer = new ChunkedResponseWriter(response, threshold);
+                template.render(args, writer);
+                writer.close();
+                return;
+            }
             response.out.write(content.getBytes(getEncoding()));
             setContentTypeIfNotSet(response, contentType);
+        } catch (PlayException e) {
+            throw e;
         } catch (Exception e) {
             throw new UnexpectedException(e);
         }
     }
 
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the rendered content, or null if the template is streamed
+     */
     public String getContent() {
         return content;
     }
 
+    /**
+     * Templates are streamed if enabled by @StreamTemplate or play.templates.streaming,
+     * the server supports chunked responses and the result is not cached by @CacheFor.
+     */
+    static boolean isStreamed() {
+        Request request = Request.current();
+        Response response = Response.current();
+        if (request == null || response == null || !response.canWriteChunks() || "HEAD".equals(request.method)) {
+            return false;
+        }
+        Method actionMethod = request.invokedMethod;
+        if (actionMethod != null && actionMethod.isAnnotationPresent(CacheFor.class)) {
+            return false;
+        }
+        StreamTemplate streamTemplate = actionMethod == null ? null : actionMethod.getAnnotation(StreamTemplate.class);
+        if (streamTemplate == null && request.controllerClass != null) {
+            streamTemplate = request.controllerClass.getAnnotation(StreamTemplate.class);
+        }
+        if (streamTemplate != null) {
+            return streamTemplate.value();
+        }
+        return Play.configuration.getProperty("play.templates.streaming", "false").equals("true");
+    }
+
 }
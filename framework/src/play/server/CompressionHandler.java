@@ -0,0 +1,195 @@
+package play.server;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.jboss.netty.channel.ChannelHandlerContext;
+import org.jboss.netty.channel.Channels;
+import org.jboss.netty.channel.MessageEvent;
+import org.jboss.netty.channel.SimpleChannelHandler;
+import org.jboss.netty.handler.codec.compression.ZlibEncoder;
+import org.jboss.netty.handler.codec.compression.ZlibWrapper;
+import org.jboss.netty.handler.codec.embedder.EncoderEmbedder;
+import org.jboss.netty.handler.codec.http.DefaultHttpChunk;
+import org.jboss.netty.handler.codec.http.HttpChunk;
+import org.jboss.netty.handler.codec.http.HttpMethod;
+import org.jboss.netty.handler.codec.http.HttpRequest;
+import org.jboss.netty.handler.codec.http.HttpResponse;
+import play.Play;
+import play.utils.HTTP;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import static org.jboss.netty.handler.codec.http.HttpHeaders.Names.*;
+
+/**
+ * Compresses the dynamic responses with gzip or deflate, depending on the Accept-Encoding header of the request.
+ * <p/>
+ * Enabled by <code>http.compression=true</code>. Only the responses whose content type is listed in
+ * <code>http.compression.contentTypes</code> are compressed: buffered responses if they are at least
+ * <code>http.compression.minSize</code> bytes, and chunked responses as their chunks are written.
+ * Responses that already have a Content-Encoding, such as cached static files, and file transfers are sent as is.
+ */
+public class CompressionHandler extends SimpleChannelHandler {
+
+    static final String DEFAULT_CONTENT_TYPES = "text/html,text/plain,text/css,text/xml,text/javascript,text/csv,"
+            + "application/javascript,application/x-javascript,application/json,application/xml,"
+            + "application/rss+xml,application/atom+xml,image/svg+xml";
+
+    final int minSize;
+    final int level;
+    final List<String> contentTypes = new ArrayList<String>();
+    /**
+     * Accept-Encoding headers of the pending requests, in order. Empty for a HEAD request.
+     */
+    final Queue<String> acceptEncodings = new ConcurrentLinkedQueue<String>();
+    EncoderEmbedder<ChannelBuffer> encoder;
+
+    public CompressionHandler(int minSize, int level, String contentTypes) {
+        this.minSize = minSize;
+        this.level = level;
+        for (String contentType : contentTypes.split(",")) {
+            if (contentType.trim().length() > 0) {
+                this.contentTypes.add(contentType.trim().toLowerCase());
+            }
+        }
+    }
+
+    /**
+     * @return true if responses have to be compressed
+     */
+    public static boolean isEnabled() {
+        return Play.configuration.getProperty("http.compression", "false").equals("true");
+    }
+
+    /**
+     * @return a handler configured by application.conf
+     */
+    public static CompressionHandler create() {
+        return new CompressionHandler(
+                Integer.parseInt(Play.configuration.getProperty("http.compression.minSize", "1024")),
+                Integer.parseInt(Play.configuration.getProperty("http.compression.level", "6")),
+                Play.configuration.getProperty("http.compression.contentTypes", DEFAULT_CONTENT_TYPES));
+    }
+
+    @Override
+    public void messageReceived(ChannelHandlerContext ctx, MessageEvent e) throws Exception {
+        if (e.getMessage() instanceof HttpRequest) {
+            HttpRequest request = (HttpRequest) e.getMessage();
+            String acceptEncoding = request.getHeader(ACCEPT_ENCODING);
+            acceptEncodings.offer(request.getMethod().equals(HttpMethod.HEAD) || acceptEncoding == null ? "" : acceptEncoding);
+        }
+        super.messageReceived(ctx, e);
+    }
+
+    @Override
+    public synchronized void writeRequested(ChannelHandlerContext ctx, MessageEvent e) throws Exception {
+        Object message = e.getMessage();
+        if (message instanceof HttpResponse) {
+            HttpResponse response = (HttpResponse) message;
+            if (response.getStatus().getCode() == 100) {
+                ctx.sendDownstream(e);
+                return;
+            }
+            String acceptEncoding = acceptEncodings.poll();
+            finishEncoder();
+            if (isCompressible(response)) {
+                addVary(response);
+                String coding = acceptEncoding == null ? null : selectEncoding(acceptEncoding);
+                if (coding != null) {
+                    encoder = new EncoderEmbedder<ChannelBuffer>(new ZlibEncoder(coding.equals("gzip") ? ZlibWrapper.GZIP : ZlibWrapper.ZLIB, level));
+                    response.setHeader(CONTENT_ENCODING, coding);
+                    if (response.isChunked()) {
+                        response.removeHeader(CONTENT_LENGTH);
+                    } else {
+                        ChannelBuffer content = ChannelBuffers.wrappedBuffer(encode(response.getContent()), finishEncoder());
+                        response.setContent(content);
+                        response.setHeader(CONTENT_LENGTH, String.valueOf(content.readableBytes()));
+                    }
+                }
+            }
+        } else if (message instanceof HttpChunk && encoder != null) {
+            HttpChunk chunk = (HttpChunk) message;
+            if (chunk.isLast()) {
+                ChannelBuffer last = finishEncoder();
+                if (last.readable()) {
+                    Channels.write(ctx, Channels.succeededFuture(e.getChannel()), new DefaultHttpChunk(last), e.getRemoteAddress());
+                }
+            } else {
+                ChannelBuffer content = encode(chunk.getContent());
+                if (!content.readable()) {
+                    // Nothing to send yet
+                    e.getFuture().setSuccess();
+                    return;
+                }
+                chunk.setContent(content);
+            }
+        }
+        ctx.sendDownstream(e);
+    }
+
+    /**
+     * A response is compressed if it has a content, or chunks, of a listed content type
+     */
+    boolean isCompressible(HttpResponse response) {
+        int status = response.getStatus().getCode();
+        if (status < 200 || status == 204 || status == 304 || response.containsHeader(CONTENT_ENCODING)) {
+            return false;
+        }
+        if (!response.isChunked() && response.getContent().readableBytes() < Math.max(minSize, 1)) {
+            return false;
+        }
+        String contentType = response.getHeader(CONTENT_TYPE);
+        if (contentType == null) {
+            return false;
+        }
+        int semicolon = contentType.indexOf(';');
+        if (semicolon > -1) {
+            contentType = contentType.substring(0, semicolon);
+        }
+        return contentTypes.contains(contentType.trim().toLowerCase());
+    }
+
+    static void addVary(HttpResponse response) {
+        String vary = response.getHeader(VARY);
+        if (vary == null || vary.trim().length() == 0) {
+            response.setHeader(VARY, ACCEPT_ENCODING);
+        } else if (!vary.toLowerCase().contains("accept-encoding") && !vary.trim().equals("*")) {
+            response.setHeader(VARY, vary + ", " + ACCEPT_ENCODING);
+        }
+    }
+
+    /**
+     * @return gzip or deflate, or null if the client accepts none of them
+     */
+    static String selectEncoding(String acceptEncoding) {
+        if (HTTP.acceptsEncoding(acceptEncoding, "gzip")) {
+            return "gzip";
+        }
+        if (HTTP.acceptsEncoding(acceptEncoding, "deflate")) {
+            return "deflate";
+        }
+        return null;
+    }
+
+    ChannelBuffer encode(ChannelBuffer content) {
+        encoder.offer(content);
+        return ChannelBuffers.wrappedBuffer(encoder.pollAll(new ChannelBuffer[encoder.size()]));
+    }
+
+    ChannelBuffer finishEncoder() {
+        if (encoder == null) {
+            return ChannelBuffers.EMPTY_BUFFER;
+        }
+        ChannelBuffer result;
+        if (encoder.finish()) {
+            result = ChannelBuffers.wrappedBuffer(encoder.pollAll(new ChannelBuffer[encoder.size()]));
+        } else {
+            result = ChannelBuffers.EMPTY_BUFFER;
+        }
+        encoder = null;
+        return result;
+    }
+}
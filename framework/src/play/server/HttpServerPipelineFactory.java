@@ -18,9 +18,12 @@ public class HttpServerPipelineFactory implements ChannelPipelineFactory {
         PlayHandler playHandler = new PlayHandler();
 
         pipeline.addLast("flashPolicy", new FlashPolicyHandler());
-        pipeline.addLast("aggregator", new StreamChunkAggregator(max));
         pipeline.addLast("decoder", new HttpRequestDecoder());
+        pipeline.addLast("aggregator", new StreamChunkAggregator(max));
         pipeline.addLast("encoder", new HttpResponseEncoder());
+        if (CompressionHandler.isEnabled()) {
+            pipeline.addLast("compressor", CompressionHandler.create());
+        }
         pipeline.addLast("chunkedWriter", playHandler.chunkedWriteHandler);
         pipeline.addLast("handler", playHandler);
 
@@ -1,6 +1,5 @@
 package play.server;
 
-import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringUtils;
 import org.jboss.netty.buffer.ChannelBuffer;
 import org.jboss.netty.buffer.ChannelBufferInputStream;
@@ -11,6 +10,7 @@ import org.jboss.netty.handler.codec.http.websocket.DefaultWebSocketFrame;
 import org.jboss.netty.handler.codec.http.websocket.WebSocketFrame;
 import org.jboss.netty.handler.codec.http.websocket.WebSocketFrameDecoder;
 import org.jboss.netty.handler.codec.http.websocket.WebSocketFrameEncoder;
+import org.jboss.netty.handler.ssl.SslHandler;
 import org.jboss.netty.handler.stream.ChunkedFile;
 import org.jboss.netty.handler.stream.ChunkedInput;
 import org.jboss.netty.handler.stream.ChunkedStream;
@@ -37,6 +37,7 @@ import play.server.hybi10.Hybi10WebSocketFrameEncoder;
 import play.templates.JavaExtensions;
 import play.templates.TemplateLoader;
 import play.utils.HTTP;
+import play.utils.PooledByteArrayOutputStream;
 import play.utils.Utils;
 import play.vfs.VirtualFile;
 
@@ -50,6 +51,7 @@ import java.text.ParseException;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
 
 import static org.jboss.netty.buffer.ChannelBuffers.wrappedBuffer;
 import static org.jboss.netty.handler.codec.http.HttpHeaders.Names.*;
@@ -107,8 +109,8 @@ public class PlayHandler extends SimpleChannelUpstreamHandler {
                 final Response response = new Response();
                 Http.Response.current.set(response);
 
-                // Buffered in memory output
-                response.out = new ByteArrayOutputStream();
+                // Buffered in memory output, the array is given back to the pool once written
+                response.out = new PooledByteArrayOutputStream();
 
                 // Direct output (will be set later)
                 response.direct = null;
@@ -128,7 +130,11 @@ public class PlayHandler extends SimpleChannelUpstreamHandler {
                 } else {
 
                     // Deleguate to Play framework
-                    Invoker.invoke(new NettyInvocation(request, response, ctx, nettyRequest, messageEvent));
+                    try {
+                        Invoker.invoke(new NettyInvocation(request, response, ctx, nettyRequest, messageEvent));
+                    } catch (RejectedExecutionException e) {
+                        serve503(ctx, nettyRequest);
+                    }
 
                 }
 
@@ -149,6 +155,7 @@ public class PlayHandler extends SimpleChannelUpstreamHandler {
     }
 
     private static final Map<String, RenderStatic> staticPathsCache = new HashMap<String, RenderStatic>();
+    private static final StaticAssetCache assetCache = StaticAssetCache.create();
 
     public class NettyInvocation extends Invoker.Invocation {
 
@@ -350,16 +357,16 @@ public class PlayHandler extends SimpleChannelUpstreamHandler {
             Logger.trace("writeResponse: begin");
         }
 
-        byte[] content = null;
-
         final boolean keepAlive = isKeepAlive(nettyRequest);
+        ChannelBuffer buf;
         if (nettyRequest.getMethod().equals(HttpMethod.HEAD)) {
-            content = new byte[0];
+            buf = ChannelBuffers.EMPTY_BUFFER;
+        } else if (response.out instanceof PooledByteArrayOutputStream) {
+            // No copy: Netty reads the pooled array until the write completes
+            buf = ChannelBuffers.wrappedBuffer(((PooledByteArrayOutputStream) response.out).buffer(), 0, response.out.size());
         } else {
-            content = response.out.toByteArray();
+            buf = ChannelBuffers.wrappedBuffer(response.out.toByteArray());
         }
-
-        ChannelBuffer buf = ChannelBuffers.copiedBuffer(content);
         nettyResponse.setContent(buf);
 
         if (Logger.isTraceEnabled()) {
@@ -370,6 +377,16 @@ public class PlayHandler extends SimpleChannelUpstreamHandler {
 
         ChannelFuture f = ctx.getChannel().write(nettyResponse);
 
+        if (response.out instanceof PooledByteArrayOutputStream) {
+            final PooledByteArrayOutputStream out = (PooledByteArrayOutputStream) response.out;
+            f.addListener(new ChannelFutureListener() {
+
+                public void operationComplete(ChannelFuture future) throws Exception {
+                    out.release();
+                }
+            });
+        }
+
         // Decide whether to close the connection or not.
         if (!keepAlive) {
             // Close the connection when the whole content is written out.
@@ -437,27 +454,8 @@ public class PlayHandler extends SimpleChannelUpstreamHandler {
                     nettyResponse.setHeader(CONTENT_TYPE, MimeTypes.getContentType(file.getName(), "text/plain"));
                     final RandomAccessFile raf = new RandomAccessFile(file, "r");
                     try {
-                        long fileLength = raf.length();
-
-                        if (!nettyResponse.getStatus().equals(HttpResponseStatus.NOT_MODIFIED)) {
-                            if (Logger.isTraceEnabled()) {
-                                Logger.trace("file length is [" + fileLength + "]");
-                            }
-                            setContentLength(nettyResponse, fileLength);
-                        }
-
-                        Channel ch = ctx.getChannel();
-
-                        // Write the initial line and the header.
-                        ChannelFuture writeFuture = ch.write(nettyResponse);
-
-                        // Write the content.
-                        // If it is not a HEAD
-                        if (!nettyRequest.getMethod().equals(HttpMethod.HEAD)) {
-                            writeFuture = ch.write(new ChunkedFile(raf, 0, fileLength, 8192));
-                        } else {
-                            raf.close();
-                        }
+                        // Write the initial line, the header and the content
+                        ChannelFuture writeFuture = writeFile(ctx, nettyRequest, nettyResponse, raf);
                         if (!keepAlive) {
                             // Close the connection when the whole content is written out.
                             writeFuture.addListener(ChannelFutureListener.CLOSE);
@@ -567,10 +565,8 @@ public class PlayHandler extends SimpleChannelUpstreamHandler {
             }
 
         } else {
-            ByteArrayOutputStream out = new ByteArrayOutputStream();
-            IOUtils.copy(new ChannelBufferInputStream(b), out);
-            byte[] n = out.toByteArray();
-            body = new ByteArrayInputStream(n);
+            // Read the buffer in place, it is not reused by Netty
+            body = new ChannelBufferInputStream(b);
         }
 
         String host = nettyRequest.getHeader(HOST);
@@ -702,6 +698,26 @@ public class PlayHandler extends SimpleChannelUpstreamHandler {
         }
     }
 
+    /**
+     * The requests queue is full: answer at once, without rendering a template
+     */
+    public static void serve503(ChannelHandlerContext ctx, HttpRequest nettyRequest) {
+        Logger.warn("Requests queue is full, %s %s rejected", nettyRequest.getMethod(), nettyRequest.getUri());
+        HttpResponse nettyResponse = new DefaultHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.SERVICE_UNAVAILABLE);
+        if (exposePlayServer) {
+            nettyResponse.setHeader(SERVER, signature);
+        }
+        nettyResponse.setHeader(RETRY_AFTER, Invoker.retryAfter);
+        nettyResponse.setHeader(CONTENT_TYPE, "text/plain");
+        byte[] bytes = "Service Unavailable".getBytes(ASCII);
+        setContentLength(nettyResponse, bytes.length);
+        nettyResponse.setContent(ChannelBuffers.wrappedBuffer(bytes));
+        ChannelFuture writeFuture = ctx.getChannel().write(nettyResponse);
+        if (!isKeepAlive(nettyRequest)) {
+            writeFuture.addListener(ChannelFutureListener.CLOSE);
+        }
+    }
+
     protected static Map<String, Object> getBindingForErrors(Exception e, boolean isError) {
 
         Map<String, Object> binding = new HashMap<String, Object>();
@@ -738,6 +754,13 @@ public class PlayHandler extends SimpleChannelUpstreamHandler {
         Request request = Request.current();
         Response response = Response.current();
 
+        if (response != null && response.chunked) {
+            // Part of the response has already been sent, we can only abort it
+            Logger.error(e, "Internal Server Error (500) while streaming the response to request %s", request.method + " " + request.url);
+            ctx.getChannel().close();
+            return;
+        }
+
         String encoding = response.encoding;
 
         try {
@@ -835,19 +858,24 @@ public class PlayHandler extends SimpleChannelUpstreamHandler {
             nettyResponse.setHeader(SERVER, signature);
         }
         try {
-            VirtualFile file = Play.getVirtualFile(renderStatic.file);
-            if (file != null && file.exists() && file.isDirectory()) {
+            // In PROD mode small files are served from memory, except for range requests
+            boolean cacheable = assetCache != null && !nettyRequest.containsHeader(RANGE);
+            StaticAssetCache.Asset asset = cacheable ? assetCache.get(renderStatic.file) : null;
+            VirtualFile file = asset != null ? asset.file : Play.getVirtualFile(renderStatic.file);
+            if (asset == null && file != null && file.exists() && file.isDirectory()) {
                 file = file.child("index.html");
                 if (file != null) {
                     renderStatic.file = file.relativePath();
                 }
             }
-            if ((file == null || !file.exists())) {
+            if (asset == null && (file == null || !file.exists())) {
                 serve404(new NotFound("The file " + renderStatic.file + " does not exist"), ctx, request, nettyRequest);
             } else {
                 boolean raw = Play.pluginCollection.serveStatic(file, Request.current(), Response.current());
                 if (raw) {
                     copyResponse(ctx, request, response, nettyRequest);
+                } else if (asset != null || (cacheable && (asset = assetCache.load(renderStatic.file, file)) != null)) {
+                    serveAsset(asset, ctx, nettyRequest, nettyResponse);
                 } else {
                     final File localFile = file.getRealFile();
                     final boolean keepAlive = isKeepAlive(nettyRequest);
@@ -867,34 +895,15 @@ public class PlayHandler extends SimpleChannelUpstreamHandler {
 
                         final RandomAccessFile raf = new RandomAccessFile(localFile, "r");
                         try {
-                            long fileLength = raf.length();
-
                             if (Logger.isTraceEnabled()) {
                                 Logger.trace("keep alive " + keepAlive);
                                 Logger.trace("content type " + (MimeTypes.getContentType(localFile.getName(), "text/plain")));
                             }
 
-                            if (!nettyResponse.getStatus().equals(HttpResponseStatus.NOT_MODIFIED)) {
-                                // Add 'Content-Length' header only for a keep-alive connection.
-                                if (Logger.isTraceEnabled()) {
-                                    Logger.trace("file length " + fileLength);
-                                }
-                                setContentLength(nettyResponse, fileLength);
-                            }
-
                             nettyResponse.setHeader(CONTENT_TYPE, (MimeTypes.getContentType(localFile.getName(), "text/plain")));
 
-                            Channel ch = e.getChannel();
-
-                            // Write the initial line and the header.
-                            ChannelFuture writeFuture = ch.write(nettyResponse);
-
-                            // Write the content.
-                            if (!nettyRequest.getMethod().equals(HttpMethod.HEAD)) {
-                                writeFuture = ch.write(new ChunkedFile(raf, 0, fileLength, 8192));
-                            } else {
-                                raf.close();
-                            }
+                            // Write the initial line, the header and the content
+                            ChannelFuture writeFuture = writeFile(ctx, nettyRequest, nettyResponse, raf);
 
                             if (!keepAlive) {
                                 // Close the connection when the whole content is written out.
@@ -932,6 +941,37 @@ public class PlayHandler extends SimpleChannelUpstreamHandler {
         }
     }
 
+    /**
+     * Write a static file from the in-memory cache, compressed if the client accepts it
+     */
+    protected static void serveAsset(StaticAssetCache.Asset asset, ChannelHandlerContext ctx, HttpRequest nettyRequest, HttpResponse nettyResponse) {
+        final boolean keepAlive = isKeepAlive(nettyRequest);
+        addEtag(nettyRequest, nettyResponse, asset.lastModified, asset.etag, asset.lastModifiedHeader);
+        if (!nettyResponse.getStatus().equals(HttpResponseStatus.NOT_MODIFIED)) {
+            nettyResponse.setHeader(CONTENT_TYPE, asset.contentType);
+            byte[] content = asset.content;
+            if (asset.gzipped != null) {
+                nettyResponse.setHeader(VARY, ACCEPT_ENCODING);
+                if (HTTP.acceptsEncoding(nettyRequest.getHeader(ACCEPT_ENCODING), "gzip")) {
+                    content = asset.gzipped;
+                    nettyResponse.setHeader(CONTENT_ENCODING, "gzip");
+                }
+            }
+            if (content == asset.content) {
+                nettyResponse.setHeader(ACCEPT_RANGES, "bytes");
+            }
+            setContentLength(nettyResponse, content.length);
+            if (!nettyRequest.getMethod().equals(HttpMethod.HEAD)) {
+                nettyResponse.setContent(ChannelBuffers.wrappedBuffer(content));
+            }
+        }
+        ChannelFuture writeFuture = ctx.getChannel().write(nettyResponse);
+        if (!keepAlive) {
+            // Close the connection when the whole content is written out.
+            writeFuture.addListener(ChannelFutureListener.CLOSE);
+        }
+    }
+
     public static boolean isModified(String etag, long last, HttpRequest nettyRequest) {
 
         if (nettyRequest.containsHeader(IF_NONE_MATCH)) {
@@ -961,6 +1001,12 @@ public class PlayHandler extends SimpleChannelUpstreamHandler {
     }
 
     private static HttpResponse addEtag(HttpRequest nettyRequest, HttpResponse httpResponse, File file) {
+        long last = file.lastModified();
+        final String etag = "\"" + last + "-" + file.hashCode() + "\"";
+        return addEtag(nettyRequest, httpResponse, last, etag, null);
+    }
+
+    private static HttpResponse addEtag(HttpRequest nettyRequest, HttpResponse httpResponse, long last, String etag, String lastModified) {
         if (Play.mode == Play.Mode.DEV) {
             httpResponse.setHeader(CACHE_CONTROL, "no-cache");
         } else {
@@ -972,8 +1018,6 @@ public class PlayHandler extends SimpleChannelUpstreamHandler {
             }
         }
         boolean useEtag = Play.configuration.getProperty("http.useETag", "true").equals("true");
-        long last = file.lastModified();
-        final String etag = "\"" + last + "-" + file.hashCode() + "\"";
         if (!isModified(etag, last, nettyRequest)) {
             if (nettyRequest.getMethod().equals(HttpMethod.GET)) {
                 httpResponse.setStatus(HttpResponseStatus.NOT_MODIFIED);
@@ -983,7 +1027,7 @@ public class PlayHandler extends SimpleChannelUpstreamHandler {
             }
 
         } else {
-            httpResponse.setHeader(LAST_MODIFIED, Utils.getHttpDateFormatter().format(new Date(last)));
+            httpResponse.setHeader(LAST_MODIFIED, lastModified != null ? lastModified : Utils.getHttpDateFormatter().format(new Date(last)));
             if (useEtag) {
                 httpResponse.setHeader(ETAG, etag);
             }
@@ -991,6 +1035,73 @@ public class PlayHandler extends SimpleChannelUpstreamHandler {
         return httpResponse;
     }
 
+    /**
+     * Write the response header and the file content, or the requested range of it.
+     * <p/>
+     * The content is sent with a zero-copy FileRegion, unless the connection is encrypted
+     * or <code>play.netty.zeroCopy</code> is false: it is then read by chunks of
+     * <code>play.netty.chunkSize</code> bytes.
+     *
+     * @return the future of the last write
+     */
+    protected static ChannelFuture writeFile(ChannelHandlerContext ctx, HttpRequest nettyRequest, HttpResponse nettyResponse, RandomAccessFile raf) throws IOException {
+        long fileLength = raf.length();
+        long start = 0;
+        long length = fileLength;
+        nettyResponse.setHeader(ACCEPT_RANGES, "bytes");
+        if (nettyRequest.getMethod().equals(HttpMethod.GET) && nettyResponse.getStatus().equals(HttpResponseStatus.OK) && nettyRequest.containsHeader(RANGE) && isRangeFresh(nettyRequest, nettyResponse)) {
+            long[] range = HTTP.parseRange(nettyRequest.getHeader(RANGE), fileLength);
+            if (range != null && range.length == 0) {
+                nettyResponse.setStatus(HttpResponseStatus.REQUESTED_RANGE_NOT_SATISFIABLE);
+                nettyResponse.setHeader(CONTENT_RANGE, "bytes */" + fileLength);
+                setContentLength(nettyResponse, 0);
+                raf.close();
+                return ctx.getChannel().write(nettyResponse);
+            }
+            if (range != null) {
+                start = range[0];
+                length = range[1] - range[0] + 1;
+                nettyResponse.setStatus(HttpResponseStatus.PARTIAL_CONTENT);
+                nettyResponse.setHeader(CONTENT_RANGE, "bytes " + range[0] + "-" + range[1] + "/" + fileLength);
+            }
+        }
+        if (Logger.isTraceEnabled()) {
+            Logger.trace("file length is [" + fileLength + "], sending [" + length + "] bytes from [" + start + "]");
+        }
+        setContentLength(nettyResponse, length);
+
+        Channel ch = ctx.getChannel();
+
+        // Write the initial line and the header.
+        ChannelFuture writeFuture = ch.write(nettyResponse);
+
+        // Write the content, if it is not a HEAD
+        if (nettyRequest.getMethod().equals(HttpMethod.HEAD)) {
+            raf.close();
+        } else if (ctx.getPipeline().get(SslHandler.class) == null && Play.configuration.getProperty("play.netty.zeroCopy", "true").equals("true")) {
+            final FileRegion region = new DefaultFileRegion(raf.getChannel(), start, length);
+            writeFuture = ch.write(region);
+            writeFuture.addListener(new ChannelFutureListener() {
+
+                public void operationComplete(ChannelFuture future) {
+                    region.releaseExternalResources();
+                }
+            });
+        } else {
+            int chunkSize = Integer.parseInt(Play.configuration.getProperty("play.netty.chunkSize", "8192"));
+            writeFuture = ch.write(new ChunkedFile(raf, start, length, chunkSize));
+        }
+        return writeFuture;
+    }
+
+    /**
+     * A range request with an If-Range header only applies if the file did not change
+     */
+    static boolean isRangeFresh(HttpRequest nettyRequest, HttpResponse nettyResponse) {
+        String ifRange = nettyRequest.getHeader(IF_RANGE);
+        return ifRange == null || ifRange.equals(nettyResponse.getHeader(ETAG)) || ifRange.equals(nettyResponse.getHeader(LAST_MODIFIED));
+    }
+
     public static boolean isKeepAlive(HttpMessage message) {
         return HttpHeaders.isKeepAlive(message);
     }
@@ -1005,17 +1116,20 @@ public class PlayHandler extends SimpleChannelUpstreamHandler {
     static class LazyChunkedInput implements org.jboss.netty.handler.stream.ChunkedInput {
 
         private boolean closed = false;
-        private ConcurrentLinkedQueue<Object> nextChunks = new ConcurrentLinkedQueue<Object>();
+        private ConcurrentLinkedQueue<HttpChunk> nextChunks = new ConcurrentLinkedQueue<HttpChunk>();
 
         public boolean hasNextChunk() throws Exception {
             return !nextChunks.isEmpty();
         }
 
+        /**
+         * The chunks are framed by the HttpResponseEncoder, so that they can be compressed before
+         */
         public Object nextChunk() throws Exception {
             if (nextChunks.isEmpty()) {
                 return null;
             }
-            return wrappedBuffer(((String) nextChunks.poll()).getBytes());
+            return nextChunks.poll();
         }
 
         public boolean isEndOfInput() throws Exception {
@@ -1024,17 +1138,23 @@ public class PlayHandler extends SimpleChannelUpstreamHandler {
 
         public void close() throws Exception {
             if (!closed) {
-                nextChunks.offer("0\r\n\r\n");
+                nextChunks.offer(HttpChunk.LAST_CHUNK);
             }
             closed = true;
         }
 
         public void writeChunk(Object chunk) throws Exception {
+            if (chunk instanceof byte[]) {
+                // Already encoded content, sent as is
+                byte[] bytes = (byte[]) chunk;
+                if (bytes.length > 0) {
+                    nextChunks.offer(new DefaultHttpChunk(wrappedBuffer(bytes)));
+                }
+                return;
+            }
+            // Each message is followed by a new line
             String message = chunk == null ? "" : chunk.toString();
-            StringWriter writer = new StringWriter();
-            Integer l = message.getBytes(Response.current().encoding).length + 2;
-            writer.append(Integer.toHexString(l)).append("\r\n").append(message).append("\r\n\r\n");
-            nextChunks.offer(writer.toString());
+            nextChunks.offer(new DefaultHttpChunk(wrappedBuffer((message + "\r\n").getBytes(Response.current().encoding))));
         }
     }
 
@@ -1280,7 +1400,12 @@ public class PlayHandler extends SimpleChannelUpstreamHandler {
             }
         };
 
-        Invoker.invoke(new WebSocketInvocation(route, request, inbound, outbound, ctx, messageEvent));
+        try {
+            Invoker.invoke(new WebSocketInvocation(route, request, inbound, outbound, ctx, messageEvent));
+        } catch (RejectedExecutionException e) {
+            Logger.warn("Requests queue is full, WebSocket %s rejected", req.getUri());
+            ctx.getChannel().close();
+        }
     }
 
     @Override
@@ -0,0 +1,154 @@
+package play.server;
+
+import play.Logger;
+import play.Play;
+import play.libs.MimeTypes;
+import play.utils.Utils;
+import play.vfs.VirtualFile;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Keeps the content of small static files in memory, in PROD mode.
+ * <p/>
+ * Each asset is loaded on its first hit with its headers precomputed, and a gzip variant for the content
+ * types worth compressing. The cache holds at most <code>play.static.cache.maxSize</code> bytes: the least
+ * recently used assets are removed first. Files bigger than <code>play.static.cache.maxFileSize</code>
+ * are always read from the disk.
+ */
+public class StaticAssetCache {
+
+    public static class Asset {
+
+        public final VirtualFile file;
+        public final byte[] content;
+        /**
+         * null if the content is not worth compressing
+         */
+        public final byte[] gzipped;
+        public final String contentType;
+        public final long lastModified;
+        public final String lastModifiedHeader;
+        public final String etag;
+
+        Asset(VirtualFile file, byte[] content, byte[] gzipped, String contentType, long lastModified, String etag) {
+            this.file = file;
+            this.content = content;
+            this.gzipped = gzipped;
+            this.contentType = contentType;
+            this.lastModified = lastModified;
+            this.lastModifiedHeader = Utils.getHttpDateFormatter().format(new Date(lastModified));
+            this.etag = etag;
+        }
+
+        int size() {
+            return content.length + (gzipped == null ? 0 : gzipped.length);
+        }
+    }
+
+    final long maxSize;
+    final long maxFileSize;
+    final LinkedHashMap<String, Asset> assets = new LinkedHashMap<String, Asset>(16, 0.75f, true);
+    long size;
+
+    public StaticAssetCache(long maxSize, long maxFileSize) {
+        this.maxSize = maxSize;
+        this.maxFileSize = maxFileSize;
+    }
+
+    /**
+     * @return the cache configured in application.conf, or null if static assets are not cached
+     */
+    public static StaticAssetCache create() {
+        if (Play.mode != Play.Mode.PROD) {
+            return null;
+        }
+        long maxSize = Long.parseLong(Play.configuration.getProperty("play.static.cache.maxSize", "10485760"));
+        long maxFileSize = Long.parseLong(Play.configuration.getProperty("play.static.cache.maxFileSize", "262144"));
+        if (maxSize <= 0) {
+            return null;
+        }
+        return new StaticAssetCache(maxSize, maxFileSize);
+    }
+
+    /**
+     * @param path The static file path, as in RenderStatic
+     */
+    public Asset get(String path) {
+        synchronized (assets) {
+            return assets.get(path);
+        }
+    }
+
+    /**
+     * Load and cache this file, if it is small enough
+     *
+     * @param path The static file path, as in RenderStatic
+     * @return the cached asset, or null if the file is not cached
+     */
+    public Asset load(String path, VirtualFile file) {
+        File realFile = file.getRealFile();
+        long length = realFile.length();
+        if (length > maxFileSize || length > maxSize) {
+            return null;
+        }
+        // Same ETag as uncached files
+        long lastModified = realFile.lastModified();
+        String etag = "\"" + lastModified + "-" + realFile.hashCode() + "\"";
+        String contentType = MimeTypes.getContentType(realFile.getName(), "text/plain");
+        byte[] content = file.content();
+        Asset asset = new Asset(file, content, isCompressible(contentType) ? gzip(content) : null, contentType, lastModified, etag);
+        put(path, asset);
+        return asset;
+    }
+
+    void put(String path, Asset asset) {
+        synchronized (assets) {
+            Asset previous = assets.put(path, asset);
+            if (previous != null) {
+                size -= previous.size();
+            }
+            size += asset.size();
+            Iterator<Map.Entry<String, Asset>> eldest = assets.entrySet().iterator();
+            while (size > maxSize && eldest.hasNext()) {
+                size -= eldest.next().getValue().size();
+                eldest.remove();
+            }
+        }
+    }
+
+    public void clear() {
+        synchronized (assets) {
+            assets.clear();
+            size = 0;
+        }
+    }
+
+    static boolean isCompressible(String contentType) {
+        return contentType.startsWith("text/") || contentType.contains("javascript") || contentType.contains("json")
+                || contentType.contains("xml");
+    }
+
+    /**
+     * @return the compressed content, or null if it is not smaller
+     */
+    static byte[] gzip(byte[] content) {
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(content.length / 2 + 32);
+            GZIPOutputStream gzip = new GZIPOutputStream(out);
+            gzip.write(content);
+            gzip.close();
+            return out.size() < content.length ? out.toByteArray() : null;
+        } catch (IOException e) {
+            Logger.warn(e, "Cannot compress static asset");
+            return null;
+        }
+    }
+}
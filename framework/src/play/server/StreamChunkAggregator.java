@@ -1,7 +1,7 @@
 package play.server;
 
-import org.apache.commons.io.IOUtils;
-import org.jboss.netty.buffer.ChannelBufferInputStream;
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
 import org.jboss.netty.channel.ChannelHandlerContext;
 import org.jboss.netty.channel.Channels;
 import org.jboss.netty.channel.MessageEvent;
@@ -13,22 +13,42 @@ import play.Play;
 
 import java.io.File;
 import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 
+/**
+ * Aggregates the chunks of a chunked request body, after the HTTP decoder.
+ * <p/>
+ * The chunks are kept in memory, without copying them, until the body exceeds
+ * <code>play.netty.maxMemoryBodySize</code> bytes. Bigger bodies are spooled to a file in the tmp directory.
+ */
 public class StreamChunkAggregator extends SimpleChannelUpstreamHandler {
 
     private volatile HttpMessage currentMessage;
     private volatile OutputStream out;
     private final int maxContentLength;
+    private final int maxMemorySize;
     private volatile File file;
+    private volatile List<ChannelBuffer> chunks;
+    private volatile long size;
 
     /**
      * Creates a new instance.
      */
     public StreamChunkAggregator(int maxContentLength) {
+        this(maxContentLength, Integer.parseInt(Play.configuration.getProperty("play.netty.maxMemoryBodySize", "65536")));
+    }
+
+    /**
+     * @param maxContentLength The maximum body size, or -1
+     * @param maxMemorySize    The size above which the body is spooled to a file
+     */
+    public StreamChunkAggregator(int maxContentLength, int maxMemorySize) {
         this.maxContentLength = maxContentLength;
+        this.maxMemorySize = maxMemorySize;
     }
 
     @Override
@@ -40,11 +60,9 @@ public class StreamChunkAggregator extends SimpleChannelUpstreamHandler {
         }
 
         HttpMessage currentMessage = this.currentMessage;
-        File localFile = this.file;
         if (currentMessage == null) {
             HttpMessage m = (HttpMessage) msg;
             if (m.isChunked()) {
-                final String localName = UUID.randomUUID().toString();
                 // A chunked message - remove 'Transfer-Encoding' header,
                 // initialize the cumulative buffer, and wait for incoming chunks.
                 List<String> encodings = m.getHeaders(HttpHeaders.Names.TRANSFER_ENCODING);
@@ -53,38 +71,77 @@ public class StreamChunkAggregator extends SimpleChannelUpstreamHandler {
                     m.removeHeader(HttpHeaders.Names.TRANSFER_ENCODING);
                 }
                 this.currentMessage = m;
-                this.file = new File(Play.tmpDir, localName);
-                this.out = new FileOutputStream(file, true);
+                this.chunks = new ArrayList<ChannelBuffer>();
+                this.size = 0;
             } else {
                 // Not a chunked message - pass through.
                 ctx.sendUpstream(e);
             }
         } else {
-            // TODO: If less that threshold then in memory
             // Merge the received chunk into the content of the current message.
             final HttpChunk chunk = (HttpChunk) msg;
-            if (maxContentLength != -1 && (localFile.length() > (maxContentLength - chunk.getContent().readableBytes()))) {
+            ChannelBuffer content = chunk.getContent();
+            if (maxContentLength != -1 && (size > (maxContentLength - content.readableBytes()))) {
+                // The body is dropped, the request is still handled to report the error
                 currentMessage.setHeader(HttpHeaders.Names.WARNING, "play.netty.content.length.exceeded");
+                size += content.readableBytes();
+                discard();
             } else {
-                IOUtils.copyLarge(new ChannelBufferInputStream(chunk.getContent()), this.out);
+                append(content);
+            }
 
-                if (chunk.isLast()) {
+            if (chunk.isLast()) {
+                // Also set by the decoder for big bodies with a Content-Length
+                currentMessage.setChunked(false);
+                currentMessage.setHeader(
+                        HttpHeaders.Names.CONTENT_LENGTH,
+                        String.valueOf(size));
+
+                if (this.out != null) {
                     this.out.flush();
                     this.out.close();
+                    currentMessage.setContent(new FileChannelBuffer(this.file));
+                } else {
+                    currentMessage.setContent(ChannelBuffers.wrappedBuffer(chunks.toArray(new ChannelBuffer[chunks.size()])));
+                }
+                this.out = null;
+                this.currentMessage = null;
+                this.file = null;
+                this.chunks = null;
+                Channels.fireMessageReceived(ctx, currentMessage, e.getRemoteAddress());
+            }
+        }
 
-                    currentMessage.setHeader(
-                            HttpHeaders.Names.CONTENT_LENGTH,
-                            String.valueOf(localFile.length()));
+    }
 
-                    currentMessage.setContent(new FileChannelBuffer(localFile));
-                    this.out = null;
-                    this.currentMessage = null;
-                    this.file = null;
-                    Channels.fireMessageReceived(ctx, currentMessage, e.getRemoteAddress());
-                }
+    private void append(ChannelBuffer content) throws IOException {
+        if (!content.readable()) {
+            return;
+        }
+        size += content.readableBytes();
+        if (this.out == null && size <= maxMemorySize) {
+            chunks.add(content);
+            return;
+        }
+        if (this.out == null) {
+            // Too big to stay in memory
+            this.file = new File(Play.tmpDir, UUID.randomUUID().toString());
+            this.out = new FileOutputStream(file, true);
+            for (ChannelBuffer buffer : chunks) {
+                buffer.readBytes(this.out, buffer.readableBytes());
             }
+            chunks.clear();
         }
+        content.readBytes(this.out, content.readableBytes());
+    }
 
+    private void discard() throws IOException {
+        chunks.clear();
+        if (this.out != null) {
+            this.out.close();
+            this.out = null;
+            this.file.delete();
+            this.file = null;
+        }
     }
 }
-
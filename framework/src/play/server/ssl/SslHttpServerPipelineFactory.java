@@ -7,6 +7,7 @@ import org.jboss.netty.handler.codec.http.HttpResponseEncoder;
 import org.jboss.netty.handler.ssl.SslHandler;
 import org.jboss.netty.handler.stream.ChunkedWriteHandler;
 import play.Play;
+import play.server.CompressionHandler;
 import play.server.FlashPolicyHandler;
 import play.server.StreamChunkAggregator;
 
@@ -41,6 +42,9 @@ public class SslHttpServerPipelineFactory implements ChannelPipelineFactory {
         pipeline.addLast("decoder", new HttpRequestDecoder());
         pipeline.addLast("aggregator", new StreamChunkAggregator(max));
         pipeline.addLast("encoder", new HttpResponseEncoder());
+        if (CompressionHandler.isEnabled()) {
+            pipeline.addLast("compressor", CompressionHandler.create());
+        }
         pipeline.addLast("chunkedWriter", new ChunkedWriteHandler());
 
         pipeline.addLast("handler", new SslPlayHandler());
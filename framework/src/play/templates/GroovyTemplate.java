@@ -30,8 +30,10 @@ import play.utils.Java;
 
 import java.io.File;
 import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.io.Writer;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.util.*;
@@ -173,8 +175,25 @@ public class GroovyTemplate extends BaseTemplate {
         }
     }
 
+    @Override
+    public void render(Map<String, Object> args, Writer out) {
+        try {
+            internalRender(new HashMap<String, Object>(args), out);
+        } finally {
+            currentTemplate.remove();
+        }
+    }
+
     @Override
     protected String internalRender(Map<String, Object> args) {
+        return internalRender(args, null);
+    }
+
+    /**
+     * @param stream If not null, the result is written to this writer and null is returned.
+     *               Templates without layout are written to it while running.
+     */
+    protected String internalRender(Map<String, Object> args, Writer stream) {
         compile();
         Binding binding = new Binding(args);
         binding.setVariable("play", new Play());
@@ -185,7 +204,8 @@ public class GroovyTemplate extends BaseTemplate {
         if (currentResponse != null) {
             binding.setVariable("_response_encoding", currentResponse.encoding);
         }
-        StringWriter writer = null;
+        Writer writer = null;
+        LayoutGate gate = null;
         Boolean applyLayouts = false;
 
         // must check if this is the first template being rendered..
@@ -198,7 +218,14 @@ public class GroovyTemplate extends BaseTemplate {
             // to write the output to..
             applyLayouts = true;
             layout.set(null);
-            writer = new StringWriter();
+            if (stream != null) {
+                // Written directly unless a layout has been set once the threshold is reached
+                int threshold = Integer.parseInt(Play.configuration.getProperty("play.templates.streaming.threshold", "8192"));
+                gate = new LayoutGate(stream, threshold);
+                writer = gate;
+            } else {
+                writer = new StringWriter();
+            }
             binding.setProperty("out", new PrintWriter(writer));
             currentTemplate.set(this);
         }
@@ -248,26 +275,92 @@ public class GroovyTemplate extends BaseTemplate {
             layoutArgs.remove("out");
             layoutArgs.put("_isLayout", true);
             String layoutR = layout.get().internalRender(layoutArgs);
+            if (gate != null && gate.streaming) {
+                throw new UnexpectedException("The layout of " + name + " has been set after the first " + gate.threshold
+                        + " characters were streamed: set it at the beginning of the template");
+            }
+            StringWriter buffer = gate != null ? gate.buffer : (StringWriter) writer;
 
             // Must replace '____%LAYOUT%____' inside the string layoutR with the content from writer..
             final String whatToFind = "____%LAYOUT%____";
             final int pos = layoutR.indexOf(whatToFind);
             if (pos >= 0) {
+                if (stream != null) {
+                    writeTrimmed(stream, layoutR.substring(0, pos), buffer.getBuffer(), layoutR.substring(pos + whatToFind.length()));
+                    return null;
+                }
                 // prepending and appending directly to writer/buffer to prevent us
                 // from having to duplicate the string.
                 // this makes us use half of the memory!
-                writer.getBuffer().insert(0, layoutR.substring(0, pos));
-                writer.append(layoutR.substring(pos + whatToFind.length()));
-                return writer.toString().trim();
+                buffer.getBuffer().insert(0, layoutR.substring(0, pos));
+                buffer.append(layoutR.substring(pos + whatToFind.length()));
+                return buffer.toString().trim();
+            }
+            if (stream != null) {
+                write(stream, layoutR);
+                return null;
             }
             return layoutR;
         }
+        if (gate != null) {
+            try {
+                gate.close();
+            } catch (IOException e) {
+                throw new UnexpectedException(e);
+            }
+            return null;
+        }
         if (writer != null) {
             return writer.toString();
         }
         return null;
     }
 
+    static void write(Writer out, CharSequence content) {
+        try {
+            out.append(content);
+        } catch (IOException e) {
+            throw new UnexpectedException(e);
+        }
+    }
+
+    /**
+     * Write the concatenation of these parts, trimmed like String.trim() would, without concatenating them.
+     */
+    static void writeTrimmed(Writer out, CharSequence... parts) {
+        int first = -1, firstStart = 0, last = -1, lastEnd = 0;
+        for (int i = 0; i < parts.length && first < 0; i++) {
+            for (int c = 0; c < parts[i].length(); c++) {
+                if (parts[i].charAt(c) > ' ') {
+                    first = i;
+                    firstStart = c;
+                    break;
+                }
+            }
+        }
+        if (first < 0) {
+            return;
+        }
+        for (int i = parts.length - 1; i >= first && last < 0; i--) {
+            for (int c = parts[i].length() - 1; c >= 0; c--) {
+                if (parts[i].charAt(c) > ' ') {
+                    last = i;
+                    lastEnd = c + 1;
+                    break;
+                }
+            }
+        }
+        try {
+            for (int i = first; i <= last; i++) {
+                int start = i == first ? firstStart : 0;
+                int end = i == last ? lastEnd : parts[i].length();
+                out.append(parts[i], start, end);
+            }
+        } catch (IOException e) {
+            throw new UnexpectedException(e);
+        }
+    }
+
     Throwable cleanStackTrace(Throwable e) {
         List<StackTraceElement> cleanTrace = new ArrayList<StackTraceElement>();
         for (StackTraceElement se : e.getStackTrace()) {
@@ -0,0 +1,67 @@
+package play.templates;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+
+/**
+ * Buffers the output of a template until the threshold is reached, then writes it to the stream if the
+ * template has no layout. Otherwise it is kept until the layout is rendered around it.
+ */
+class LayoutGate extends Writer {
+
+    final Writer stream;
+    final int threshold;
+    final StringWriter buffer = new StringWriter();
+    boolean streaming;
+
+    LayoutGate(Writer stream, int threshold) {
+        this.stream = stream;
+        this.threshold = threshold;
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+        if (streaming) {
+            stream.write(cbuf, off, len);
+            return;
+        }
+        buffer.write(cbuf, off, len);
+        written();
+    }
+
+    @Override
+    public void write(String str, int off, int len) throws IOException {
+        if (streaming) {
+            stream.write(str, off, len);
+            return;
+        }
+        buffer.write(str, off, len);
+        written();
+    }
+
+    void written() throws IOException {
+        if (buffer.getBuffer().length() >= threshold && BaseTemplate.layout.get() == null) {
+            streaming = true;
+            stream.append(buffer.getBuffer());
+            buffer.getBuffer().setLength(0);
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (streaming) {
+            stream.flush();
+        }
+    }
+
+    /**
+     * Write what's left to the stream, for a template without layout
+     */
+    @Override
+    public void close() throws IOException {
+        if (!streaming) {
+            stream.append(buffer.getBuffer());
+        }
+    }
+}
@@ -1,5 +1,9 @@
 package play.templates;
 
+import play.exceptions.UnexpectedException;
+
+import java.io.IOException;
+import java.io.Writer;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -28,6 +32,21 @@ public abstract class Template {
     }
 
 
+    /**
+     * Render to a writer without modifying the args-map.
+     * Templates able to stream their output write it while rendering, others render it to a String first.
+     *
+     * @param args map containing data binding info
+     * @param out  the writer receiving the result of the complete rendering
+     */
+    public void render(Map<String, Object> args, Writer out) {
+        try {
+            out.write(render(args));
+        } catch (IOException e) {
+            throw new UnexpectedException(e);
+        }
+    }
+
     /**
      * The internal rendering method - When one templated calls another template,
      * this method is used. The input args-map is constantly being modified, as different
@@ -0,0 +1,123 @@
+package play.utils;
+
+import play.Play;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A pool of byte arrays split in size classes (4KB, 16KB, 64KB, 256KB and 1MB).
+ * <p/>
+ * Arrays bigger than the largest class are not pooled. Each class keeps at most
+ * <code>play.netty.buffers.max</code> free arrays (32 by default, 0 disables pooling),
+ * extra arrays are left to the garbage collector.
+ */
+public class BufferPool {
+
+    static final int MIN_SIZE = 4096;
+    static final int CLASSES = 5;
+
+    static volatile BufferPool shared;
+
+    final Queue<byte[]>[] free;
+    final AtomicInteger[] counts;
+    final int max;
+
+    @SuppressWarnings("unchecked")
+    public BufferPool(int max) {
+        this.max = max;
+        this.free = new Queue[CLASSES];
+        this.counts = new AtomicInteger[CLASSES];
+        for (int i = 0; i < CLASSES; i++) {
+            free[i] = new ConcurrentLinkedQueue<byte[]>();
+            counts[i] = new AtomicInteger();
+        }
+    }
+
+    /**
+     * The pool used for the response buffers
+     */
+    public static BufferPool shared() {
+        BufferPool pool = shared;
+        if (pool == null) {
+            // Created once: the arrays must be released to the pool they were acquired from
+            synchronized (BufferPool.class) {
+                pool = shared;
+                if (pool == null) {
+                    int max = 32;
+                    if (Play.configuration != null) {
+                        max = Integer.parseInt(Play.configuration.getProperty("play.netty.buffers.max", "32"));
+                    }
+                    pool = new BufferPool(max);
+                    shared = pool;
+                }
+            }
+        }
+        return pool;
+    }
+
+    /**
+     * @return the size of the smallest class holding this many bytes, or -1 if it is too big to be pooled
+     */
+    static int sizeClass(int size) {
+        int capacity = MIN_SIZE;
+        for (int i = 0; i < CLASSES; i++) {
+            if (size <= capacity) {
+                return i;
+            }
+            capacity <<= 2;
+        }
+        return -1;
+    }
+
+    static int capacity(int sizeClass) {
+        return MIN_SIZE << (2 * sizeClass);
+    }
+
+    /**
+     * Get an array of at least this size
+     */
+    public byte[] acquire(int size) {
+        int sizeClass = sizeClass(size);
+        if (sizeClass < 0) {
+            return new byte[size];
+        }
+        byte[] buffer = free[sizeClass].poll();
+        if (buffer == null) {
+            return new byte[capacity(sizeClass)];
+        }
+        counts[sizeClass].decrementAndGet();
+        return buffer;
+    }
+
+    /**
+     * Give an array back to the pool. The caller must not use it anymore.
+     */
+    public void release(byte[] buffer) {
+        if (buffer == null || buffer.length < MIN_SIZE) {
+            return;
+        }
+        // Only arrays from acquire() have the exact size of their class
+        int sizeClass = sizeClass(buffer.length);
+        if (sizeClass < 0 || buffer.length != capacity(sizeClass)) {
+            return;
+        }
+        if (counts[sizeClass].incrementAndGet() > max) {
+            counts[sizeClass].decrementAndGet();
+            return;
+        }
+        free[sizeClass].offer(buffer);
+    }
+
+    /**
+     * @return the number of free arrays held by the pool
+     */
+    public int size() {
+        int size = 0;
+        for (AtomicInteger count : counts) {
+            size += count.get();
+        }
+        return size;
+    }
+}
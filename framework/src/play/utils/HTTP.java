@@ -40,6 +40,75 @@ public class HTTP {
 
     }
 
+    /**
+     * Parse a Range header. Only single byte ranges are supported: other requests get the whole content.
+     *
+     * @return the first and last positions of the range, null to send the whole content
+     *         or an empty array if the range can not be satisfied
+     */
+    public static long[] parseRange(String header, long length) {
+        if (header == null || !header.startsWith("bytes=") || header.indexOf(',') > -1) {
+            return null;
+        }
+        String spec = header.substring("bytes=".length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return null;
+        }
+        try {
+            String first = spec.substring(0, dash).trim();
+            String last = spec.substring(dash + 1).trim();
+            long start;
+            long end;
+            if (first.length() == 0) {
+                // Suffix range: the last bytes
+                long suffix = Long.parseLong(last);
+                if (suffix <= 0 || length == 0) {
+                    return new long[0];
+                }
+                start = Math.max(0, length - suffix);
+                end = length - 1;
+            } else {
+                start = Long.parseLong(first);
+                end = last.length() == 0 ? length - 1 : Math.min(Long.parseLong(last), length - 1);
+                if (start < 0 || (last.length() > 0 && Long.parseLong(last) < start)) {
+                    return null;
+                }
+                if (start >= length) {
+                    return new long[0];
+                }
+            }
+            return new long[]{start, end};
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @param acceptEncoding The Accept-Encoding header
+     * @param coding         A content coding such as gzip or deflate
+     * @return true if the client accepts this content coding
+     */
+    public static boolean acceptsEncoding(String acceptEncoding, String coding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String accepted : acceptEncoding.split(",")) {
+            String[] parts = accepted.trim().split(";");
+            String name = parts[0].trim();
+            if (name.equalsIgnoreCase(coding) || name.equals("*")) {
+                for (int i = 1; i < parts.length; i++) {
+                    String param = parts[i].trim().replace(" ", "");
+                    if (param.startsWith("q=") && param.substring(2).matches("0(\\.0*)?")) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
     private static final Map<String, String> lower2UppercaseHttpHeaders = initLower2UppercaseHttpHeaders();
 
     private static Map<String, String> initLower2UppercaseHttpHeaders() {
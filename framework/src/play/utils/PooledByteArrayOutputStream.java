@@ -0,0 +1,73 @@
+package play.utils;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * A ByteArrayOutputStream whose internal array comes from a BufferPool.
+ * <p/>
+ * When the content outgrows the array, it moves to an array of the next size class and the
+ * previous one goes back to the pool. Use <code>buffer()</code> to read the content without copying it,
+ * then <code>release()</code> once it has been consumed.
+ */
+public class PooledByteArrayOutputStream extends ByteArrayOutputStream {
+
+    static final byte[] EMPTY = new byte[0];
+
+    final BufferPool pool;
+
+    public PooledByteArrayOutputStream() {
+        this(BufferPool.shared());
+    }
+
+    public PooledByteArrayOutputStream(BufferPool pool) {
+        super(0);
+        this.pool = pool;
+        this.buf = EMPTY;
+    }
+
+    @Override
+    public synchronized void write(int b) {
+        ensureCapacity(count + 1);
+        buf[count] = (byte) b;
+        count++;
+    }
+
+    @Override
+    public synchronized void write(byte[] b, int off, int len) {
+        if (off < 0 || len < 0 || off > b.length - len) {
+            throw new IndexOutOfBoundsException();
+        }
+        ensureCapacity(count + len);
+        System.arraycopy(b, off, buf, count, len);
+        count += len;
+    }
+
+    void ensureCapacity(int capacity) {
+        if (capacity < 0) {
+            throw new OutOfMemoryError();
+        }
+        if (capacity > buf.length) {
+            byte[] bigger = pool.acquire(Math.max(capacity, buf.length << 1));
+            System.arraycopy(buf, 0, bigger, 0, count);
+            pool.release(buf);
+            buf = bigger;
+        }
+    }
+
+    /**
+     * The internal array, valid from 0 to size()
+     */
+    public synchronized byte[] buffer() {
+        return buf;
+    }
+
+    /**
+     * Give the internal array back to the pool. The stream is empty afterwards.
+     */
+    public synchronized void release() {
+        byte[] buffer = buf;
+        buf = EMPTY;
+        count = 0;
+        pool.release(buffer);
+    }
+}
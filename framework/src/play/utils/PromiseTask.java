@@ -0,0 +1,47 @@
+package play.utils;
+
+import play.libs.F.Promise;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * A task that redeems a promise when it completes, so that the code waiting for it, e.g. a suspended request,
+ * is called back instead of checking it.
+ */
+public class PromiseTask<V> extends FutureTask<V> {
+
+    final Promise<V> promise = new Promise<V>();
+
+    public PromiseTask(Callable<V> callable) {
+        super(callable);
+    }
+
+    public PromiseTask(Runnable runnable, V result) {
+        super(runnable, result);
+    }
+
+    /**
+     * @return The promise redeemed with the result of the task, or its exception
+     */
+    public Promise<V> promise() {
+        return promise;
+    }
+
+    @Override
+    protected void done() {
+        if (isCancelled()) {
+            promise.invokeWithException(new CancellationException());
+            return;
+        }
+        try {
+            promise.invoke(get());
+        } catch (ExecutionException e) {
+            promise.invokeWithException(e.getCause());
+        } catch (Throwable e) {
+            promise.invokeWithException(e);
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package play.utils;
+
+import org.jboss.netty.util.HashedWheelTimer;
+import org.jboss.netty.util.Timeout;
+import org.jboss.netty.util.Timer;
+import org.jboss.netty.util.TimerTask;
+import play.Play;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Shared timer for the delays of the framework: promise timeouts, delayed invocations and jobs.
+ * <p/>
+ * It is a hashed wheel: scheduling or cancelling a task takes a constant time, and a cancelled task is
+ * removed from the wheel at once. Delays are rounded up to the tick, <code>play.timer.tick</code> milliseconds.
+ * The wheel has <code>play.timer.wheelSize</code> buckets; longer delays take several turns.
+ */
+public class WheelTimer {
+
+    static Timer timer;
+    static final AtomicInteger pending = new AtomicInteger();
+
+    public static synchronized Timer timer() {
+        if (timer == null) {
+            String tick = "10";
+            String wheelSize = "512";
+            if (Play.configuration != null) {
+                tick = Play.configuration.getProperty("play.timer.tick", tick);
+                wheelSize = Play.configuration.getProperty("play.timer.wheelSize", wheelSize);
+            }
+            timer = new HashedWheelTimer(new ThreadFactory() {
+
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "play-timer");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            }, Long.parseLong(tick), TimeUnit.MILLISECONDS, Integer.parseInt(wheelSize));
+        }
+        return timer;
+    }
+
+    /**
+     * Runs the task on the timer thread once the delay has elapsed. The task must be short, since it delays the
+     * other ones.
+     *
+     * @return the timeout, to cancel the task
+     */
+    public static Timeout schedule(final Runnable task, long delay, TimeUnit unit) {
+        return timer().newTimeout(new TimerTask() {
+
+            public void run(Timeout timeout) {
+                task.run();
+            }
+        }, delay, unit);
+    }
+
+    /**
+     * Submits the task to the executor once the delay has elapsed.
+     *
+     * @return the future of the task. Cancelling it also removes the task from the timer.
+     */
+    public static <V> Future<V> submit(Executor executor, Callable<V> task, long delay, TimeUnit unit) {
+        DelayedTask<V> delayed = new DelayedTask<V>(task, executor);
+        pending.incrementAndGet();
+        delayed.timeout = timer().newTimeout(delayed, delay, unit);
+        return delayed;
+    }
+
+    /**
+     * @return The number of tasks submitted and still waiting for their delay
+     */
+    public static int pending() {
+        return pending.get();
+    }
+
+    public static Future<?> submit(Executor executor, Runnable task, long delay, TimeUnit unit) {
+        return submit(executor, Executors.callable(task), delay, unit);
+    }
+
+    static class DelayedTask<V> extends PromiseTask<V> implements TimerTask {
+
+        final Executor executor;
+        volatile Timeout timeout;
+        final AtomicBoolean waiting = new AtomicBoolean(true);
+
+        DelayedTask(Callable<V> callable, Executor executor) {
+            super(callable);
+            this.executor = executor;
+        }
+
+        void stopWaiting() {
+            if (waiting.compareAndSet(true, false)) {
+                pending.decrementAndGet();
+            }
+        }
+
+        public void run(Timeout timeout) {
+            stopWaiting();
+            if (isCancelled()) {
+                return;
+            }
+            try {
+                executor.execute(this);
+            } catch (RejectedExecutionException e) {
+                setException(e);
+            }
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            Timeout timeout = this.timeout;
+            if (timeout != null) {
+                timeout.cancel();
+            }
+            stopWaiting();
+            return super.cancel(mayInterruptIfRunning);
+        }
+    }
+}
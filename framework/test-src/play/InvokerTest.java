@@ -0,0 +1,95 @@
+package play;
+
+import org.junit.Test;
+import play.libs.F;
+import play.utils.PromiseTask;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class InvokerTest {
+
+    @Test
+    public void promisesAreNotWrapped() {
+        F.Promise<String> promise = new F.Promise<String>();
+        assertThat(Invoker.WaitForTasksCompletion.toPromise(promise)).isSameAs(promise);
+    }
+
+    @Test
+    public void futuresAreAdaptedIntoPromises() throws Exception {
+        FutureTask<String> task = new FutureTask<String>(new Callable<String>() {
+
+            public String call() {
+                return "done";
+            }
+        });
+        F.Promise<String> promise = Invoker.WaitForTasksCompletion.toPromise(task);
+        assertThat(promise.isDone()).isFalse();
+        new Thread(task).start();
+        assertThat(promise.get(5, TimeUnit.SECONDS)).isEqualTo("done");
+    }
+
+    @Test
+    public void failuresAreRedeemedAsExceptions() throws Exception {
+        FutureTask<String> task = new FutureTask<String>(new Callable<String>() {
+
+            public String call() {
+                throw new IllegalStateException("failed");
+            }
+        });
+        task.run();
+        F.Promise<String> promise = Invoker.WaitForTasksCompletion.toPromise(task);
+        assertThat(promise.isDone()).isTrue();
+        try {
+            promise.get();
+        } catch (ExecutionException e) {
+            assertThat(e.getCause()).isInstanceOf(IllegalStateException.class);
+            return;
+        }
+        throw new AssertionError("The promise should hold the exception");
+    }
+
+    @Test
+    public void tasksRedeemTheirPromiseWhenTheyComplete() throws Exception {
+        PromiseTask<String> task = new PromiseTask<String>(new Callable<String>() {
+
+            public String call() {
+                return "done";
+            }
+        });
+        F.Promise<String> promise = Invoker.WaitForTasksCompletion.toPromise(task);
+        assertThat(promise).isSameAs(task.promise());
+        task.run();
+        assertThat(promise.isDone()).isTrue();
+        assertThat(promise.get()).isEqualTo("done");
+    }
+
+    @Test
+    public void otherFuturesAreCheckedTogether() throws Exception {
+        List<FutureTask<Integer>> tasks = new ArrayList<FutureTask<Integer>>();
+        List<F.Promise<Integer>> promises = new ArrayList<F.Promise<Integer>>();
+        for (int i = 0; i < 100; i++) {
+            final int value = i;
+            FutureTask<Integer> task = new FutureTask<Integer>(new Callable<Integer>() {
+
+                public Integer call() {
+                    return value;
+                }
+            });
+            tasks.add(task);
+            promises.add(Invoker.WaitForTasksCompletion.toPromise(task));
+        }
+        for (FutureTask<Integer> task : tasks) {
+            task.run();
+        }
+        for (int i = 0; i < 100; i++) {
+            assertThat(promises.get(i).get(5, TimeUnit.SECONDS)).isEqualTo(i);
+        }
+    }
+}
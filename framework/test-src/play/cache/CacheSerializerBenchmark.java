@@ -0,0 +1,47 @@
+package play.cache;
+
+import net.spy.memcached.CachedData;
+import play.mvc.results.RenderTemplate;
+
+/**
+ * Compares the size and the encoding and decoding times of the @CacheFor results stored in memcached, with Java
+ * serialization and the compact format, without and with compression.
+ * Not a unit test: run it with <code>java play.cache.CacheSerializerBenchmark [iterations]</code>.
+ */
+public class CacheSerializerBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+        for (int rows : new int[]{10, 100, 1000}) {
+            RenderTemplate template = new RenderTemplate("Application/index.html", CompactSerializerTest.page(rows));
+            System.out.println(String.format("Page of %d chars:", template.getContent().length()));
+            run("java", new JavaSerializer(), Integer.MAX_VALUE, template, iterations);
+            run("compact", new CompactSerializer(), Integer.MAX_VALUE, template, iterations);
+            run("java, compressed", new JavaSerializer(), 1024, template, iterations);
+            run("compact, compressed", new CompactSerializer(), 1024, template, iterations);
+        }
+    }
+
+    static void run(String name, CacheSerializer serializer, int compressionThreshold, RenderTemplate template, int iterations) {
+        MemcachedImpl.Transcoder transcoder = new MemcachedImpl.Transcoder(serializer);
+        transcoder.setCompressionThreshold(compressionThreshold);
+        CachedData data = null;
+        // Warm up
+        for (int i = 0; i < iterations; i++) {
+            data = transcoder.encode(template);
+            transcoder.decode(data);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            data = transcoder.encode(template);
+        }
+        long encode = System.nanoTime() - start;
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            transcoder.decode(data);
+        }
+        long decode = System.nanoTime() - start;
+        System.out.println(String.format("  %-20s %8d bytes, encode %9.1f us, decode %9.1f us",
+                name, data.getData().length, encode / 1000.0 / iterations, decode / 1000.0 / iterations));
+    }
+}
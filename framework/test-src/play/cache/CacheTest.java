@@ -0,0 +1,173 @@
+package play.cache;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class CacheTest {
+
+    CacheImpl previous;
+
+    @Before
+    public void setUp() {
+        previous = Cache.cacheImpl;
+        Cache.cacheImpl = EhCacheImpl.getInstance() != null ? EhCacheImpl.getInstance() : EhCacheImpl.newInstance();
+        Cache.cacheImpl.clear();
+        Cache.leaseTimeout = 0;
+        Cache.waitTimeout = 5000;
+    }
+
+    @After
+    public void tearDown() {
+        Cache.leaseTimeout = 0;
+        Cache.waitTimeout = 5000;
+        Cache.cacheImpl = previous;
+    }
+
+    static class SlowCompute implements Callable<String> {
+
+        final AtomicInteger calls = new AtomicInteger();
+        final CountDownLatch release = new CountDownLatch(1);
+        final String value;
+
+        SlowCompute(String value) {
+            this.value = value;
+        }
+
+        public String call() throws Exception {
+            calls.incrementAndGet();
+            release.await(5, TimeUnit.SECONDS);
+            return value;
+        }
+    }
+
+    @Test
+    public void concurrentCallsComputeOnce() throws Exception {
+        final SlowCompute compute = new SlowCompute("value");
+        final String[] results = new String[8];
+        Thread[] threads = new Thread[results.length];
+        for (int i = 0; i < threads.length; i++) {
+            final int index = i;
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    results[index] = Cache.getOrCompute("CacheTest_once", "10s", compute);
+                }
+            };
+            threads[i].start();
+        }
+        Thread.sleep(200);
+        compute.release.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertThat(compute.calls.get()).isEqualTo(1);
+        for (String result : results) {
+            assertThat(result).isEqualTo("value");
+        }
+        assertThat(Cache.get("CacheTest_once")).isEqualTo("value");
+    }
+
+    @Test
+    public void nullIsNotCached() {
+        final AtomicInteger calls = new AtomicInteger();
+        Callable<String> compute = new Callable<String>() {
+
+            public String call() {
+                calls.incrementAndGet();
+                return null;
+            }
+        };
+        assertThat(Cache.getOrCompute("CacheTest_null", "10s", compute)).isNull();
+        assertThat(Cache.getOrCompute("CacheTest_null", "10s", compute)).isNull();
+        assertThat(calls.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void staleValueIsServedWhileComputed() throws Exception {
+        Cache.cacheImpl.set("CacheTest_stale", new Cache.StaleValue("old", System.currentTimeMillis() - 1), 10);
+        final SlowCompute compute = new SlowCompute("new");
+        final String[] result = new String[1];
+        Thread owner = new Thread() {
+            @Override
+            public void run() {
+                result[0] = Cache.getOrCompute("CacheTest_stale", "10s", "10s", compute);
+            }
+        };
+        owner.start();
+        while (compute.calls.get() == 0) {
+            Thread.sleep(10);
+        }
+        assertThat(Cache.getOrCompute("CacheTest_stale", "10s", "10s", compute)).isEqualTo("old");
+        compute.release.countDown();
+        owner.join();
+        assertThat(result[0]).isEqualTo("new");
+        assertThat(Cache.getOrCompute("CacheTest_stale", "10s", "10s", compute)).isEqualTo("new");
+        assertThat(compute.calls.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void valueOfTheNodeHoldingTheLeaseIsAwaited() throws Exception {
+        Cache.leaseTimeout = 5;
+        Cache.cacheImpl.add("CacheTest_lease#lease", Boolean.TRUE, 5);
+        SlowCompute compute = new SlowCompute("mine");
+        compute.release.countDown();
+        new Thread() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(200);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                Cache.cacheImpl.set("CacheTest_lease", "theirs", 10);
+            }
+        }.start();
+        assertThat(Cache.getOrCompute("CacheTest_lease", "10s", compute)).isEqualTo("theirs");
+        assertThat(compute.calls.get()).isEqualTo(0);
+    }
+
+    @Test
+    public void waitingThreadsComputeTheValueWhenItTakesTooLong() throws Exception {
+        Cache.waitTimeout = 100;
+        final SlowCompute hung = new SlowCompute("hung");
+        Thread owner = new Thread() {
+            @Override
+            public void run() {
+                Cache.getOrCompute("CacheTest_hung", "10s", hung);
+            }
+        };
+        owner.start();
+        while (hung.calls.get() == 0) {
+            Thread.sleep(10);
+        }
+        SlowCompute compute = new SlowCompute("mine");
+        compute.release.countDown();
+        long start = System.currentTimeMillis();
+        assertThat(Cache.getOrCompute("CacheTest_hung", "10s", compute)).isEqualTo("mine");
+        assertThat(System.currentTimeMillis() - start).isLessThan(2000);
+        assertThat(compute.calls.get()).isEqualTo(1);
+        hung.release.countDown();
+        owner.join();
+    }
+
+    @Test
+    public void theLeaseOfAnotherNodeIsAwaitedForTheWaitTimeoutOnly() {
+        Cache.leaseTimeout = 30;
+        Cache.waitTimeout = 100;
+        Cache.cacheImpl.add("CacheTest_lease_held#lease", Boolean.TRUE, 30);
+        SlowCompute compute = new SlowCompute("mine");
+        compute.release.countDown();
+        long start = System.currentTimeMillis();
+        assertThat(Cache.getOrCompute("CacheTest_lease_held", "10s", compute)).isEqualTo("mine");
+        assertThat(System.currentTimeMillis() - start).isLessThan(2000);
+        assertThat(compute.calls.get()).isEqualTo(1);
+    }
+}
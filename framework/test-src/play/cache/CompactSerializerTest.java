@@ -0,0 +1,105 @@
+package play.cache;
+
+import net.spy.memcached.CachedData;
+import org.junit.Test;
+import play.mvc.results.RenderJson;
+import play.mvc.results.RenderTemplate;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class CompactSerializerTest {
+
+    static class Price {
+
+        final String currency;
+        final long cents;
+
+        Price(String currency, long cents) {
+            this.currency = currency;
+            this.cents = cents;
+        }
+    }
+
+    static String page(int rows) {
+        StringBuilder page = new StringBuilder("<html><body><table>");
+        for (int i = 0; i < rows; i++) {
+            page.append("<tr class=\"row\"><td>Product ").append(i).append("</td><td>").append(i * 3).append(" €</td></tr>\n");
+        }
+        return page.append("</table></body></html>").toString();
+    }
+
+    Object roundTrip(Object value) throws Exception {
+        CompactSerializer serializer = new CompactSerializer();
+        return serializer.deserialize(serializer.serialize(value));
+    }
+
+    @Test
+    public void renderedTemplateIsWrittenAsItsContent() throws Exception {
+        RenderTemplate template = new RenderTemplate("Application/index.html", page(10));
+        RenderTemplate read = (RenderTemplate) roundTrip(template);
+        assertThat(read.getName()).isEqualTo("Application/index.html");
+        assertThat(read.getContent()).isEqualTo(template.getContent());
+        assertThat(new CompactSerializer().serialize(template).length).isLessThan(new JavaSerializer().serialize(template).length);
+    }
+
+    @Test
+    public void renderedJsonIsWrittenAsItsContent() throws Exception {
+        RenderJson read = (RenderJson) roundTrip(new RenderJson(Arrays.asList(1, 2)));
+        assertThat(read.getJson()).isEqualTo("[1,2]");
+    }
+
+    @Test
+    public void staleValueIsWrittenWithItsValue() throws Exception {
+        Cache.StaleValue read = (Cache.StaleValue) roundTrip(new Cache.StaleValue("value", 42L));
+        assertThat(read.value).isEqualTo("value");
+        assertThat(read.freshUntil).isEqualTo(42L);
+        assertThat(roundTrip(null)).isNull();
+    }
+
+    @Test
+    public void otherTypesAreSerializedWithJava() throws Exception {
+        List<String> list = new ArrayList<String>(Arrays.asList("a", "b"));
+        assertThat(roundTrip(list)).isEqualTo(list);
+        assertThat(new CompactSerializer().deserialize(new JavaSerializer().serialize(list))).isEqualTo(list);
+    }
+
+    @Test
+    public void registeredTypesAreWrittenByTheirCodec() throws Exception {
+        CompactSerializer.register(40, Price.class, new CompactSerializer.Codec<Price>() {
+
+            public void write(Price value, DataOutputStream out) throws IOException {
+                CompactSerializer.writeString(value.currency, out);
+                out.writeLong(value.cents);
+            }
+
+            public Price read(DataInputStream in) throws IOException {
+                return new Price(CompactSerializer.readString(in), in.readLong());
+            }
+        });
+        Price read = (Price) roundTrip(new Price("EUR", 1250));
+        assertThat(read.currency).isEqualTo("EUR");
+        assertThat(read.cents).isEqualTo(1250L);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void reservedIdsCannotBeRegistered() {
+        CompactSerializer.register(7, Price.class, null);
+    }
+
+    @Test
+    public void largeValuesAreCompressed() throws Exception {
+        MemcachedImpl.Transcoder transcoder = new MemcachedImpl.Transcoder(new CompactSerializer());
+        transcoder.setCompressionThreshold(1024);
+        RenderTemplate template = new RenderTemplate("Application/index.html", page(500));
+        CachedData data = transcoder.encode(template);
+        assertThat(data.getData().length).isLessThan(template.getContent().length() / 4);
+        assertThat(((RenderTemplate) transcoder.decode(data)).getContent()).isEqualTo(template.getContent());
+    }
+}
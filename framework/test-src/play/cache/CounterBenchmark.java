@@ -0,0 +1,59 @@
+package play.cache;
+
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Measures the throughput of Cache.incr() with EhCache when many threads count requests, as a rate limiter does:
+ * each thread increments the counter of one of a few clients.
+ * Not a unit test: run it with <code>java play.cache.CounterBenchmark [increments per thread]</code>.
+ */
+public class CounterBenchmark {
+
+    static final int KEYS = 100;
+
+    public static void main(String[] args) throws Exception {
+        int increments = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+        EhCacheImpl cache = EhCacheImpl.newInstance();
+        for (int i = 0; i < KEYS; i++) {
+            cache.set("counter" + i, 0L, 3600);
+        }
+        // Warm up
+        run(cache, 2, increments);
+        int cores = Runtime.getRuntime().availableProcessors();
+        for (int threads = 1; threads <= cores * 2; threads *= 2) {
+            long time = run(cache, threads, increments);
+            long total = (long) threads * increments;
+            System.out.println(String.format("%3d threads: %8.1f ns/incr, %10.0f incr/s",
+                    threads, (double) time / total, total * 1e9 / time));
+        }
+        cache.stop();
+    }
+
+    static long run(final EhCacheImpl cache, int count, final int increments) throws Exception {
+        final CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[count];
+        for (int t = 0; t < count; t++) {
+            final int offset = t * 7;
+            threads[t] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 0; i < increments; i++) {
+                        cache.incr("counter" + ((i + offset) % KEYS), 1);
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        return System.nanoTime() - begin;
+    }
+}
@@ -1,13 +1,17 @@
 package play.cache;
 
 import org.junit.Test;
+import play.libs.F.Promise;
+
+import java.util.Map;
+
 import static org.fest.assertions.Assertions.assertThat;
 
 public class EhCacheImplTest {
 
     @Test
     public void verifyThatTTLSurvivesIncrDecr() throws Exception {
-        final EhCacheImpl cache = EhCacheImpl.newInstance();
+        final EhCacheImpl cache = EhCacheImpl.getInstance() != null ? EhCacheImpl.getInstance() : EhCacheImpl.newInstance();
         cache.clear();
 
         final String key = "EhCacheImplTest_verifyThatTTLSurvivesIncrDecr";
@@ -29,4 +33,41 @@ public class EhCacheImplTest {
         assertThat(cache.get(key)).isNull();
 
     }
+
+    @Test
+    public void promisesAreAlreadyRedeemed() throws Exception {
+        EhCacheImpl cache = EhCacheImpl.getInstance() != null ? EhCacheImpl.getInstance() : EhCacheImpl.newInstance();
+        cache.clear();
+        Promise<Boolean> set = cache.setAsync("EhCacheImplTest_async", "value", 10);
+        assertThat(set.isDone()).isTrue();
+        assertThat(set.get()).isTrue();
+        assertThat(cache.getAsync("EhCacheImplTest_async").getOrNull()).isEqualTo("value");
+        Map<String, Object> values = cache.getMultiAsync(new String[]{"EhCacheImplTest_async", "EhCacheImplTest_missing"}).getOrNull();
+        assertThat(values).hasSize(1);
+        assertThat(values.get("EhCacheImplTest_async")).isEqualTo("value");
+    }
+
+    @Test
+    public void concurrentIncrementsAreNotLost() throws Exception {
+        final EhCacheImpl cache = EhCacheImpl.getInstance() != null ? EhCacheImpl.getInstance() : EhCacheImpl.newInstance();
+        cache.clear();
+        cache.set("EhCacheImplTest_counter", 0L, 60);
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 1000; i++) {
+                        cache.incr("EhCacheImplTest_counter", 2);
+                        cache.decr("EhCacheImplTest_counter", 1);
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertThat(cache.get("EhCacheImplTest_counter")).isEqualTo(8000L);
+    }
 }
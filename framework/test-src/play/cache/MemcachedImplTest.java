@@ -0,0 +1,165 @@
+package play.cache;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import play.Play;
+import play.libs.F.Promise;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class MemcachedImplTest {
+
+    /**
+     * Answers get and set with the memcached text protocol
+     */
+    static class FakeMemcached extends Thread {
+
+        final ServerSocket server;
+        final Map<String, byte[]> values = new ConcurrentHashMap<String, byte[]>();
+        final Map<String, Integer> flags = new ConcurrentHashMap<String, Integer>();
+        volatile boolean silent;
+
+        FakeMemcached() throws IOException {
+            server = new ServerSocket(0);
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    final Socket socket = server.accept();
+                    Thread connection = new Thread() {
+                        @Override
+                        public void run() {
+                            try {
+                                serve(socket.getInputStream(), socket.getOutputStream());
+                            } catch (IOException e) {
+                                // Closed
+                            }
+                        }
+                    };
+                    connection.setDaemon(true);
+                    connection.start();
+                }
+            } catch (IOException e) {
+                // Closed
+            }
+        }
+
+        void serve(InputStream in, OutputStream out) throws IOException {
+            String line;
+            while ((line = readLine(in)) != null) {
+                String[] command = line.split(" ");
+                if (silent) {
+                    continue;
+                }
+                if (command[0].equals("get")) {
+                    for (int i = 1; i < command.length; i++) {
+                        byte[] value = values.get(command[i]);
+                        if (value != null) {
+                            out.write(("VALUE " + command[i] + " " + flags.get(command[i]) + " " + value.length + "\r\n").getBytes("ascii"));
+                            out.write(value);
+                            out.write("\r\n".getBytes("ascii"));
+                        }
+                    }
+                    out.write("END\r\n".getBytes("ascii"));
+                } else if (command[0].equals("set")) {
+                    byte[] value = new byte[Integer.parseInt(command[4])];
+                    int read = 0;
+                    while (read < value.length) {
+                        read += in.read(value, read, value.length - read);
+                    }
+                    readLine(in);
+                    values.put(command[1], value);
+                    flags.put(command[1], Integer.parseInt(command[2]));
+                    out.write("STORED\r\n".getBytes("ascii"));
+                } else {
+                    out.write("ERROR\r\n".getBytes("ascii"));
+                }
+                out.flush();
+            }
+        }
+
+        static String readLine(InputStream in) throws IOException {
+            ByteArrayOutputStream line = new ByteArrayOutputStream();
+            int c;
+            while ((c = in.read()) != -1) {
+                if (c == '\n') {
+                    return line.toString("ascii").trim();
+                }
+                line.write(c);
+            }
+            return null;
+        }
+    }
+
+    static FakeMemcached server;
+    static MemcachedImpl cache;
+    static Properties configuration;
+
+    @BeforeClass
+    public static void startServer() throws Exception {
+        server = new FakeMemcached();
+        server.start();
+        configuration = Play.configuration;
+        Play.configuration = new Properties();
+        Play.configuration.setProperty("memcached.host", "127.0.0.1:" + server.server.getLocalPort());
+        cache = MemcachedImpl.getInstance(true);
+    }
+
+    @AfterClass
+    public static void stopServer() throws Exception {
+        cache.stop();
+        server.server.close();
+        Play.configuration = configuration;
+    }
+
+    @Test
+    public void promisesAreRedeemedByTheServerAnswer() throws Exception {
+        Promise<Boolean> set = cache.setAsync("async_greeting", "hello", 60);
+        assertThat(set.get(2, TimeUnit.SECONDS)).isTrue();
+        Promise<Object> get = cache.getAsync("async_greeting");
+        assertThat(get.get(2, TimeUnit.SECONDS)).isEqualTo("hello");
+        assertThat(cache.getAsync("async_missing").get(2, TimeUnit.SECONDS)).isNull();
+    }
+
+    @Test
+    public void multipleKeysAreReadTogether() throws Exception {
+        cache.setAsync("async_a", 1, 60).get(2, TimeUnit.SECONDS);
+        cache.setAsync("async_b", 2, 60).get(2, TimeUnit.SECONDS);
+        Map<String, Object> values = cache.getMultiAsync(new String[]{"async_a", "async_b", "async_c"}).get(2, TimeUnit.SECONDS);
+        assertThat(values).hasSize(2);
+        assertThat(values.get("async_a")).isEqualTo(1);
+        assertThat(values.get("async_b")).isEqualTo(2);
+    }
+
+    @Test
+    public void promiseIsRedeemedWhenTheServerDoesNotAnswer() throws Exception {
+        server.silent = true;
+        try {
+            Promise<Object> get = cache.getAsync("async_slow");
+            assertThat(get.isDone()).isFalse();
+            assertThat(get.get(3, TimeUnit.SECONDS)).isNull();
+            assertThat(get.isDone()).isTrue();
+        } finally {
+            server.silent = false;
+            // The unanswered get is still expected on this connection
+            cache.client.shutdown();
+            Thread.interrupted();
+            cache.initClient();
+        }
+    }
+}
@@ -0,0 +1,338 @@
+package play.cache;
+
+import org.junit.Test;
+import play.libs.F.Promise;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class NearCacheImplTest {
+
+    /**
+     * A distributed cache counting its reads
+     */
+    static class RemoteCache implements CacheImpl {
+
+        final Map<String, Object> values = new HashMap<String, Object>();
+        int gets;
+        int bulkGets;
+
+        public void add(String key, Object value, int expiration) {
+            if (!values.containsKey(key)) {
+                values.put(key, value);
+            }
+        }
+
+        public boolean safeAdd(String key, Object value, int expiration) {
+            if (values.containsKey(key)) {
+                return false;
+            }
+            values.put(key, value);
+            return true;
+        }
+
+        public void set(String key, Object value, int expiration) {
+            values.put(key, value);
+        }
+
+        public boolean safeSet(String key, Object value, int expiration) {
+            values.put(key, value);
+            return true;
+        }
+
+        public void replace(String key, Object value, int expiration) {
+            if (values.containsKey(key)) {
+                values.put(key, value);
+            }
+        }
+
+        public boolean safeReplace(String key, Object value, int expiration) {
+            replace(key, value, expiration);
+            return true;
+        }
+
+        public Object get(String key) {
+            gets++;
+            return values.get(key);
+        }
+
+        public Map<String, Object> get(String[] keys) {
+            bulkGets++;
+            Map<String, Object> result = new HashMap<String, Object>();
+            for (String key : keys) {
+                if (values.containsKey(key)) {
+                    result.put(key, values.get(key));
+                }
+            }
+            return result;
+        }
+
+        public long incr(String key, int by) {
+            long value = ((Number) values.get(key)).longValue() + by;
+            values.put(key, value);
+            return value;
+        }
+
+        public long decr(String key, int by) {
+            return incr(key, -by);
+        }
+
+        public void clear() {
+            values.clear();
+        }
+
+        public void delete(String key) {
+            values.remove(key);
+        }
+
+        public boolean safeDelete(String key) {
+            return values.remove(key) != null;
+        }
+
+        public void stop() {
+        }
+    }
+
+    @Test
+    public void hotKeysAreReadFromMemory() {
+        RemoteCache remote = new RemoteCache();
+        remote.set("menu", "home", 0);
+        NearCacheImpl cache = new NearCacheImpl(remote, 100, 60, null);
+        for (int i = 0; i < 10; i++) {
+            assertThat(cache.get("menu")).isEqualTo("home");
+        }
+        assertThat(remote.gets).isEqualTo(1);
+        assertThat(cache.getHits()).isEqualTo(9);
+        assertThat(cache.getMisses()).isEqualTo(1);
+    }
+
+    @Test
+    public void missingKeysAreNotKept() {
+        RemoteCache remote = new RemoteCache();
+        NearCacheImpl cache = new NearCacheImpl(remote, 100, 60, null);
+        assertThat(cache.get("missing")).isNull();
+        assertThat(cache.get("missing")).isNull();
+        assertThat(remote.gets).isEqualTo(2);
+    }
+
+    @Test
+    public void valuesExpire() throws Exception {
+        RemoteCache remote = new RemoteCache();
+        remote.set("menu", "home", 0);
+        NearCacheImpl cache = new NearCacheImpl(remote, 100, 1, null);
+        cache.get("menu");
+        cache.get("menu");
+        assertThat(remote.gets).isEqualTo(1);
+        Thread.sleep(1100);
+        cache.get("menu");
+        assertThat(remote.gets).isEqualTo(2);
+    }
+
+    @Test
+    public void leastRecentlyUsedValuesAreEvicted() {
+        RemoteCache remote = new RemoteCache();
+        NearCacheImpl cache = new NearCacheImpl(remote, NearCacheImpl.SEGMENTS * 2, 60, null);
+        for (int i = 0; i < 1000; i++) {
+            cache.set("key" + i, i, 0);
+        }
+        assertThat(cache.size()).isEqualTo(NearCacheImpl.SEGMENTS * 2);
+        assertThat(cache.getEvictions()).isEqualTo(1000 - NearCacheImpl.SEGMENTS * 2);
+        assertThat(cache.get("key0")).isEqualTo(0);
+        assertThat(remote.gets).isEqualTo(1);
+    }
+
+    @Test
+    public void changesAreAppliedToTheNearCache() {
+        RemoteCache remote = new RemoteCache();
+        NearCacheImpl cache = new NearCacheImpl(remote, 100, 60, null);
+        cache.set("menu", "home", 0);
+        assertThat(cache.get("menu")).isEqualTo("home");
+        cache.replace("menu", "about", 0);
+        assertThat(cache.get("menu")).isEqualTo("about");
+        cache.delete("menu");
+        assertThat(cache.get("menu")).isNull();
+        cache.set("count", 1L, 0);
+        cache.incr("count", 2);
+        assertThat(cache.get("count")).isEqualTo(3L);
+        cache.clear();
+        assertThat(cache.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void bulkGetFetchesOnlyTheMissingKeys() {
+        RemoteCache remote = new RemoteCache();
+        remote.set("a", "1", 0);
+        remote.set("b", "2", 0);
+        NearCacheImpl cache = new NearCacheImpl(remote, 100, 60, null);
+        cache.get("a");
+        Map<String, Object> values = cache.get(new String[]{"a", "b", "c"});
+        assertThat(values.get("a")).isEqualTo("1");
+        assertThat(values.get("b")).isEqualTo("2");
+        assertThat(values.containsKey("c")).isFalse();
+        assertThat(remote.bulkGets).isEqualTo(1);
+        assertThat(cache.get(new String[]{"a", "b"})).hasSize(2);
+        assertThat(remote.bulkGets).isEqualTo(1);
+    }
+
+    @Test
+    public void valueChangedDuringAReadIsNotKept() {
+        final RemoteCache remote = new RemoteCache();
+        remote.set("menu", "old", 0);
+        final NearCacheImpl[] holder = new NearCacheImpl[1];
+        NearCacheImpl cache = new NearCacheImpl(new RemoteCache() {
+            @Override
+            public Object get(String key) {
+                Object value = remote.get(key);
+                // Another thread changes the key while the value is read
+                holder[0].evict(key);
+                return value;
+            }
+        }, 100, 60, null);
+        holder[0] = cache;
+        assertThat(cache.get("menu")).isEqualTo("old");
+        assertThat(cache.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void changesOfTheOtherNodesAreEvicted() throws Exception {
+        RemoteCache remote = new RemoteCache();
+        MulticastInvalidation invalidation = new MulticastInvalidation("230.0.0.1:4446");
+        NearCacheImpl cache = new NearCacheImpl(remote, 100, 60, null);
+        invalidation.cache = cache;
+        cache.set("a", "1", 0);
+        cache.set("b", "2", 0);
+        invalidation.received(invalidation.nodeId + "\na");
+        assertThat(cache.size()).isEqualTo(2);
+        invalidation.received("other\na");
+        assertThat(cache.size()).isEqualTo(1);
+        invalidation.received("other\n");
+        assertThat(cache.size()).isEqualTo(0);
+    }
+
+    /**
+     * A distributed cache answering when told to
+     */
+    static class AsyncRemoteCache extends RemoteCache implements AsyncCacheImpl {
+
+        final List<Promise<Object>> pendingGets = new ArrayList<Promise<Object>>();
+        final List<String> pendingKeys = new ArrayList<String>();
+
+        public Promise<Object> getAsync(String key) {
+            Promise<Object> promise = new Promise<Object>();
+            pendingGets.add(promise);
+            pendingKeys.add(key);
+            return promise;
+        }
+
+        public Promise<Map<String, Object>> getMultiAsync(String[] keys) {
+            return Cache.redeemed(get(keys));
+        }
+
+        public Promise<Boolean> setAsync(String key, Object value, int expiration) {
+            return Cache.redeemed(safeSet(key, value, expiration));
+        }
+
+        void answer() {
+            for (int i = 0; i < pendingGets.size(); i++) {
+                pendingGets.get(i).invoke(get(pendingKeys.get(i)));
+            }
+            pendingGets.clear();
+            pendingKeys.clear();
+        }
+    }
+
+    @Test
+    public void asyncReadsFillTheNearCache() throws Exception {
+        AsyncRemoteCache remote = new AsyncRemoteCache();
+        remote.set("menu", "home", 0);
+        NearCacheImpl cache = new NearCacheImpl(remote, 100, 60, null);
+        Promise<Object> first = cache.getAsync("menu");
+        assertThat(first.isDone()).isFalse();
+        remote.answer();
+        assertThat(first.get()).isEqualTo("home");
+        Promise<Object> second = cache.getAsync("menu");
+        assertThat(second.isDone()).isTrue();
+        assertThat(second.get()).isEqualTo("home");
+        assertThat(remote.gets).isEqualTo(1);
+    }
+
+    @Test
+    public void asyncBulkReadsFetchOnlyTheMissingKeys() throws Exception {
+        AsyncRemoteCache remote = new AsyncRemoteCache();
+        NearCacheImpl cache = new NearCacheImpl(remote, 100, 60, null);
+        assertThat(cache.setAsync("a", "1", 0).get()).isTrue();
+        remote.set("b", "2", 0);
+        Map<String, Object> values = cache.getMultiAsync(new String[]{"a", "b", "c"}).get();
+        assertThat(values).hasSize(2);
+        assertThat(values.get("b")).isEqualTo("2");
+        assertThat(remote.bulkGets).isEqualTo(1);
+        assertThat(cache.getMultiAsync(new String[]{"a", "b"}).get()).hasSize(2);
+        assertThat(remote.bulkGets).isEqualTo(1);
+    }
+
+    /**
+     * A distributed cache queuing the writes which aren't waited for, as memcached does
+     */
+    static class QueuingRemoteCache extends RemoteCache {
+
+        final List<String> queued = new ArrayList<String>();
+
+        @Override
+        public void add(String key, Object value, int expiration) {
+            queued.add(key);
+        }
+
+        @Override
+        public void set(String key, Object value, int expiration) {
+            queued.add(key);
+        }
+
+        @Override
+        public void replace(String key, Object value, int expiration) {
+            queued.add(key);
+        }
+
+        @Override
+        public boolean safeReplace(String key, Object value, int expiration) {
+            if (!values.containsKey(key)) {
+                return false;
+            }
+            values.put(key, value);
+            return true;
+        }
+
+        @Override
+        public void delete(String key) {
+            queued.add(key);
+        }
+    }
+
+    @Test
+    public void otherNodesAreToldOnceTheChangeIsStored() {
+        final QueuingRemoteCache remote = new QueuingRemoteCache();
+        final List<String> published = new ArrayList<String>();
+        NearCacheImpl cache = new NearCacheImpl(remote, 100, 60, new NearCacheImpl.Invalidation() {
+
+            public void start(NearCacheImpl cache) {
+            }
+
+            public void publish(String key) {
+                // What another node reads when it evicts the key
+                published.add(key + "=" + remote.values.get(key));
+            }
+
+            public void stop() {
+            }
+        });
+        cache.set("menu", "home", 0);
+        cache.replace("menu", "about", 0);
+        cache.delete("menu");
+        cache.add("menu", "contact", 0);
+        assertThat(remote.queued).isEmpty();
+        assertThat(published).containsExactly("menu=home", "menu=about", "menu=null", "menu=contact");
+    }
+}
@@ -40,6 +40,44 @@ public class BeanWrapperTest {
         }
     }
 
+    static class Hidden {
+
+        public long l;
+    }
+
+    static BeanWrapper.Property property(BeanWrapper wrapper, String name) {
+        for (BeanWrapper.Property prop : wrapper.getWrappers()) {
+            if (prop.getName().equals(name)) {
+                return prop;
+            }
+        }
+        return null;
+    }
+
+    @Test
+    public void publicPropertiesAreSetWithoutReflection() {
+        BeanWrapper wrapper = new BeanWrapper(Bean.class);
+        assertThat(property(wrapper, "a").generatedSetter).isNotNull();
+        assertThat(property(wrapper, "i").generatedSetter).isNotNull();
+
+        Bean b = new Bean();
+        wrapper.set("a", b, "a1");
+        // Widened like Method.invoke() does
+        wrapper.set("i", b, (short) 3);
+        assertThat(b.a).isEqualTo("a1");
+        assertThat(b.i).isEqualTo(3);
+    }
+
+    @Test
+    public void propertiesOfHiddenClassesAreSetWithReflection() {
+        BeanWrapper wrapper = new BeanWrapper(Hidden.class);
+        assertThat(property(wrapper, "l").generatedSetter).isNull();
+
+        Hidden h = new Hidden();
+        wrapper.set("l", h, 12L);
+        assertThat(h.l).isEqualTo(12L);
+    }
+
     @Test
     public void testBind() throws Exception {
 
@@ -0,0 +1,83 @@
+package play.data.binding;
+
+import play.Play;
+import play.PlayBuilder;
+
+import java.lang.annotation.Annotation;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Measures the binding of a form with nested beans.
+ * Not a unit test: run it with <code>java play.data.binding.BinderBenchmark [iterations]</code>.
+ */
+public class BinderBenchmark {
+
+    public static class Address {
+
+        public String street;
+        public String city;
+        public Integer zip;
+    }
+
+    public static class Customer {
+
+        public String name;
+        public int age;
+        public boolean active;
+        public Address address;
+        public Address billing;
+        public List<String> tags;
+        private String email;
+
+        public void setEmail(String email) {
+            this.email = email;
+        }
+    }
+
+    static final Annotation[] noAnnotations = new Annotation[0];
+
+    public static void main(String[] args) throws Exception {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 500000;
+        if (Play.classloader == null) {
+            new PlayBuilder().build();
+        }
+        Map<String, String[]> params = new HashMap<String, String[]>();
+        params.put("customer.name", new String[]{"Guillaume"});
+        params.put("customer.age", new String[]{"34"});
+        params.put("customer.active", new String[]{"on"});
+        params.put("customer.email", new String[]{"guillaume@example.com"});
+        params.put("customer.address.street", new String[]{"1 rue de la Paix"});
+        params.put("customer.address.city", new String[]{"Paris"});
+        params.put("customer.address.zip", new String[]{"75002"});
+        params.put("customer.billing.street", new String[]{"2 avenue Foch"});
+        params.put("customer.billing.city", new String[]{"Lyon"});
+        params.put("customer.billing.zip", new String[]{"69006"});
+        params.put("customer.tags[0]", new String[]{"vip"});
+        params.put("customer.tags[1]", new String[]{"newsletter"});
+        params.put("page", new String[]{"3"});
+
+        // Warm up
+        run(iterations / 2, params);
+        long time = run(iterations, params);
+        System.out.println(String.format("%d fields: %8.1f ns/form", params.size(), (double) time / iterations));
+    }
+
+    static long run(int iterations, Map<String, String[]> params) {
+        int bound = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            RootParamNode root = ParamNode.convert(params);
+            Customer customer = (Customer) Binder.bind(root, "customer", Customer.class, Customer.class, noAnnotations);
+            if (customer.address.zip == 75002 && customer.tags.size() == 2) {
+                bound++;
+            }
+        }
+        long time = System.nanoTime() - start;
+        if (bound != iterations) {
+            throw new IllegalStateException("Wrong binding");
+        }
+        return time;
+    }
+}
@@ -0,0 +1,32 @@
+package play.data.binding;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class ParamNodeTest {
+
+    @Test
+    public void keysAreSplitLikeTheRegularExpression() {
+        String[] keys = {"", "a", "a.b", "a[b]", "a[b][c]", "a.b[c]", "[a]", "a.", "a..b", "...", ".a", "a[0].b", "a]]"};
+        for (String key : keys) {
+            assertThat(ParamNode.splitKey(key)).isEqualTo(key.split("[\\.\\[\\]]+"));
+        }
+    }
+
+    @Test
+    public void allSyntaxesGiveTheSameTree() {
+        Map<String, String[]> params = new HashMap<String, String[]>();
+        params.put("a.b.c", new String[]{"1"});
+        params.put("a[b][d]", new String[]{"2"});
+        params.put("a.b[e]", new String[]{"3"});
+        RootParamNode root = ParamNode.convert(params);
+        ParamNode b = root.getChild("a").getChild("b");
+        assertThat(b.getAllChildrenKeys()).containsOnly("c", "d", "e");
+        assertThat(root.getChild("a[b].d").getFirstValue(String.class)).isEqualTo("2");
+        assertThat(root.getChild("a.x")).isNull();
+    }
+}
@@ -0,0 +1,119 @@
+package play.db;
+
+import com.mchange.v2.c3p0.ComboPooledDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class RoutingDataSourceTest {
+
+    List<ComboPooledDataSource> pools = new ArrayList<ComboPooledDataSource>();
+
+    ComboPooledDataSource pool(String name) throws Exception {
+        ComboPooledDataSource ds = new ComboPooledDataSource();
+        ds.setDriverClass("org.h2.Driver");
+        ds.setJdbcUrl("jdbc:h2:mem:" + name);
+        ds.setUser("sa");
+        ds.setPassword("");
+        ds.setMinPoolSize(1);
+        ds.setInitialPoolSize(1);
+        pools.add(ds);
+        return ds;
+    }
+
+    static String database(Connection connection) throws SQLException {
+        try {
+            String url = connection.getMetaData().getURL();
+            return url.substring(url.lastIndexOf(':') + 1);
+        } finally {
+            connection.close();
+        }
+    }
+
+    @Before
+    public void setUp() {
+        RoutingDataSource.setReadOnly(false);
+    }
+
+    @After
+    public void tearDown() {
+        RoutingDataSource.setReadOnly(false);
+        for (ComboPooledDataSource pool : pools) {
+            pool.close();
+        }
+    }
+
+    @Test
+    public void readOnlyConnectionsGoToTheReplicasInTurn() throws Exception {
+        RoutingDataSource ds = new RoutingDataSource(pool("primary"), Arrays.asList(
+                new RoutingDataSource.Replica("r1", pool("r1")),
+                new RoutingDataSource.Replica("r2", pool("r2"))), false, 30000);
+        assertThat(database(ds.getConnection())).isEqualTo("primary");
+
+        RoutingDataSource.setReadOnly(true);
+        String first = database(ds.getConnection());
+        String second = database(ds.getConnection());
+        assertThat(Arrays.asList(first, second)).containsOnly("r1", "r2");
+        assertThat(first).isNotEqualTo(second);
+    }
+
+    @Test
+    public void leastConnectionsSelectsTheLessBusyReplica() throws Exception {
+        RoutingDataSource ds = new RoutingDataSource(pool("primary"), Arrays.asList(
+                new RoutingDataSource.Replica("r1", pool("r1")),
+                new RoutingDataSource.Replica("r2", pool("r2"))), true, 30000);
+        // Two busy connections on r1
+        Connection busy1 = pools.get(1).getConnection();
+        Connection busy2 = pools.get(1).getConnection();
+        RoutingDataSource.setReadOnly(true);
+        Connection first = ds.getConnection();
+        Connection second = ds.getConnection();
+        try {
+            assertThat(database(first)).isEqualTo("r2");
+            assertThat(database(second)).isEqualTo("r2");
+        } finally {
+            busy1.close();
+            busy2.close();
+        }
+    }
+
+    @Test
+    public void failingReplicasFallBackToThePrimary() throws Exception {
+        DataSource broken = (DataSource) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{DataSource.class}, new InvocationHandler() {
+
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                throw new SQLException("Connection refused");
+            }
+        });
+        RoutingDataSource.Replica replica = new RoutingDataSource.Replica("broken", broken);
+        RoutingDataSource ds = new RoutingDataSource(pool("primary"), Arrays.asList(replica), false, 30000);
+        RoutingDataSource.setReadOnly(true);
+        assertThat(database(ds.getConnection())).isEqualTo("primary");
+        assertThat(replica.isUp()).isFalse();
+        assertThat(ds.candidates()).isEmpty();
+    }
+
+    @Test
+    public void replicasAreConfiguredByName() {
+        Properties p = new Properties();
+        p.setProperty("db.replicas.r1.url", "jdbc:h2:mem:r1");
+        p.setProperty("db.replicas.r2.url", "jdbc:h2:mem:r2");
+        p.setProperty("db.replicas.r2.user", "reader");
+        p.setProperty("db.replicas.selection", "leastConnections");
+        assertThat(DBPlugin.replicaUrls(p).keySet()).containsOnly("r1", "r2");
+        assertThat(DBPlugin.replicaUrls(p).get("r2")).isEqualTo("jdbc:h2:mem:r2");
+    }
+}
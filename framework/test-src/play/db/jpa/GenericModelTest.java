@@ -0,0 +1,39 @@
+package play.db.jpa;
+
+import org.junit.Before;
+import org.junit.Test;
+import play.data.binding.ParamNode;
+import play.data.validation.ValidationBuilder;
+import play.db.jpa.JPABatchWriterTest.Item;
+
+import java.lang.management.ClassLoadingMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class GenericModelTest {
+
+    @Before
+    public void setUp() {
+        ValidationBuilder.build();
+    }
+
+    static Item edit(String name) {
+        Map<String, String[]> params = new HashMap<String, String[]>();
+        params.put("item.name", new String[]{name});
+        return GenericModel.edit(ParamNode.convert(params), "item", new Item(), null);
+    }
+
+    @Test
+    public void entitiesAreBoundWithTheSettersOfTheirClass() {
+        assertThat(edit("first").name).isEqualTo("first");
+
+        // The setters generated for the first entity are used again
+        ClassLoadingMXBean classLoading = ManagementFactory.getClassLoadingMXBean();
+        long loaded = classLoading.getTotalLoadedClassCount();
+        assertThat(edit("second").name).isEqualTo("second");
+        assertThat(classLoading.getTotalLoadedClassCount()).isEqualTo(loaded);
+    }
+}
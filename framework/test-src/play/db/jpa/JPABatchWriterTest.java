@@ -0,0 +1,132 @@
+package play.db.jpa;
+
+import org.hibernate.ejb.Ejb3Configuration;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import play.Play;
+import play.plugins.PluginCollection;
+
+import javax.persistence.Entity;
+import javax.persistence.EntityManager;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class JPABatchWriterTest {
+
+    @Entity
+    public static class Item extends GenericModel {
+
+        @Id
+        @GeneratedValue(strategy = GenerationType.TABLE)
+        public Long id;
+
+        public String name;
+
+        public Item() {
+        }
+
+        public Item(String name) {
+            this.name = name;
+        }
+    }
+
+    static Ejb3Configuration configuration(String name, int batchSize) {
+        Ejb3Configuration cfg = new Ejb3Configuration();
+        cfg.setProperty("hibernate.connection.driver_class", "org.h2.Driver");
+        cfg.setProperty("hibernate.connection.url", "jdbc:h2:mem:" + name);
+        cfg.setProperty("hibernate.connection.username", "sa");
+        cfg.setProperty("hibernate.dialect", "org.hibernate.dialect.H2Dialect");
+        cfg.setProperty("hibernate.hbm2ddl.auto", "create");
+        cfg.setProperty("hibernate.jdbc.batch_size", String.valueOf(batchSize));
+        cfg.setProperty("hibernate.order_inserts", "true");
+        cfg.setProperty("hibernate.order_updates", "true");
+        cfg.addAnnotatedClass(Item.class);
+        return cfg;
+    }
+
+    PluginCollection plugins;
+
+    @Before
+    public void setUp() {
+        // The entities keys are read by the JPA plugin model factory
+        plugins = Play.pluginCollection;
+        Play.pluginCollection = new PluginCollection() {
+            {
+                addPlugin(new JPAPlugin());
+            }
+        };
+        JPA.entityManagerFactory = configuration("batch", 10).buildEntityManagerFactory();
+        EntityManager em = JPA.entityManagerFactory.createEntityManager();
+        em.getTransaction().begin();
+        JPA.createContext(em, false);
+        JPAPlugin.batchSize = 10;
+    }
+
+    @After
+    public void tearDown() {
+        JPAPlugin.closeTx(true);
+        JPA.entityManagerFactory.close();
+        JPA.entityManagerFactory = null;
+        JPAPlugin.batchSize = 50;
+        Play.pluginCollection = plugins;
+    }
+
+    @Test
+    public void entitiesAreSavedInBatches() {
+        List<Item> items = new ArrayList<Item>();
+        for (int i = 0; i < 25; i++) {
+            items.add(new Item("item " + i));
+        }
+        assertThat(GenericModel.saveAll(items)).isEqualTo(25);
+        // Flushed and detached
+        for (Item item : items) {
+            assertThat(item.id).isNotNull();
+            assertThat(JPA.em().contains(item)).isFalse();
+        }
+        assertThat(JPA.em().createQuery("select count(i) from " + Item.class.getName() + " i").getSingleResult()).isEqualTo(25L);
+    }
+
+    @Test
+    public void writerFlushesEveryBatch() {
+        JPABatchWriter writer = new JPABatchWriter(10);
+        List<Item> items = new ArrayList<Item>();
+        for (int i = 0; i < 15; i++) {
+            Item item = new Item("item " + i);
+            writer.save(item);
+            items.add(item);
+        }
+        assertThat(writer.count()).isEqualTo(15);
+        // The first batch is detached, the second one is still pending
+        assertThat(JPA.em().contains(items.get(0))).isFalse();
+        assertThat(JPA.em().contains(items.get(14))).isTrue();
+        writer.flush();
+        assertThat(JPA.em().contains(items.get(14))).isFalse();
+        assertThat(JPA.em().createQuery("select count(i) from " + Item.class.getName() + " i").getSingleResult()).isEqualTo(15L);
+    }
+
+    @Test
+    public void loadedEntitiesAreUpdatedInBatches() {
+        List<Item> items = new ArrayList<Item>();
+        for (int i = 0; i < 25; i++) {
+            items.add(new Item("item " + i));
+        }
+        GenericModel.saveAll(items);
+
+        List<Item> loaded = JPA.em().createQuery("select i from " + Item.class.getName() + " i order by i.id").getResultList();
+        assertThat(loaded).hasSize(25);
+        for (Item item : loaded) {
+            item.name = item.name + " updated";
+        }
+        // The items of the next batches stay managed once the first one is flushed
+        assertThat(GenericModel.saveAll(loaded)).isEqualTo(25);
+
+        assertThat(JPA.em().createQuery("select count(i) from " + Item.class.getName() + " i").getSingleResult()).isEqualTo(25L);
+        assertThat(JPA.em().createQuery("select count(i) from " + Item.class.getName() + " i where i.name like '% updated'").getSingleResult()).isEqualTo(25L);
+    }
+}
@@ -0,0 +1,87 @@
+package play.db.jpa;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import play.Play;
+import play.db.jpa.JPABatchWriterTest.Item;
+import play.plugins.PluginCollection;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class JPAStreamTest {
+
+    PluginCollection plugins;
+
+    @Before
+    public void setUp() {
+        plugins = Play.pluginCollection;
+        Play.pluginCollection = new PluginCollection() {
+            {
+                addPlugin(new JPAPlugin());
+            }
+        };
+        JPA.entityManagerFactory = JPABatchWriterTest.configuration("stream", 10).buildEntityManagerFactory();
+        EntityManager em = JPA.entityManagerFactory.createEntityManager();
+        em.getTransaction().begin();
+        JPA.createContext(em, false);
+        List<Item> items = new ArrayList<Item>();
+        for (int i = 0; i < 25; i++) {
+            items.add(new Item("item " + i));
+        }
+        GenericModel.saveAll(items);
+    }
+
+    @After
+    public void tearDown() {
+        JPAPlugin.closeTx(true);
+        JPA.entityManagerFactory.close();
+        JPA.entityManagerFactory = null;
+        Play.pluginCollection = plugins;
+    }
+
+    static GenericModel.JPAQuery query(String query) {
+        return new GenericModel.JPAQuery(JPA.em().createQuery(query));
+    }
+
+    @Test
+    public void resultsAreReadOneByOne() {
+        List<String> names = new ArrayList<String>();
+        for (Item item : query("from " + Item.class.getName() + " order by id").<Item>stream(10)) {
+            names.add(item.name);
+        }
+        assertThat(names).hasSize(25);
+        assertThat(names.get(0)).isEqualTo("item 0");
+        assertThat(names.get(24)).isEqualTo("item 24");
+    }
+
+    @Test
+    public void resultsAreDetachedByBatches() {
+        JPAStream<Item> stream = query("from " + Item.class.getName() + " order by id").stream(10);
+        List<Item> items = new ArrayList<Item>();
+        for (int i = 0; i < 11; i++) {
+            items.add(stream.next());
+        }
+        assertThat(JPA.em().contains(items.get(0))).isFalse();
+        assertThat(JPA.em().contains(items.get(9))).isFalse();
+        assertThat(JPA.em().contains(items.get(10))).isTrue();
+        stream.close();
+        assertThat(JPA.em().contains(items.get(10))).isFalse();
+        assertThat(stream.hasNext()).isFalse();
+    }
+
+    @Test
+    public void projectionsAreArrays() {
+        JPAStream<Object[]> stream = query("select id, name from " + Item.class.getName() + " order by id").from(20).stream();
+        int count = 0;
+        for (Object[] row : stream) {
+            assertThat(row[1]).isEqualTo("item " + (20 + count));
+            count++;
+        }
+        assertThat(count).isEqualTo(5);
+    }
+}
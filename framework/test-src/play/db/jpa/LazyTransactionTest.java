@@ -0,0 +1,96 @@
+package play.db.jpa;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.EntityTransaction;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class LazyTransactionTest {
+
+    final List<String> calls = new ArrayList<String>();
+
+    @Before
+    public void setUp() {
+        JPAPlugin.autoTxs = false;
+        JPA.entityManagerFactory = (EntityManagerFactory) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{EntityManagerFactory.class}, new InvocationHandler() {
+
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                calls.add(method.getName());
+                if (method.getName().equals("createEntityManager")) {
+                    return Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{EntityManager.class}, new InvocationHandler() {
+
+                        public Object invoke(Object proxy, Method method, Object[] args) {
+                            calls.add(method.getName());
+                            if (method.getName().equals("getTransaction")) {
+                                return Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{EntityTransaction.class}, new InvocationHandler() {
+
+                                    public Object invoke(Object proxy, Method method, Object[] args) {
+                                        calls.add(method.getName());
+                                        return null;
+                                    }
+                                });
+                            }
+                            return null;
+                        }
+                    });
+                }
+                return null;
+            }
+        });
+    }
+
+    @After
+    public void tearDown() {
+        JPA.clearContext();
+        JPA.entityManagerFactory = null;
+        JPAPlugin.autoTxs = true;
+    }
+
+    @Test
+    public void unusedTransactionsDoNotOpenAnEntityManager() {
+        JPAPlugin.startLazyTx(false);
+        assertThat(JPA.isInsideTransaction()).isTrue();
+        JPAPlugin.closeTx(false);
+        assertThat(calls).isEmpty();
+        assertThat(JPA.local.get()).isNull();
+    }
+
+    @Test
+    public void entityManagerIsOpenedOnFirstUse() {
+        JPAPlugin.startLazyTx(true);
+        EntityManager em = JPA.em();
+        assertThat(JPA.em()).isSameAs(em);
+        assertThat(calls).containsExactly("createEntityManager", "setFlushMode", "setProperty");
+        JPAPlugin.closeTx(false);
+        assertThat(calls).contains("close");
+        assertThat(JPA.local.get()).isNull();
+    }
+
+    @Test
+    public void rollbackOfAnUnusedTransactionDoesNotOpenAnEntityManager() {
+        JPAPlugin.startLazyTx(false);
+        JPA.setRollbackOnly();
+        JPAPlugin.closeTx(false);
+        assertThat(calls).isEmpty();
+    }
+
+    @Test
+    public void rollbackIsAppliedWhenTheTransactionIsStarted() {
+        JPAPlugin.autoTxs = true;
+        JPAPlugin.startLazyTx(false);
+        JPA.setRollbackOnly();
+        assertThat(calls).isEmpty();
+        JPA.em();
+        assertThat(calls).containsExactly("createEntityManager", "setFlushMode", "setProperty", "getTransaction", "begin", "getTransaction", "setRollbackOnly");
+    }
+}
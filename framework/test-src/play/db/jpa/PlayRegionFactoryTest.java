@@ -0,0 +1,125 @@
+package play.db.jpa;
+
+import org.hibernate.cache.EntityRegion;
+import org.hibernate.cache.StandardQueryCache;
+import org.hibernate.cache.Timestamper;
+import org.hibernate.cache.TimestampsRegion;
+import org.hibernate.cache.UpdateTimestampsCache;
+import org.hibernate.cache.access.AccessType;
+import org.hibernate.cache.access.EntityRegionAccessStrategy;
+import org.hibernate.cache.access.SoftLock;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import play.cache.Cache;
+import play.cache.EhCacheImpl;
+
+import java.util.Properties;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class PlayRegionFactoryTest {
+
+    @BeforeClass
+    public static void startCache() {
+        // The EhCache instance may already be started by another test
+        Cache.cacheImpl = EhCacheImpl.getInstance() != null ? EhCacheImpl.getInstance() : EhCacheImpl.newInstance();
+    }
+
+    @AfterClass
+    public static void resetCache() {
+        Cache.cacheImpl = null;
+    }
+
+    @Before
+    public void setUp() {
+        Cache.clear();
+    }
+
+    @Test
+    public void entriesAreStoredInThePlayCache() {
+        PlayRegionFactory.Region region = new PlayRegionFactory.Region("models.Product", "1h");
+        region.put("models.Product#1", "product 1");
+        assertThat(region.get("models.Product#1")).isEqualTo("product 1");
+        assertThat(new PlayRegionFactory.Region("models.Product", "1h").get("models.Product#1")).isEqualTo("product 1");
+        assertThat(new PlayRegionFactory.Region("models.Other", "1h").get("models.Product#1")).isNull();
+
+        region.evict("models.Product#1");
+        assertThat(region.get("models.Product#1")).isNull();
+    }
+
+    @Test
+    public void longKeysAreHashed() {
+        PlayRegionFactory.Region region = new PlayRegionFactory.Region("org.hibernate.cache.StandardQueryCache", "1h");
+        String query = "select p from Product p where p.name = ?; parameters: shoes; max rows: 10";
+        assertThat(region.key(query)).doesNotContain(" ");
+        region.put(query, "results");
+        assertThat(region.get(query)).isEqualTo("results");
+    }
+
+    @Test
+    public void clearedRegionsForgetTheirEntries() {
+        PlayRegionFactory.Region region = new PlayRegionFactory.Region("models.Product", "1h");
+        region.put("models.Product#1", "product 1");
+        region.evictAll();
+        assertThat(region.get("models.Product#1")).isNull();
+        region.put("models.Product#1", "product 1 again");
+        assertThat(region.get("models.Product#1")).isEqualTo("product 1 again");
+    }
+
+    @Test
+    public void clearedRegionsAreSeenByTheOtherNodesOnceTheirGenerationIsReadAgain() {
+        PlayRegionFactory.Region region = new PlayRegionFactory.Region("models.Product", "1h");
+        PlayRegionFactory.Region other = new PlayRegionFactory.Region("models.Product", "1h");
+        region.put("models.Product#1", "product 1");
+        assertThat(other.get("models.Product#1")).isEqualTo("product 1");
+        region.evictAll();
+        // The generation is kept for a while, instead of being read for each entry
+        assertThat(other.get("models.Product#1")).isEqualTo("product 1");
+        other.generationReadAt = 0;
+        assertThat(other.get("models.Product#1")).isNull();
+    }
+
+    @Test
+    public void timestampsNeverExpire() {
+        PlayRegionFactory factory = new PlayRegionFactory(new Properties());
+        PlayRegionFactory.Region timestamps = (PlayRegionFactory.Region) factory.buildTimestampsRegion(UpdateTimestampsCache.REGION_NAME, new Properties());
+        assertThat(timestamps.expiration).isEqualTo(PlayRegionFactory.NEVER);
+        PlayRegionFactory.Region results = (PlayRegionFactory.Region) factory.buildQueryResultsRegion(StandardQueryCache.class.getName(), new Properties());
+        assertThat(results.expiration).isEqualTo("1h");
+    }
+
+    @Test
+    public void missingTimestampsAreTakenAsAnUpdateNow() {
+        TimestampsRegion timestamps = new PlayRegionFactory().buildTimestampsRegion(UpdateTimestampsCache.REGION_NAME, new Properties());
+        long before = Timestamper.next();
+        Long timestamp = (Long) timestamps.get("PRODUCT");
+        assertThat(timestamp).isGreaterThan(before);
+        assertThat(timestamps.get("PRODUCT")).isEqualTo(timestamp);
+    }
+
+    @Test
+    public void readWriteAccessLocksTheUpdatedEntries() {
+        EntityRegion region = new PlayRegionFactory().buildEntityRegion("models.Product", new Properties(), null);
+        EntityRegionAccessStrategy access = region.buildAccessStrategy(AccessType.READ_WRITE);
+        assertThat(access.putFromLoad("models.Product#1", "product 1", Timestamper.next(), 1)).isTrue();
+        assertThat(access.get("models.Product#1", Timestamper.next())).isEqualTo("product 1");
+
+        SoftLock lock = access.lockItem("models.Product#1", 1);
+        assertThat(access.get("models.Product#1", Timestamper.next())).isNull();
+        // A concurrent load doesn't cache the previous state
+        assertThat(access.putFromLoad("models.Product#1", "product 1", Timestamper.next(), 1, false)).isFalse();
+        access.update("models.Product#1", "product 1 updated", 2, 1);
+        access.afterUpdate("models.Product#1", "product 1 updated", 2, 1, lock);
+        assertThat(access.get("models.Product#1", Timestamper.next())).isNull();
+        assertThat(access.putFromLoad("models.Product#1", "product 1 updated", Timestamper.next(), 2)).isTrue();
+        assertThat(access.get("models.Product#1", Timestamper.next())).isEqualTo("product 1 updated");
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void readOnlyEntitiesCannotBeUpdated() {
+        EntityRegion region = new PlayRegionFactory().buildEntityRegion("models.Country", new Properties(), null);
+        region.buildAccessStrategy(AccessType.READ_ONLY).update("models.Country#1", "country 1", null, null);
+    }
+}
@@ -0,0 +1,62 @@
+package play.db.jpa;
+
+import play.Play;
+import play.db.jpa.JPABatchWriterTest.Item;
+import play.plugins.PluginCollection;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures the insertion of many entities with save() and with saveAll(), in an in-memory H2 database.
+ * Not a unit test: run it with <code>java play.db.jpa.SaveAllBenchmark [rows]</code>.
+ */
+public class SaveAllBenchmark {
+
+    public static void main(String[] args) {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        Play.pluginCollection = new PluginCollection() {
+            {
+                addPlugin(new JPAPlugin());
+            }
+        };
+        // Warm up
+        run("warmup", 0, rows / 10);
+        run("warmup", 50, rows / 10);
+        System.out.println(String.format("save():              %8.0f rows/s", run("save", 0, rows)));
+        for (int batchSize : new int[]{10, 50, 200}) {
+            System.out.println(String.format("saveAll(), batch %3d: %8.0f rows/s", batchSize, run("saveAll" + batchSize, batchSize, rows)));
+        }
+    }
+
+    /**
+     * @param batchSize The batch size of saveAll(), or 0 to save each entity
+     * @return The number of rows inserted per second
+     */
+    static double run(String name, int batchSize, int rows) {
+        EntityManagerFactory factory = JPABatchWriterTest.configuration(name, batchSize).buildEntityManagerFactory();
+        JPA.entityManagerFactory = factory;
+        EntityManager em = factory.createEntityManager();
+        em.getTransaction().begin();
+        JPA.createContext(em, false);
+        List<Item> items = new ArrayList<Item>(rows);
+        for (int i = 0; i < rows; i++) {
+            items.add(new Item("item " + i));
+        }
+        long start = System.nanoTime();
+        if (batchSize == 0) {
+            for (Item item : items) {
+                item.save();
+            }
+        } else {
+            JPAPlugin.batchSize = batchSize;
+            GenericModel.saveAll(items);
+        }
+        JPAPlugin.closeTx(false);
+        long time = System.nanoTime() - start;
+        factory.close();
+        return rows * 1e9 / time;
+    }
+}
@@ -5,14 +5,19 @@ package play.libs;
 
 import static org.junit.Assert.*;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.Before;
 import org.junit.Ignore;
 import org.junit.Test;
 
 import play.libs.F.ArchivedEventStream;
+import play.libs.F.EventStream;
 import play.libs.F.IndexedEvent;
 import play.libs.F.Promise;
 
@@ -71,4 +76,92 @@ public class ArchivedEventStreamTest {
         assertEquals(VALUE_1, p2.get().get(0).data);
     }
 
+    @Test
+    public void testArchiveKeepsTheLastEvents() {
+        ArchivedEventStream<String> small = new ArchivedEventStream<String>(2);
+        small.publish("a");
+        small.publish("b");
+        small.publish("c");
+        assertEquals(Arrays.asList("b", "c"), small.archive());
+
+        List<IndexedEvent> available = small.availableEvents(0);
+        assertEquals(2, available.size());
+        assertEquals(0, small.availableEvents(available.get(1).id).size());
+        assertEquals(1, small.availableEvents(available.get(0).id).size());
+    }
+
+    @Test
+    public void testNextEventsReturnsTheEventsNotSeen() throws InterruptedException, ExecutionException {
+        stream.publish(VALUE_1);
+        stream.publish(VALUE_2);
+        long first = stream.availableEvents(0).get(0).id;
+
+        Promise<List<IndexedEvent<String>>> p1 = stream.nextEvents(first);
+        assertTrue(p1.isDone());
+        assertEquals(1, p1.get().size());
+        assertEquals(VALUE_2, p1.get().get(0).data);
+
+        Promise<List<IndexedEvent<String>>> p2 = stream.nextEvents(p1.get().get(0).id);
+        assertFalse(p2.isDone());
+        stream.publish("FFF");
+        assertTrue(p2.isDone());
+        assertEquals("FFF", p2.get().get(0).data);
+    }
+
+    @Test
+    public void testEventStreamReplaysTheArchive() throws InterruptedException, ExecutionException {
+        stream.publish(VALUE_1);
+        EventStream<String> events = stream.eventStream();
+        stream.publish(VALUE_2);
+        assertEquals(VALUE_1, events.nextEvent().get());
+        assertEquals(VALUE_2, events.nextEvent().get());
+        assertFalse(events.nextEvent().isDone());
+    }
+
+    @Test
+    public void testConcurrentPublishers() throws InterruptedException {
+        final int threads = 4;
+        final int perThread = 1000;
+        final CountDownLatch done = new CountDownLatch(threads);
+        final List<Long> received = new ArrayList<Long>();
+        final ArchivedEventStream<Integer> shared = new ArchivedEventStream<Integer>(threads * perThread);
+        final Thread subscriber = new Thread() {
+
+            @Override
+            public void run() {
+                long last = 0;
+                try {
+                    while (received.size() < threads * perThread) {
+                        for (IndexedEvent<Integer> event : shared.nextEvents(last).get(10, TimeUnit.SECONDS)) {
+                            received.add(event.id);
+                            last = event.id;
+                        }
+                    }
+                } catch (Exception e) {
+                    // Checked below
+                }
+            }
+        };
+        subscriber.start();
+        for (int t = 0; t < threads; t++) {
+            new Thread() {
+
+                @Override
+                public void run() {
+                    for (int i = 0; i < perThread; i++) {
+                        shared.publish(i);
+                    }
+                    done.countDown();
+                }
+            }.start();
+        }
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        subscriber.join(10000);
+        // Every event is received once, in order
+        assertEquals(threads * perThread, received.size());
+        for (int i = 1; i < received.size(); i++) {
+            assertTrue(received.get(i) > received.get(i - 1));
+        }
+    }
+
 }
@@ -0,0 +1,78 @@
+package play.libs;
+
+import play.libs.F.ArchivedEventStream;
+import play.libs.F.IndexedEvent;
+import play.libs.F.Promise;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures the fan-out of an archived event stream to many long-polling subscribers.
+ * Not a unit test: run it with <code>java play.libs.EventStreamBenchmark [events]</code>.
+ */
+public class EventStreamBenchmark {
+
+    static final int ARCHIVE = 100;
+
+    public static void main(String[] args) {
+        int events = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        // Warm up
+        run(100, events / 10);
+        for (int subscribers : new int[]{10, 100, 1000}) {
+            long time = run(subscribers, events);
+            System.out.println(String.format("%5d subscribers: %10.1f ns/publish, %8.1f ns/delivery",
+                    subscribers, (double) time / events, (double) time / ((long) events * subscribers)));
+        }
+    }
+
+    static long run(int count, int events) {
+        ArchivedEventStream<String> stream = new ArchivedEventStream<String>(ARCHIVE);
+        List<Subscriber> subscribers = new ArrayList<Subscriber>();
+        for (int i = 0; i < count; i++) {
+            Subscriber subscriber = new Subscriber(stream);
+            subscriber.subscribe();
+            subscribers.add(subscriber);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < events; i++) {
+            stream.publish("event " + i);
+            // Each subscriber reads its events and polls again, as a long-polling client does
+            for (Subscriber subscriber : subscribers) {
+                subscriber.poll();
+            }
+        }
+        long time = System.nanoTime() - start;
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.received != events) {
+                throw new IllegalStateException("Lost events: " + subscriber.received + " of " + events);
+            }
+        }
+        return time;
+    }
+
+    static class Subscriber {
+
+        final ArchivedEventStream<String> stream;
+        Promise<List<IndexedEvent<String>>> next;
+        long lastEventSeen;
+        int received;
+
+        Subscriber(ArchivedEventStream<String> stream) {
+            this.stream = stream;
+        }
+
+        void subscribe() {
+            next = stream.nextEvents(lastEventSeen);
+        }
+
+        void poll() {
+            if (next.isDone()) {
+                List<IndexedEvent<String>> events = next.getOrNull();
+                received += events.size();
+                lastEventSeen = events.get(events.size() - 1).id;
+                subscribe();
+            }
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package play.libs;
+
+import org.junit.Test;
+import play.libs.F.EventStream;
+import play.libs.F.Promise;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class EventStreamTest {
+
+    @Test
+    public void eventsAreReadInOrder() throws Exception {
+        EventStream<String> stream = new EventStream<String>();
+        stream.publish("a");
+        stream.publish("b");
+        Promise<String> first = stream.nextEvent();
+        // Not read yet
+        assertThat(stream.nextEvent().getOrNull()).isEqualTo("a");
+        assertThat(first.get()).isEqualTo("a");
+        assertThat(stream.nextEvent().get()).isEqualTo("b");
+        assertThat(stream.nextEvent().isDone()).isFalse();
+    }
+
+    @Test
+    public void waitingTasksAreRedeemedOnPublish() throws Exception {
+        EventStream<String> stream = new EventStream<String>();
+        Promise<String> next = stream.nextEvent();
+        assertThat(next.isDone()).isFalse();
+        stream.publish("a");
+        assertThat(next.get()).isEqualTo("a");
+        assertThat(stream.waiting).isEmpty();
+    }
+
+    @Test
+    public void oldestEventsAreDropped() throws Exception {
+        EventStream<Integer> stream = new EventStream<Integer>(3);
+        for (int i = 0; i < 5; i++) {
+            stream.publish(i);
+        }
+        assertThat(stream.nextEvent().get()).isEqualTo(2);
+        assertThat(stream.nextEvent().get()).isEqualTo(3);
+        assertThat(stream.nextEvent().get()).isEqualTo(4);
+    }
+}
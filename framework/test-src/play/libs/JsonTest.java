@@ -0,0 +1,88 @@
+package play.libs;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.JsonSerializationContext;
+import com.google.gson.JsonSerializer;
+import com.google.gson.reflect.TypeToken;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import play.Play;
+
+import java.io.StringWriter;
+import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.Properties;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class JsonTest {
+
+    static class Money {
+
+        final long cents;
+
+        Money(long cents) {
+            this.cents = cents;
+        }
+    }
+
+    static class MoneySerializer implements JsonSerializer<Money> {
+
+        public JsonElement serialize(Money money, Type type, JsonSerializationContext context) {
+            return new JsonPrimitive(money.cents / 100 + "." + money.cents % 100);
+        }
+    }
+
+    Properties configuration;
+
+    @Before
+    public void setUp() {
+        configuration = Play.configuration;
+        Play.configuration = new Properties();
+        Json.gson = null;
+    }
+
+    @After
+    public void tearDown() {
+        Json.typeAdapters.clear();
+        Json.typeHierarchyAdapters.clear();
+        Json.gson = null;
+        Play.configuration = configuration;
+    }
+
+    @Test
+    public void gsonIsShared() {
+        Gson gson = Json.gson();
+        assertThat(Json.gson()).isSameAs(gson);
+        Json.registerTypeAdapter(Money.class, new MoneySerializer());
+        assertThat(Json.gson()).isNotSameAs(gson);
+    }
+
+    @Test
+    public void registeredAdaptersAreUsed() {
+        Json.registerTypeAdapter(Money.class, new MoneySerializer());
+        assertThat(Json.toJson(new Money(1250))).isEqualTo("\"12.50\"");
+    }
+
+    @Test
+    public void configurationIsUsed() {
+        Play.configuration.setProperty("json.serializeNulls", "true");
+        Play.configuration.setProperty("json.dateFormat", "yyyy-MM-dd");
+        assertThat(Json.toJson(Arrays.asList(null, new GregorianCalendar(2012, 0, 15, 12, 0).getTime()))).isEqualTo("[null,\"2012-01-15\"]");
+    }
+
+    @Test
+    public void genericTypesAreWrittenToAWriter() {
+        List<Money> amounts = Arrays.asList(new Money(5), new Money(310));
+        Json.registerTypeAdapter(Money.class, new MoneySerializer());
+        StringWriter out = new StringWriter();
+        Json.toJson(amounts, new TypeToken<List<Money>>() {
+        }.getType(), out);
+        assertThat(out.toString()).isEqualTo("[\"0.5\",\"3.10\"]");
+    }
+}
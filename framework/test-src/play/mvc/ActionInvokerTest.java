@@ -0,0 +1,65 @@
+package play.mvc;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import play.PlayBuilder;
+import play.mvc.results.Result;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class ActionInvokerTest {
+
+    public static class Rendering extends Controller {
+
+        static Throwable finallyCaught;
+        static int finallyCalls;
+
+        @Finally
+        static void cleanUp(Throwable caught) {
+            finallyCalls++;
+            finallyCaught = caught;
+        }
+    }
+
+    /**
+     * A result failing when it is applied, as a streamed template
+     */
+    static class FailingResult extends Result {
+
+        public void apply(Http.Request request, Http.Response response) {
+            throw new IllegalStateException("Template error");
+        }
+    }
+
+    Http.Request request;
+
+    @Before
+    public void setUp() {
+        new PlayBuilder().build();
+        request = new Http.Request();
+        request.controllerClass = Rendering.class;
+        request.action = "Rendering.index";
+        Http.Request.current.set(request);
+        Rendering.finallyCalls = 0;
+        Rendering.finallyCaught = null;
+    }
+
+    @After
+    public void tearDown() {
+        Http.Request.current.remove();
+    }
+
+    @Test
+    public void finallyIsCalledWhenTheResultFails() {
+        FailingResult result = new FailingResult();
+        try {
+            ActionInvoker.applyResult(result, request, new Http.Response());
+        } catch (IllegalStateException e) {
+            assertThat(Rendering.finallyCalls).isEqualTo(1);
+            assertThat(Rendering.finallyCaught).isSameAs(e);
+            return;
+        }
+        throw new AssertionError("The failure of the result must be thrown");
+    }
+}
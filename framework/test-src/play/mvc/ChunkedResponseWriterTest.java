@@ -0,0 +1,60 @@
+package play.mvc;
+
+import org.junit.Test;
+import play.libs.F;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class ChunkedResponseWriterTest {
+
+    private Http.Response newResponse(final List<byte[]> chunks) {
+        Http.Response response = new Http.Response();
+        response.out = new ByteArrayOutputStream();
+        response.encoding = "utf-8";
+        response.onWriteChunk(new F.Action<Object>() {
+
+            public void invoke(Object chunk) {
+                chunks.add((byte[]) chunk);
+            }
+        });
+        return response;
+    }
+
+    @Test
+    public void smallContentIsBuffered() throws Exception {
+        List<byte[]> chunks = new ArrayList<byte[]>();
+        Http.Response response = newResponse(chunks);
+        ChunkedResponseWriter writer = new ChunkedResponseWriter(response, 1024);
+        writer.write("héllo");
+        writer.close();
+        assertThat(writer.isStreaming()).isFalse();
+        assertThat(chunks).isEmpty();
+        assertThat(response.chunked).isFalse();
+        assertThat(new String(response.out.toByteArray(), "utf-8")).isEqualTo("héllo");
+    }
+
+    @Test
+    public void largeContentIsStreamed() throws Exception {
+        List<byte[]> chunks = new ArrayList<byte[]>();
+        Http.Response response = newResponse(chunks);
+        ChunkedResponseWriter writer = new ChunkedResponseWriter(response, 10);
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 50; i++) {
+            writer.write("line é " + i + "\n");
+            expected.append("line é ").append(i).append("\n");
+        }
+        writer.close();
+        assertThat(writer.isStreaming()).isTrue();
+        assertThat(response.chunked).isTrue();
+        assertThat(response.out.size()).isEqualTo(0);
+        ByteArrayOutputStream all = new ByteArrayOutputStream();
+        for (byte[] chunk : chunks) {
+            all.write(chunk);
+        }
+        assertThat(new String(all.toByteArray(), "utf-8")).isEqualTo(expected.toString());
+    }
+}
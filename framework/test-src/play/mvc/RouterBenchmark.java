@@ -0,0 +1,75 @@
+package play.mvc;
+
+import play.mvc.Router.Route;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares the compiled route dispatcher with a linear scan of the routes list.
+ * Not a unit test: run it with <code>java play.mvc.RouterBenchmark [iterations]</code>.
+ */
+public class RouterBenchmark {
+
+    static final int ROUTES = 600;
+
+    public static void main(String[] args) {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        Router.routes.clear();
+        for (int i = 0; i < ROUTES / 3; i++) {
+            Router.appendRoute("GET", "/section" + i + "/items/{id}", "Section" + i + ".show", null, null, null, 0);
+            Router.appendRoute("POST", "/section" + i + "/items/{id}", "Section" + i + ".save", null, null, null, 0);
+            Router.appendRoute("GET", "/section" + i + "/?", "Section" + i + ".index", null, null, null, 0);
+        }
+        Router.appendRoute("*", "/{controller}/{action}", "{controller}.{action}", null, null, null, 0);
+
+        List<String> paths = new ArrayList<String>();
+        for (int i = 0; i < ROUTES / 3; i += 7) {
+            paths.add("/section" + i + "/items/" + i);
+            paths.add("/section" + i);
+        }
+        paths.add("/foo/bar");
+
+        List<Route> all = new ArrayList<Route>(Router.routes);
+        // Warm up both paths
+        run(iterations / 10, paths, all, true);
+        run(iterations / 10, paths, all, false);
+
+        long linear = run(iterations, paths, all, true);
+        long compiled = run(iterations, paths, all, false);
+        int lookups = iterations * paths.size();
+        System.out.println(String.format("%d routes, %d lookups", Router.routes.size(), lookups));
+        System.out.println(String.format("linear scan : %8.1f ns/lookup", (double) linear / lookups));
+        System.out.println(String.format("dispatcher  : %8.1f ns/lookup", (double) compiled / lookups));
+    }
+
+    static long run(int iterations, List<String> paths, List<Route> all, boolean linear) {
+        int found = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            for (String path : paths) {
+                Map<String, String> args = linear ? linearRoute(all, "GET", path) : Router.route("GET", path);
+                if (args.containsKey("action")) {
+                    found++;
+                }
+            }
+        }
+        long time = System.nanoTime() - start;
+        if (found != iterations * paths.size()) {
+            throw new IllegalStateException("Unexpected route miss");
+        }
+        return time;
+    }
+
+    static Map<String, String> linearRoute(List<Route> all, String method, String path) {
+        for (Route route : all) {
+            Map<String, String> args = route.matches(method, path, null, null);
+            if (args != null) {
+                args.put("action", route.action);
+                return args;
+            }
+        }
+        return new java.util.HashMap<String, String>(16);
+    }
+}
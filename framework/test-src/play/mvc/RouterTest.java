@@ -4,6 +4,11 @@ import com.ning.http.client.RequestBuilder;
 import org.junit.Test;
 import play.Play;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 
 import static org.fest.assertions.Assertions.assertThat;
@@ -46,4 +51,96 @@ public class RouterTest {
         Play.configuration.setProperty("application.baseUrl", "http://b/");
         assertThat(Router.getBaseUrl()).isEqualTo("http://b");
     }
+
+    @Test
+    public void test_staticSegments() {
+        assertThat(RouteDispatcher.staticSegments("/")).isEmpty();
+        assertThat(RouteDispatcher.staticSegments("/about")).containsExactly("about");
+        assertThat(RouteDispatcher.staticSegments("/users/{id}")).containsExactly("users");
+        assertThat(RouteDispatcher.staticSegments("/users/{id}/edit")).containsExactly("users");
+        assertThat(RouteDispatcher.staticSegments("/admin/?")).containsExactly("admin");
+        assertThat(RouteDispatcher.staticSegments("/admin/?x")).isEmpty();
+        assertThat(RouteDispatcher.staticSegments("/api/v1/items/?")).containsExactly("api", "v1", "items");
+        assertThat(RouteDispatcher.staticSegments("/public/")).containsExactly("public");
+        assertThat(RouteDispatcher.staticSegments("/favicon.ico")).isEmpty();
+    }
+
+    @Test
+    public void test_dispatcherKeepsFirstMatchOrdering() {
+        Router.routes.clear();
+        Router.appendRoute("GET", "/", "Application.index", null, null, null, 0);
+        Router.appendRoute("GET", "/users/{id}", "Users.show", null, null, null, 0);
+        Router.appendRoute("GET", "/users/new", "Users.blank", null, null, null, 0);
+        Router.appendRoute("POST", "/users/{id}", "Users.save", null, null, null, 0);
+        Router.appendRoute("GET", "/admin/?", "Admin.index", null, null, null, 0);
+        Router.appendRoute("GET", "/api/v1/items/{<[0-9]+>id}", "Api.item", null, null, null, 0);
+        Router.appendRoute("*", "/{controller}/{action}", "{controller}.{action}", null, null, null, 0);
+
+        String[][] requests = {
+                {"GET", "/"}, {"GET", "/users/12"}, {"GET", "/users/new"}, {"POST", "/users/12"},
+                {"HEAD", "/users/12"}, {"GET", "/admin"}, {"GET", "/admin/"}, {"GET", "/api/v1/items/42"},
+                {"GET", "/api/v1/items/abc"}, {"PUT", "/users/12"}, {"DELETE", "/foo/bar"}, {"GET", "/unknown"}
+        };
+        for (String[] request : requests) {
+            assertThat(Router.route(request[0], request[1])).isEqualTo(linearRoute(request[0], request[1]));
+        }
+        assertThat(Router.route("GET", "/users/new").get("action")).isEqualTo("Users.show");
+        assertThat(Router.route("PUT", "/users/12").get("controller")).isEqualTo("users");
+
+        // The dispatcher is refreshed when the routes change
+        Router.prependRoute("GET", "/users/new", "Users.blank");
+        assertThat(Router.route("GET", "/users/new").get("action")).isEqualTo("Users.blank");
+        Router.routes.clear();
+    }
+
+    @Test
+    public void test_reverseWithIndex() {
+        Router.routes.clear();
+        Router.appendRoute("GET", "/", "Application.index", null, null, null, 0);
+        Router.appendRoute("GET", "/users/{id}", "Users.show", null, null, null, 0);
+        Router.appendRoute("GET", "/users/{<[0-9]+>id}/{slug}/?", "Users.details", null, null, null, 0);
+        Router.appendRoute("GET", "/archive/{year}", "Archive.list", "(year:'2010')", null, null, 0);
+        Router.appendRoute("GET", "/archive/{year}/{month}", "Archive.list", null, null, null, 0);
+        Router.appendRoute("*", "/{controller}/{action}", "{controller}.{action}", null, null, null, 0);
+
+        assertThat(Router.reverse("Application.index").url).isEqualTo("/");
+        assertThat(Router.reverse("controllers.application.Index").url).isEqualTo("/");
+
+        Map<String, Object> args = new HashMap<String, Object>();
+        args.put("id", 12);
+        args.put("page", "2");
+        assertThat(Router.reverse("Users.show", args).url).isEqualTo("/users/12?page=2");
+
+        args = new HashMap<String, Object>();
+        args.put("id", Arrays.asList("7", "8"));
+        args.put("slug", "hello");
+        assertThat(Router.reverse("Users.details", args).url).isEqualTo("/users/7/hello");
+
+        args = new HashMap<String, Object>();
+        args.put("id", "abc");
+        args.put("slug", "hello");
+        assertThat(Router.reverse("Users.details", args).url).isEqualTo("/users/details?id=abc&slug=hello");
+
+        args = new HashMap<String, Object>();
+        args.put("year", "2011");
+        args.put("month", "05");
+        assertThat(Router.reverse("Archive.list", args).url).isEqualTo("/archive/2011/05");
+
+        assertThat(Router.reverse("Admin.dashboard").url).isEqualTo("/admin/dashboard");
+        assertThat(Router.reverse("Admin.dashboard").method).isEqualTo("GET");
+        assertThat(Router.reverse("Admin.dashboard").star).isTrue();
+        Router.routes.clear();
+    }
+
+    private static Map<String, String> linearRoute(String method, String path) {
+        List<Router.Route> all = new ArrayList<Router.Route>(Router.routes);
+        for (Router.Route route : all) {
+            Map<String, String> args = route.matches(method, path, null, null);
+            if (args != null) {
+                args.put("action", route.action);
+                return args;
+            }
+        }
+        return new java.util.HashMap<String, String>(16);
+    }
 }
@@ -0,0 +1,55 @@
+package play.mvc.results;
+
+import com.google.gson.Gson;
+import play.Play;
+import play.mvc.Http;
+import play.mvc.results.RenderJsonTest.Point;
+
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Measures the rendering of a large collection as JSON: a new Gson and a String per response, as before,
+ * against the shared Gson writing to a pooled buffer.
+ * Not a unit test: run it with <code>java play.mvc.results.RenderJsonBenchmark [size]</code>.
+ */
+public class RenderJsonBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        int iterations = Math.max(20, 2000000 / size);
+        Play.configuration = new Properties();
+        Http.Request request = new Http.Request();
+        request.method = "GET";
+        Http.Response response = new Http.Response();
+        response.encoding = "utf-8";
+        Http.Response.current.set(response);
+        List<Point> points = RenderJsonTest.points(size);
+
+        // Warm up
+        run(false, iterations / 2, points, request, response);
+        run(true, iterations / 2, points, request, response);
+        System.out.println(String.format("new Gson() and String: %8.2f ms/response", run(false, iterations, points, request, response)));
+        System.out.println(String.format("shared Gson, pooled:   %8.2f ms/response", run(true, iterations, points, request, response)));
+    }
+
+    static double run(boolean pooled, int iterations, List<Point> points, Http.Request request, Http.Response response) throws Exception {
+        int length = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            response.out = new ByteArrayOutputStream();
+            if (pooled) {
+                new RenderJson(points).apply(request, response);
+            } else {
+                response.out.write(new Gson().toJson(points).getBytes(response.encoding));
+            }
+            length += response.out.size();
+        }
+        long time = System.nanoTime() - start;
+        if (length == 0) {
+            throw new IllegalStateException();
+        }
+        return time / 1e6 / iterations;
+    }
+}
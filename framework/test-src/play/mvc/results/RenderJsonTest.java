@@ -0,0 +1,136 @@
+package play.mvc.results;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.JsonSerializationContext;
+import com.google.gson.JsonSerializer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import play.Play;
+import play.mvc.Http;
+import play.utils.PooledByteArrayOutputStream;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class RenderJsonTest {
+
+    public static class Point {
+
+        public int x;
+        public String label;
+
+        public Point(int x, String label) {
+            this.x = x;
+            this.label = label;
+        }
+    }
+
+    static class PointSerializer implements JsonSerializer<Point> {
+
+        public JsonElement serialize(Point point, Type type, JsonSerializationContext context) {
+            return new JsonPrimitive(point.x + ":" + point.label);
+        }
+    }
+
+    Properties configuration;
+    Http.Request request;
+    Http.Response response;
+
+    @Before
+    public void setUp() {
+        configuration = Play.configuration;
+        Play.configuration = new Properties();
+        request = new Http.Request();
+        request.method = "GET";
+        response = new Http.Response();
+        response.out = new ByteArrayOutputStream();
+        response.encoding = "utf-8";
+        Http.Response.current.set(response);
+    }
+
+    @After
+    public void tearDown() {
+        Http.Response.current.remove();
+        Play.configuration = configuration;
+    }
+
+    static List<Point> points(int size) {
+        List<Point> points = new ArrayList<Point>();
+        for (int i = 0; i < size; i++) {
+            points.add(new Point(i, "point é " + i));
+        }
+        return points;
+    }
+
+    String body() throws Exception {
+        return new String(response.out.toByteArray(), "utf-8");
+    }
+
+    @Test
+    public void objectIsWrittenToTheResponse() throws Exception {
+        List<Point> points = points(3);
+        new RenderJson(points).apply(request, response);
+        assertThat(body()).isEqualTo(new Gson().toJson(points));
+        assertThat(response.contentType).isEqualTo("application/json; charset=utf-8");
+    }
+
+    @Test
+    public void stringIsWrittenAsIs() throws Exception {
+        new RenderJson("{\"a\":1}").apply(request, response);
+        assertThat(body()).isEqualTo("{\"a\":1}");
+    }
+
+    @Test
+    public void adaptersAreUsed() throws Exception {
+        new RenderJson(new Point(1, "a"), new PointSerializer()).apply(request, response);
+        assertThat(body()).isEqualTo("\"1:a\"");
+    }
+
+    @Test
+    public void renderedResultKeepsTheJson() throws Exception {
+        List<Point> points = points(2);
+        RenderJson result = new RenderJson(points).rendered();
+        points.clear();
+        result.apply(request, response);
+        assertThat(body()).isEqualTo(new Gson().toJson(points(2)));
+    }
+
+    @Test
+    public void objectIsSerializedWhenTheResultIsCreated() throws Exception {
+        List<Point> points = points(2);
+        RenderJson result = new RenderJson(points);
+        // e.g. by an @After interceptor
+        points.clear();
+        result.apply(request, response);
+        assertThat(body()).isEqualTo(new Gson().toJson(points(2)));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void serializationErrorsAreThrownByTheAction() {
+        new RenderJson(new Point(1, "a"), new JsonSerializer<Point>() {
+
+            public JsonElement serialize(Point point, Type type, JsonSerializationContext context) {
+                throw new IllegalStateException("Not loaded");
+            }
+        });
+    }
+
+    @Test
+    public void pooledBufferBecomesTheResponseBody() throws Exception {
+        response.out = new PooledByteArrayOutputStream();
+        List<Point> points = points(1000);
+        RenderJson result = new RenderJson(points);
+        ByteArrayOutputStream serialized = result.bytes;
+        result.apply(request, response);
+        assertThat(response.out).isSameAs(serialized);
+        assertThat(body()).isEqualTo(new Gson().toJson(points));
+    }
+}
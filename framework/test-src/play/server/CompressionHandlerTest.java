@@ -0,0 +1,114 @@
+package play.server;
+
+import org.apache.commons.io.IOUtils;
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.jboss.netty.handler.codec.embedder.EncoderEmbedder;
+import org.jboss.netty.handler.codec.http.*;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.GZIPInputStream;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.jboss.netty.handler.codec.http.HttpHeaders.Names.*;
+
+public class CompressionHandlerTest {
+
+    static final String PAGE;
+
+    static {
+        StringBuilder page = new StringBuilder("<html><body>");
+        for (int i = 0; i < 200; i++) {
+            page.append("<p>Hello ").append(i).append("</p>\n");
+        }
+        PAGE = page.append("</body></html>").toString();
+    }
+
+    static EncoderEmbedder<Object> embedder(CompressionHandler handler, String acceptEncoding) {
+        handler.acceptEncodings.offer(acceptEncoding);
+        return new EncoderEmbedder<Object>(handler);
+    }
+
+    static HttpResponse response(String contentType, String content) throws IOException {
+        HttpResponse response = new DefaultHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK);
+        response.setHeader(CONTENT_TYPE, contentType);
+        byte[] bytes = content.getBytes("utf-8");
+        response.setHeader(CONTENT_LENGTH, String.valueOf(bytes.length));
+        response.setContent(ChannelBuffers.wrappedBuffer(bytes));
+        return response;
+    }
+
+    static String gunzip(ChannelBuffer buffer) throws IOException {
+        byte[] bytes = new byte[buffer.readableBytes()];
+        buffer.getBytes(buffer.readerIndex(), bytes);
+        return IOUtils.toString(new GZIPInputStream(new ByteArrayInputStream(bytes)), "utf-8");
+    }
+
+    @Test
+    public void compressBufferedResponse() throws IOException {
+        EncoderEmbedder<Object> embedder = embedder(new CompressionHandler(1024, 6, CompressionHandler.DEFAULT_CONTENT_TYPES), "gzip, deflate");
+        embedder.offer(response("text/html; charset=utf-8", PAGE));
+        HttpResponse response = (HttpResponse) embedder.poll();
+        assertThat(response.getHeader(CONTENT_ENCODING)).isEqualTo("gzip");
+        assertThat(response.getHeader(VARY)).isEqualTo(ACCEPT_ENCODING);
+        assertThat(Integer.parseInt(response.getHeader(CONTENT_LENGTH))).isEqualTo(response.getContent().readableBytes());
+        assertThat(response.getContent().readableBytes()).isLessThan(PAGE.length());
+        assertThat(gunzip(response.getContent())).isEqualTo(PAGE);
+    }
+
+    @Test
+    public void skipSmallOrUnlistedResponses() throws IOException {
+        EncoderEmbedder<Object> embedder = embedder(new CompressionHandler(1024, 6, CompressionHandler.DEFAULT_CONTENT_TYPES), "gzip");
+        embedder.offer(response("text/html", "<p>small</p>"));
+        HttpResponse response = (HttpResponse) embedder.poll();
+        assertThat(response.getHeader(CONTENT_ENCODING)).isNull();
+
+        CompressionHandler handler = new CompressionHandler(1024, 6, "application/json");
+        embedder = embedder(handler, "gzip");
+        embedder.offer(response("image/png", PAGE));
+        response = (HttpResponse) embedder.poll();
+        assertThat(response.getHeader(CONTENT_ENCODING)).isNull();
+        assertThat(response.getHeader(VARY)).isNull();
+    }
+
+    @Test
+    public void varyEvenIfTheClientDoesNotAcceptCompression() throws IOException {
+        EncoderEmbedder<Object> embedder = embedder(new CompressionHandler(1024, 6, CompressionHandler.DEFAULT_CONTENT_TYPES), "");
+        HttpResponse original = response("application/json", PAGE);
+        original.setHeader(VARY, "Cookie");
+        embedder.offer(original);
+        HttpResponse response = (HttpResponse) embedder.poll();
+        assertThat(response.getHeader(CONTENT_ENCODING)).isNull();
+        assertThat(response.getHeader(VARY)).isEqualTo("Cookie, Accept-Encoding");
+        assertThat(response.getContent().readableBytes()).isEqualTo(PAGE.length());
+    }
+
+    @Test
+    public void compressChunkedResponse() throws IOException {
+        EncoderEmbedder<Object> embedder = embedder(new CompressionHandler(1024, 6, CompressionHandler.DEFAULT_CONTENT_TYPES), "gzip");
+        HttpResponse original = new DefaultHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK);
+        original.setHeader(CONTENT_TYPE, "text/html");
+        original.setHeader(TRANSFER_ENCODING, "chunked");
+        embedder.offer(original);
+        for (int i = 0; i < 3; i++) {
+            embedder.offer(new DefaultHttpChunk(ChannelBuffers.wrappedBuffer(PAGE.getBytes("utf-8"))));
+        }
+        embedder.offer(HttpChunk.LAST_CHUNK);
+
+        HttpResponse response = (HttpResponse) embedder.poll();
+        assertThat(response.getHeader(CONTENT_ENCODING)).isEqualTo("gzip");
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        Object message;
+        boolean last = false;
+        while ((message = embedder.poll()) != null) {
+            HttpChunk chunk = (HttpChunk) message;
+            last = chunk.isLast();
+            chunk.getContent().getBytes(chunk.getContent().readerIndex(), compressed, chunk.getContent().readableBytes());
+        }
+        assertThat(last).isTrue();
+        assertThat(gunzip(ChannelBuffers.wrappedBuffer(compressed.toByteArray()))).isEqualTo(PAGE + PAGE + PAGE);
+    }
+}
@@ -0,0 +1,73 @@
+package play.server;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Test;
+import play.Play;
+import play.mvc.Http;
+import play.vfs.VirtualFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Properties;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class StaticAssetCacheTest {
+
+    @Before
+    public void setUp() {
+        Play.configuration = new Properties();
+        Http.Response.current.set(new Http.Response());
+    }
+
+    static VirtualFile file(String name, String content) throws IOException {
+        File file = File.createTempFile("asset", name);
+        file.deleteOnExit();
+        FileUtils.writeStringToFile(file, content, "utf-8");
+        return VirtualFile.open(file);
+    }
+
+    static String repeat(String s, int times) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < times; i++) {
+            builder.append(s);
+        }
+        return builder.toString();
+    }
+
+    @Test
+    public void textAssetsHaveGzipVariant() throws IOException {
+        StaticAssetCache cache = new StaticAssetCache(100000, 10000);
+        StaticAssetCache.Asset asset = cache.load("/public/app.css", file(".css", repeat("body { color: red; }\n", 100)));
+        assertThat(asset.contentType).isEqualTo("text/css; charset=utf-8");
+        assertThat(asset.content.length).isEqualTo(2100);
+        assertThat(asset.gzipped).isNotNull();
+        assertThat(asset.gzipped.length).isLessThan(asset.content.length);
+        assertThat(asset.etag).isNotNull();
+        assertThat(cache.get("/public/app.css")).isSameAs(asset);
+
+        StaticAssetCache.Asset image = cache.load("/public/logo.png", file(".png", repeat("x", 100)));
+        assertThat(image.gzipped).isNull();
+    }
+
+    @Test
+    public void bigFilesAreNotCached() throws IOException {
+        StaticAssetCache cache = new StaticAssetCache(100000, 1000);
+        assertThat(cache.load("/public/big.png", file(".png", repeat("x", 1001)))).isNull();
+        assertThat(cache.get("/public/big.png")).isNull();
+    }
+
+    @Test
+    public void leastRecentlyUsedAssetsAreEvicted() throws IOException {
+        StaticAssetCache cache = new StaticAssetCache(2500, 1000);
+        cache.load("/a", file(".png", repeat("a", 1000)));
+        cache.load("/b", file(".png", repeat("b", 1000)));
+        cache.get("/a");
+        cache.load("/c", file(".png", repeat("c", 1000)));
+        assertThat(cache.get("/a")).isNotNull();
+        assertThat(cache.get("/b")).isNull();
+        assertThat(cache.get("/c")).isNotNull();
+        assertThat(cache.size).isEqualTo(2000);
+    }
+}
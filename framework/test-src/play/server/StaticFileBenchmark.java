@@ -0,0 +1,113 @@
+package play.server;
+
+import org.jboss.netty.bootstrap.ServerBootstrap;
+import org.jboss.netty.channel.*;
+import org.jboss.netty.channel.socket.nio.NioServerSocketChannelFactory;
+import org.jboss.netty.handler.stream.ChunkedFile;
+import org.jboss.netty.handler.stream.ChunkedWriteHandler;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.Random;
+import java.util.concurrent.Executors;
+
+/**
+ * Compares the throughput of a zero-copy FileRegion with a ChunkedFile for large files,
+ * using the same Netty handlers as the server.
+ * Not a unit test: run it with <code>java play.server.StaticFileBenchmark [size in MB] [downloads]</code>.
+ */
+public class StaticFileBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int megabytes = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+        int downloads = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+
+        final File file = File.createTempFile("play-static", ".bin");
+        file.deleteOnExit();
+        OutputStream out = new FileOutputStream(file);
+        byte[] block = new byte[1024 * 1024];
+        new Random(0).nextBytes(block);
+        for (int i = 0; i < megabytes; i++) {
+            out.write(block);
+        }
+        out.close();
+
+        for (final int chunkSize : new int[]{0, 8192, 65536}) {
+            ServerBootstrap bootstrap = new ServerBootstrap(new NioServerSocketChannelFactory(Executors.newCachedThreadPool(), Executors.newCachedThreadPool()));
+            bootstrap.setPipelineFactory(new ChannelPipelineFactory() {
+
+                public ChannelPipeline getPipeline() {
+                    ChannelPipeline pipeline = Channels.pipeline();
+                    pipeline.addLast("chunkedWriter", new ChunkedWriteHandler());
+                    pipeline.addLast("handler", new FileHandler(file, chunkSize));
+                    return pipeline;
+                }
+            });
+            Channel server = bootstrap.bind(new InetSocketAddress("127.0.0.1", 0));
+            int port = ((InetSocketAddress) server.getLocalAddress()).getPort();
+
+            download(port, file.length(), downloads / 4);
+            long start = System.nanoTime();
+            download(port, file.length(), downloads);
+            long time = System.nanoTime() - start;
+
+            server.close().awaitUninterruptibly();
+            bootstrap.releaseExternalResources();
+            double mb = (double) megabytes * downloads;
+            System.out.println(String.format("%-22s: %8.1f MB/s", chunkSize == 0 ? "FileRegion" : "ChunkedFile(" + chunkSize + ")", mb / (time / 1e9)));
+        }
+    }
+
+    static void download(int port, long length, int times) throws Exception {
+        byte[] buffer = new byte[65536];
+        for (int i = 0; i < times; i++) {
+            Socket socket = new Socket("127.0.0.1", port);
+            socket.getOutputStream().write(1);
+            InputStream in = socket.getInputStream();
+            long read = 0;
+            int count;
+            while ((count = in.read(buffer)) > 0) {
+                read += count;
+            }
+            socket.close();
+            if (read != length) {
+                throw new IllegalStateException("Read " + read + " bytes instead of " + length);
+            }
+        }
+    }
+
+    static class FileHandler extends SimpleChannelUpstreamHandler {
+
+        final File file;
+        final int chunkSize;
+
+        FileHandler(File file, int chunkSize) {
+            this.file = file;
+            this.chunkSize = chunkSize;
+        }
+
+        @Override
+        public void messageReceived(ChannelHandlerContext ctx, MessageEvent e) throws Exception {
+            RandomAccessFile raf = new RandomAccessFile(file, "r");
+            ChannelFuture future;
+            if (chunkSize == 0) {
+                final FileRegion region = new DefaultFileRegion(raf.getChannel(), 0, raf.length());
+                future = e.getChannel().write(region);
+                future.addListener(new ChannelFutureListener() {
+
+                    public void operationComplete(ChannelFuture future) {
+                        region.releaseExternalResources();
+                    }
+                });
+            } else {
+                future = e.getChannel().write(new ChunkedFile(raf, 0, raf.length(), chunkSize));
+            }
+            future.addListener(ChannelFutureListener.CLOSE);
+        }
+    }
+}
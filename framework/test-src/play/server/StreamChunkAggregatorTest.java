@@ -0,0 +1,76 @@
+package play.server;
+
+import org.apache.commons.io.IOUtils;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.jboss.netty.handler.codec.embedder.DecoderEmbedder;
+import org.jboss.netty.handler.codec.http.HttpHeaders;
+import org.jboss.netty.handler.codec.http.HttpRequest;
+import org.jboss.netty.handler.codec.http.HttpRequestDecoder;
+import org.junit.Test;
+import play.Play;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class StreamChunkAggregatorTest {
+
+    static HttpRequest decode(StreamChunkAggregator aggregator, String request) throws IOException {
+        DecoderEmbedder<HttpRequest> embedder = new DecoderEmbedder<HttpRequest>(new HttpRequestDecoder(4096, 8192, 1024), aggregator);
+        embedder.offer(ChannelBuffers.wrappedBuffer(request.getBytes("ascii")));
+        return embedder.poll();
+    }
+
+    static String chunked(String... chunks) {
+        StringBuilder request = new StringBuilder("POST /upload HTTP/1.1\r\nHost: localhost\r\nTransfer-Encoding: chunked\r\n\r\n");
+        for (String chunk : chunks) {
+            request.append(Integer.toHexString(chunk.length())).append("\r\n").append(chunk).append("\r\n");
+        }
+        return request.append("0\r\n\r\n").toString();
+    }
+
+    static String repeat(char c, int times) {
+        char[] chars = new char[times];
+        Arrays.fill(chars, c);
+        return new String(chars);
+    }
+
+    @Test
+    public void smallChunkedBodyStaysInMemory() throws IOException {
+        HttpRequest request = decode(new StreamChunkAggregator(-1, 1000), chunked("hello ", "world"));
+        assertThat(request.isChunked()).isFalse();
+        assertThat(request.getContent() instanceof FileChannelBuffer).isFalse();
+        assertThat(request.getHeader(HttpHeaders.Names.CONTENT_LENGTH)).isEqualTo("11");
+        assertThat(request.getContent().toString("ascii")).isEqualTo("hello world");
+    }
+
+    @Test
+    public void bigChunkedBodyIsSpooledToFile() throws IOException {
+        Play.tmpDir = new File(System.getProperty("java.io.tmpdir"));
+        String first = repeat('a', 600);
+        String second = repeat('b', 600);
+        HttpRequest request = decode(new StreamChunkAggregator(-1, 1000), chunked(first, second));
+        assertThat(request.getContent()).isInstanceOf(FileChannelBuffer.class);
+        assertThat(request.getHeader(HttpHeaders.Names.CONTENT_LENGTH)).isEqualTo("1200");
+        assertThat(IOUtils.toString(((FileChannelBuffer) request.getContent()).getInputStream())).isEqualTo(first + second);
+    }
+
+    @Test
+    public void bodySplitByTheDecoderIsAggregated() throws IOException {
+        // Bigger than the decoder max chunk size (1024): it is received as chunks
+        String body = repeat('x', 3000);
+        HttpRequest request = decode(new StreamChunkAggregator(-1, 65536),
+                "POST /upload HTTP/1.1\r\nHost: localhost\r\nContent-Length: 3000\r\n\r\n" + body);
+        assertThat(request.isChunked()).isFalse();
+        assertThat(request.getContent().toString("ascii")).isEqualTo(body);
+    }
+
+    @Test
+    public void tooBigBodyIsReported() throws IOException {
+        HttpRequest request = decode(new StreamChunkAggregator(1000, 65536), chunked(repeat('a', 600), repeat('b', 600)));
+        assertThat(request.getHeader(HttpHeaders.Names.WARNING)).isEqualTo("play.netty.content.length.exceeded");
+        assertThat(request.getContent().readable()).isFalse();
+    }
+}
@@ -3,6 +3,7 @@ package play.templates;
 import org.junit.Test;
 import play.PlayBuilder;
 
+import java.io.StringWriter;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -93,4 +94,48 @@ public class GroovyTemplateTest {
         assertThat( t.render( args ) ).isEqualTo(longString+": Morten");
     }
 
+    @Test
+    public void verifyStreamingWritesTemplatesWithoutLayoutWhileRendering() throws Exception {
+        StringWriter out = new StringWriter();
+        LayoutGate gate = new LayoutGate(out, 10);
+        gate.write("hello ");
+        assertThat(out.toString()).isEmpty();
+        gate.write("world: Morten");
+        assertThat(out.toString()).isEqualTo("hello world: Morten");
+        gate.write(", and goodbye");
+        gate.close();
+        assertThat(gate.streaming).isTrue();
+        assertThat(out.toString()).isEqualTo("hello world: Morten, and goodbye");
+    }
+
+    @Test
+    public void verifyStreamingKeepsTheOutputOfTemplatesWithLayout() throws Exception {
+        StringWriter out = new StringWriter();
+        LayoutGate gate = new LayoutGate(out, 10);
+        // Set by #{extends}, or any other tag
+        BaseTemplate.layout.set(new BaseTemplate("Layout_123", "<html>____%LAYOUT%____</html>") {
+            void directLoad(byte[] code) {
+            }
+
+            Throwable cleanStackTrace(Throwable e) {
+                return e;
+            }
+
+            public void compile() {
+            }
+
+            protected String internalRender(Map<String, Object> args) {
+                return source;
+            }
+        });
+        try {
+            gate.write("hello world: Morten");
+            assertThat(gate.streaming).isFalse();
+            assertThat(out.toString()).isEmpty();
+            assertThat(gate.buffer.toString()).isEqualTo("hello world: Morten");
+        } finally {
+            BaseTemplate.layout.remove();
+        }
+    }
+
 }
@@ -17,4 +17,40 @@ public class HTTPTest {
         String unknown = "Not-In-the-LiST";
         assertThat( HTTP.fixCaseForHttpHeader(unknown)).isEqualTo(unknown);
     }
+
+    @Test
+    public void parseByteRanges() {
+        assertThat(HTTP.parseRange("bytes=0-99", 1000)).isEqualTo(new long[]{0, 99});
+        assertThat(HTTP.parseRange("bytes=500-", 1000)).isEqualTo(new long[]{500, 999});
+        assertThat(HTTP.parseRange("bytes=-100", 1000)).isEqualTo(new long[]{900, 999});
+        assertThat(HTTP.parseRange("bytes=-5000", 1000)).isEqualTo(new long[]{0, 999});
+        // The last position is capped to the content length
+        assertThat(HTTP.parseRange("bytes=900-5000", 1000)).isEqualTo(new long[]{900, 999});
+    }
+
+    @Test
+    public void unsatisfiableRanges() {
+        assertThat(HTTP.parseRange("bytes=1000-", 1000)).isEmpty();
+        assertThat(HTTP.parseRange("bytes=-0", 1000)).isEmpty();
+    }
+
+    @Test
+    public void ignoredRanges() {
+        assertThat(HTTP.parseRange(null, 1000)).isNull();
+        assertThat(HTTP.parseRange("items=0-10", 1000)).isNull();
+        assertThat(HTTP.parseRange("bytes=0-10,20-30", 1000)).isNull();
+        assertThat(HTTP.parseRange("bytes=abc", 1000)).isNull();
+        assertThat(HTTP.parseRange("bytes=50-10", 1000)).isNull();
+    }
+
+    @Test
+    public void acceptEncoding() {
+        assertThat(HTTP.acceptsEncoding("gzip, deflate", "gzip")).isTrue();
+        assertThat(HTTP.acceptsEncoding("deflate, GZIP;q=0.5", "gzip")).isTrue();
+        assertThat(HTTP.acceptsEncoding("*", "gzip")).isTrue();
+        assertThat(HTTP.acceptsEncoding("gzip;q=0", "gzip")).isFalse();
+        assertThat(HTTP.acceptsEncoding("identity", "gzip")).isFalse();
+        assertThat(HTTP.acceptsEncoding("gzip, deflate", "deflate")).isTrue();
+        assertThat(HTTP.acceptsEncoding(null, "gzip")).isFalse();
+    }
 }
@@ -0,0 +1,88 @@
+package play.utils;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class PooledByteArrayOutputStreamTest {
+
+    @Test
+    public void growsThroughSizeClasses() {
+        BufferPool pool = new BufferPool(4);
+        PooledByteArrayOutputStream out = new PooledByteArrayOutputStream(pool);
+        byte[] data = new byte[10000];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+        out.write(data, 0, 100);
+        assertThat(out.buffer().length).isEqualTo(4096);
+        out.write(data, 100, data.length - 100);
+        assertThat(out.buffer().length).isEqualTo(16384);
+        assertThat(out.size()).isEqualTo(data.length);
+        assertThat(out.toByteArray()).isEqualTo(data);
+        // The 4KB array went back to the pool
+        assertThat(pool.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void releasedBuffersAreReused() {
+        BufferPool pool = new BufferPool(4);
+        PooledByteArrayOutputStream out = new PooledByteArrayOutputStream(pool);
+        out.write(42);
+        byte[] buffer = out.buffer();
+        out.release();
+        assertThat(out.size()).isEqualTo(0);
+        assertThat(pool.size()).isEqualTo(1);
+
+        PooledByteArrayOutputStream next = new PooledByteArrayOutputStream(pool);
+        next.write(43);
+        assertThat(next.buffer()).isSameAs(buffer);
+        assertThat(next.toByteArray()).isEqualTo(new byte[]{43});
+    }
+
+    @Test
+    public void poolIsBounded() {
+        BufferPool pool = new BufferPool(2);
+        for (int i = 0; i < 5; i++) {
+            pool.release(new byte[4096]);
+        }
+        assertThat(pool.size()).isEqualTo(2);
+        // Not a pooled size
+        pool.release(new byte[5000]);
+        pool.release(new byte[8 * 1024 * 1024]);
+        assertThat(pool.size()).isEqualTo(2);
+        assertThat(pool.acquire(8 * 1024 * 1024).length).isEqualTo(8 * 1024 * 1024);
+    }
+
+    @Test
+    public void sharedPoolIsCreatedOnce() throws Exception {
+        BufferPool.shared = null;
+        final BufferPool[] pools = new BufferPool[8];
+        final CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[pools.length];
+        for (int i = 0; i < threads.length; i++) {
+            final int index = i;
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    pools[index] = BufferPool.shared();
+                }
+            };
+            threads[i].start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        for (BufferPool pool : pools) {
+            assertThat(pool).isSameAs(pools[0]);
+        }
+    }
+}
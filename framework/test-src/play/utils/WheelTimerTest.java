@@ -0,0 +1,108 @@
+package play.utils;
+
+import org.jboss.netty.util.Timeout;
+import org.junit.Test;
+import play.libs.F;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class WheelTimerTest {
+
+    @Test
+    public void tasksRunAfterTheirDelay() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(1);
+        long start = System.currentTimeMillis();
+        WheelTimer.schedule(new Runnable() {
+
+            public void run() {
+                latch.countDown();
+            }
+        }, 50, TimeUnit.MILLISECONDS);
+        assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(System.currentTimeMillis() - start).isGreaterThanOrEqualTo(40);
+    }
+
+    @Test
+    public void cancelledTasksDoNotRun() throws Exception {
+        final AtomicBoolean ran = new AtomicBoolean();
+        Timeout timeout = WheelTimer.schedule(new Runnable() {
+
+            public void run() {
+                ran.set(true);
+            }
+        }, 50, TimeUnit.MILLISECONDS);
+        timeout.cancel();
+        Thread.sleep(150);
+        assertThat(timeout.isCancelled()).isTrue();
+        assertThat(ran.get()).isFalse();
+    }
+
+    @Test
+    public void submittedTasksRunInTheExecutor() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<String> future = WheelTimer.submit(executor, new Callable<String>() {
+
+                public String call() {
+                    return Thread.currentThread().getName();
+                }
+            }, 20, TimeUnit.MILLISECONDS);
+            assertThat(future.get(5, TimeUnit.SECONDS)).doesNotContain("play-timer");
+
+            future = WheelTimer.submit(executor, new Callable<String>() {
+
+                public String call() {
+                    return "ran";
+                }
+            }, 50, TimeUnit.MILLISECONDS);
+            assertThat(future.cancel(false)).isTrue();
+            assertThat(((WheelTimer.DelayedTask<String>) future).timeout.isCancelled()).isTrue();
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void promiseTimeoutsCanBeCancelled() throws Exception {
+        F.Timeout timeout = new F.Timeout(30);
+        assertThat(timeout.get(5, TimeUnit.SECONDS)).isSameAs(timeout);
+
+        timeout = new F.Timeout(50);
+        assertThat(timeout.cancel(false)).isTrue();
+        Thread.sleep(150);
+        assertThat(timeout.isDone()).isFalse();
+    }
+
+    @Test
+    public void pendingTasksAreCounted() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            int before = WheelTimer.pending();
+            Future<?> ran = WheelTimer.submit(executor, new Runnable() {
+
+                public void run() {
+                }
+            }, 20, TimeUnit.MILLISECONDS);
+            Future<?> cancelled = WheelTimer.submit(executor, new Runnable() {
+
+                public void run() {
+                }
+            }, 5000, TimeUnit.MILLISECONDS);
+            assertThat(WheelTimer.pending()).isEqualTo(before + 2);
+            ran.get(5, TimeUnit.SECONDS);
+            cancelled.cancel(false);
+            cancelled.cancel(false);
+            assertThat(WheelTimer.pending()).isEqualTo(before);
+        } finally {
+            executor.shutdown();
+        }
+    }
+}